@@ -0,0 +1,15 @@
+package com.example.mini_project.config;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cache byte[] có thể trả giá trị dưới dạng ByteBuffer chỉ đọc thay vì copy ra heap
+ * (xem {@link OffHeapBlobCache}, {@link TieredCache}).
+ */
+public interface BufferCache {
+    /**
+     * View chỉ đọc của giá trị, position/limit riêng cho người gọi; null nếu không có trong cache.
+     * View vẫn đọc được sau khi entry bị evict.
+     */
+    ByteBuffer getBuffer(Object key);
+}
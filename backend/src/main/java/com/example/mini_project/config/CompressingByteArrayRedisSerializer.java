@@ -0,0 +1,107 @@
+package com.example.mini_project.config;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Serializer cho cache chứa blob (PDF): lưu thẳng byte[] vào Redis với 1 byte header,
+ * không có framing của Java serialization. Nếu bật nén, blob lớn hơn ngưỡng được nén Deflate
+ * và chỉ giữ bản nén khi nó thực sự nhỏ hơn.
+ * <p>
+ * Format: [0][raw bytes] hoặc [1][deflated bytes].
+ */
+public class CompressingByteArrayRedisSerializer implements RedisSerializer<byte[]> {
+    static final byte RAW = 0;
+    static final byte DEFLATE = 1;
+
+    private final boolean compressionEnabled;
+    private final int compressMinBytes;
+    private final int compressionLevel;
+
+    public CompressingByteArrayRedisSerializer(boolean compressionEnabled, int compressMinBytes, int compressionLevel) {
+        this.compressionEnabled = compressionEnabled;
+        this.compressMinBytes = compressMinBytes;
+        this.compressionLevel = compressionLevel;
+    }
+
+    // Không nén, chỉ lưu raw bytes
+    public static CompressingByteArrayRedisSerializer raw() {
+        return new CompressingByteArrayRedisSerializer(false, Integer.MAX_VALUE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    @Override
+    public byte[] serialize(byte[] value) throws SerializationException {
+        if (value == null) return null;
+        if (compressionEnabled && value.length >= compressMinBytes) {
+            byte[] compressed = deflate(value);
+            if (compressed != null) return compressed;
+        }
+        byte[] result = new byte[value.length + 1];
+        result[0] = RAW;
+        System.arraycopy(value, 0, result, 1, value.length);
+        return result;
+    }
+
+    @Override
+    public byte[] deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) return null;
+        return switch (bytes[0]) {
+            case RAW -> Arrays.copyOfRange(bytes, 1, bytes.length);
+            case DEFLATE -> inflate(bytes);
+            // Entry cũ (ví dụ còn lưu bằng JdkSerializationRedisSerializer) được coi như cache miss
+            default -> null;
+        };
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return byte[].class;
+    }
+
+    // helper: trả về null nếu bản nén không nhỏ hơn bản gốc
+    private byte[] deflate(byte[] value) {
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(value.length / 2 + 16);
+            out.write(DEFLATE);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+                if (out.size() > value.length) return null;
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(byte[] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 1, bytes.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 2);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SerializationException("Dữ liệu nén trong cache bị hỏng");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new SerializationException("Không giải nén được dữ liệu cache", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.mini_project.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Cache byte[] trong JVM nhưng lưu dữ liệu ở direct ByteBuffer (off-heap), để PDF lớn không bị
+ * đẩy lên old generation. Caffeine giới hạn theo tổng số byte (weigher) và dùng W-TinyLFU để chỉ nhận
+ * các file thực sự hay được đọc. {@link #getBuffer} trả về view chỉ đọc, không copy (UploadPdfService ghi thẳng
+ * từ view ra response); get() của Spring Cache vẫn phải trả byte[] nên tạo bản copy trên heap.
+ * So với cache disk {@link com.example.mini_project.service.LocalBlobCache}: disk lớn hơn và được đọc trước,
+ * tầng này nhỏ và chỉ phục vụ khi disk miss (file vừa bị LRU bỏ, hoặc app.pdf.local-cache.enabled=false),
+ * nên khi bật cache disk có thể giữ max-bytes nhỏ hoặc tắt hẳn (app.cache.pdf.l1.enabled=false).
+ * Bộ nhớ direct của entry bị loại được giải phóng khi ByteBuffer bị GC, nên nên đặt -XX:MaxDirectMemorySize
+ * lớn hơn max-bytes một khoảng.
+ */
+public class OffHeapBlobCache extends AbstractValueAdaptingCache implements BufferCache {
+    private final String name;
+    private final long maxEntryBytes;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, ByteBuffer> cache;
+
+    public OffHeapBlobCache(String name, long maxBytes, long maxEntryBytes) {
+        this(name, maxBytes, maxEntryBytes, null);
+    }
+
+    OffHeapBlobCache(String name, long maxBytes, long maxEntryBytes, Executor executor) {
+        super(false);
+        this.name = name;
+        this.maxEntryBytes = maxEntryBytes;
+        Caffeine<Object, ByteBuffer> builder = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Object key, ByteBuffer value) -> value.capacity())
+                .recordStats();
+        if (executor != null) builder.executor(executor);
+        this.cache = builder.build();
+    }
+
+    /**
+     * Metric: pdf.cache.l1.hit.ratio, pdf.cache.l1.bytes (byte đang giữ), pdf.cache.l1.evictions.
+     */
+    public OffHeapBlobCache bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("pdf.cache.l1.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("pdf.cache.l1.bytes", this, OffHeapBlobCache::residentBytes)
+                .tag("cache", name)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("pdf.cache.l1.evictions", cache, c -> c.stats().evictionCount())
+                .tag("cache", name)
+                .register(meterRegistry);
+        return this;
+    }
+
+    public long residentBytes() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    public double hitRate() {
+        return cache.stats().hitRate();
+    }
+
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return cache;
+    }
+
+    @Override
+    public ByteBuffer getBuffer(Object key) {
+        ByteBuffer buffer = cache.getIfPresent(key);
+        return buffer == null ? null : buffer.duplicate();
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        ByteBuffer buffer = getBuffer(key);
+        if (buffer == null) return null;
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) return (T) cached;
+        try {
+            T value = valueLoader.call();
+            put(key, value);
+            return value;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (!(value instanceof byte[] bytes) || bytes.length > maxEntryBytes) return;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        cache.put(key, buffer.asReadOnlyBuffer());
+    }
+
+    @Override
+    public void evict(Object key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
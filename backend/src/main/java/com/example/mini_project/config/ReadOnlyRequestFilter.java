@@ -0,0 +1,31 @@
+package com.example.mini_project.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * GET/HEAD được coi là request đọc: query chạy ngoài transaction (repository, JdbcTemplate, open-in-view)
+ * đi sang replica. Transaction ghi mở trong request vẫn dùng primary.
+ */
+public class ReadOnlyRequestFilter extends OncePerRequestFilter {
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ReadWriteRoutingDataSource.markReadOnlyRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadWriteRoutingDataSource.clearReadOnlyRequest();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.mini_project.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Chọn pool cho mỗi connection: đọc (transaction readOnly, hoặc GET không có transaction) sang replica,
+ * còn lại sang primary. Replica bị ReplicaLagMonitor đánh dấu lag quá ngưỡng hoặc không kết nối được
+ * thì mọi request đọc quay về primary cho tới lần kiểm tra sau.
+ * Câu đọc mà kết quả được cache (role trong course, principal) chạy trong {@link #onPrimary}: đọc replica sau khi
+ * cache bị evict có thể nạp lại giá trị cũ và giữ nó tới hết TTL.
+ * Phải bọc bằng LazyConnectionDataSourceProxy để connection thật chỉ được lấy sau khi transaction
+ * đã đặt cờ readOnly (lúc chạy câu SQL đầu tiên).
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    // Đặt bởi ReadOnlyRequestFilter cho GET/HEAD, chỉ có tác dụng khi không có transaction
+    private static final ThreadLocal<Boolean> READ_ONLY_REQUEST = new ThreadLocal<>();
+    // Đặt bởi onPrimary, thắng cả transaction readOnly lẫn cờ GET
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private volatile boolean replicaAvailable = true;
+    private volatile long replicaLagMs;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter fallbacks;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry meterRegistry) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.primaryConnections = routedCounter(meterRegistry, "primary");
+        this.replicaConnections = routedCounter(meterRegistry, "replica");
+        this.fallbacks = Counter.builder("datasource.replica.fallback")
+                .description("Số connection đọc bị chuyển về primary vì replica lag hoặc không kết nối được")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.lag", this, routing -> routing.replicaLagMs)
+                .description("Độ trễ replay của replica (ms) ở lần kiểm tra gần nhất")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.available", this, routing -> routing.replicaAvailable ? 1 : 0)
+                .description("1 nếu request đọc đang được gửi sang replica")
+                .register(meterRegistry);
+    }
+
+    private static Counter routedCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("datasource.routing.connections")
+                .description("Số connection được cấp theo pool đích")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    public static void markReadOnlyRequest() {
+        READ_ONLY_REQUEST.set(Boolean.TRUE);
+    }
+
+    public static void clearReadOnlyRequest() {
+        READ_ONLY_REQUEST.remove();
+    }
+
+    /**
+     * Chạy action với mọi connection mới lấy trong lúc đó đều từ primary (kể cả transaction readOnly của
+     * SimpleJpaRepository). Không đổi được connection mà transaction bên ngoài đã giữ, nên gọi ngoài transaction
+     * hoặc trong transaction ghi. Không cấu hình replica thì không có tác dụng.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        if (PRIMARY_REQUIRED.get() != null) return action.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    // Gọi bởi ReplicaLagMonitor sau mỗi lần kiểm tra
+    public void updateReplicaStatus(boolean available, long lagMs) {
+        this.replicaAvailable = available;
+        this.replicaLagMs = lagMs;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!isReadOnly()) {
+            primaryConnections.increment();
+            return Target.PRIMARY;
+        }
+        if (!replicaAvailable) {
+            fallbacks.increment();
+            primaryConnections.increment();
+            return Target.PRIMARY;
+        }
+        replicaConnections.increment();
+        return Target.REPLICA;
+    }
+
+    private static boolean isReadOnly() {
+        if (PRIMARY_REQUIRED.get() != null) return false;
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+        return Boolean.TRUE.equals(READ_ONLY_REQUEST.get());
+    }
+}
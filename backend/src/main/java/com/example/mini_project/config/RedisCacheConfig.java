@@ -1,20 +1,48 @@
 package com.example.mini_project.config;
 
+import com.example.mini_project.service.CourseMembershipService;
+import com.example.mini_project.service.UploadPdfService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.serializer.*;
+import tools.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 
 import java.time.Duration;
+import java.util.Map;
 
 @Configuration
 public class RedisCacheConfig {
 
+    @Value("${app.cache.pdf.compression-enabled:false}")
+    private boolean pdfCompressionEnabled;
+
+    @Value("${app.cache.pdf.compress-min-bytes:65536}")
+    private int pdfCompressMinBytes;
+
+    @Value("${app.cache.pdf.compression-level:1}")
+    private int pdfCompressionLevel;
+
+    @Value("${app.cache.membership.ttl-minutes:10}")
+    private long membershipTtlMinutes;
+
+    @Value("${app.cache.pdf.l1.enabled:true}")
+    private boolean pdfL1Enabled;
+
+    @Value("${app.cache.pdf.l1.max-bytes:67108864}")
+    private long pdfL1MaxBytes;
+
+    @Value("${app.cache.pdf.l1.max-entry-bytes:2097152}")
+    private long pdfL1MaxEntryBytes;
+
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory factory) {
-        // Default config for JSON objects
+    public CacheManager cacheManager(RedisConnectionFactory factory, MeterRegistry meterRegistry) {
+        // Default config for DTO caches - JSON thay vì Java serialization
         RedisCacheConfiguration defaultConfig =
                 RedisCacheConfiguration.defaultCacheConfig()
                     .serializeKeysWith(
@@ -23,23 +51,53 @@ public class RedisCacheConfig {
                     )
                     .serializeValuesWith(
                         RedisSerializationContext.SerializationPair
-                                .fromSerializer(new JdkSerializationRedisSerializer())
+                                .fromSerializer(dtoSerializer())
                     )
                     .entryTtl(Duration.ofMinutes(30));
 
-        // Config for binary data (PDFs) - uses JdkSerializationRedisSerializer for byte[]
+        // Config for binary data (PDFs) - lưu raw byte[], có thể nén khi vượt ngưỡng
         RedisCacheConfiguration pdfConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .serializeKeysWith(
                         RedisSerializationContext.SerializationPair
                                 .fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(
                         RedisSerializationContext.SerializationPair
-                                .fromSerializer(new JdkSerializationRedisSerializer()))
+                                .fromSerializer(blobSerializer()))
+                .disableCachingNullValues()
                 .entryTtl(Duration.ofMinutes(30));
 
-        return RedisCacheManager.builder(factory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(factory)
                 .cacheDefaults(defaultConfig)
-                .withCacheConfiguration("file_pdf", pdfConfig)
+                .withCacheConfiguration(UploadPdfService.PDF_CACHE, pdfConfig)
+                .withCacheConfiguration(CourseMembershipService.MEMBERSHIP_CACHE,
+                        defaultConfig.entryTtl(Duration.ofMinutes(membershipTtlMinutes)))
+                .build();
+        redisCacheManager.afterPropertiesSet();
+        if (!pdfL1Enabled) {
+            return redisCacheManager;
+        }
+
+        // L1 off-heap trong JVM cho file_pdf, Redis là tầng dùng chung phía sau
+        OffHeapBlobCache pdfL1 = new OffHeapBlobCache(UploadPdfService.PDF_CACHE, pdfL1MaxBytes, pdfL1MaxEntryBytes)
+                .bindTo(meterRegistry);
+        return new TieredCacheManager(redisCacheManager, Map.of(UploadPdfService.PDF_CACHE, pdfL1));
+    }
+
+    private RedisSerializer<byte[]> blobSerializer() {
+        return new CompressingByteArrayRedisSerializer(pdfCompressionEnabled, pdfCompressMinBytes, pdfCompressionLevel);
+    }
+
+    // JSON kèm type info, chỉ cho phép deserialize các class của app và kiểu cơ bản của JDK.
+    // Lưu ý: list cần cache phải là ArrayList, List.of()/Stream.toList() không deserialize lại được.
+    static RedisSerializer<Object> dtoSerializer() {
+        return GenericJacksonJsonRedisSerializer.builder()
+                .enableSpringCacheNullValueSupport()
+                .enableDefaultTyping(BasicPolymorphicTypeValidator.builder()
+                        .allowIfSubType("com.example.mini_project.")
+                        .allowIfSubType("java.lang.")
+                        .allowIfSubType("java.util.")
+                        .allowIfSubType("java.time.")
+                        .build())
                 .build();
     }
 }
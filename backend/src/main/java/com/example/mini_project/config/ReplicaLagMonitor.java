@@ -0,0 +1,56 @@
+package com.example.mini_project.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Định kỳ đo độ trễ replay của replica. Lag vượt app.datasource.replica.max-lag-ms hoặc không query
+ * được thì ReadWriteRoutingDataSource gửi request đọc về primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+    // 0 khi replica đã replay hết WAL nhận được (kể cả lúc primary không có ghi), hoặc khi không phải standby
+    // (vd. replica trỏ sang schema khác trên cùng instance lúc chạy thử)
+    static final String LAG_QUERY = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+            END
+            """;
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final ReadWriteRoutingDataSource routingDataSource;
+    private final long maxLagMs;
+
+    public ReplicaLagMonitor(DataSource replica, ReadWriteRoutingDataSource routingDataSource, long maxLagMs) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replica);
+        this.routingDataSource = routingDataSource;
+        this.maxLagMs = maxLagMs;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-ms:5000}")
+    public void check() {
+        boolean wasAvailable = routingDataSource.isReplicaAvailable();
+        boolean available;
+        long lagMs;
+        try {
+            Number lag = replicaJdbcTemplate.queryForObject(LAG_QUERY, Number.class);
+            lagMs = lag == null ? 0 : lag.longValue();
+            available = lagMs <= maxLagMs;
+        } catch (DataAccessException e) {
+            lagMs = -1;
+            available = false;
+            if (wasAvailable) log.warn("Không kiểm tra được replica, chuyển request đọc về primary", e);
+        }
+        routingDataSource.updateReplicaStatus(available, lagMs);
+        if (wasAvailable && !available && lagMs >= 0) {
+            log.warn("Replica trễ {} ms (ngưỡng {} ms), chuyển request đọc về primary", lagMs, maxLagMs);
+        } else if (!wasAvailable && available) {
+            log.info("Replica đã bắt kịp (trễ {} ms), request đọc quay lại replica", lagMs);
+        }
+    }
+}
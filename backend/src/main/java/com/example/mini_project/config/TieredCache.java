@@ -0,0 +1,87 @@
+package com.example.mini_project.config;
+
+import org.springframework.cache.Cache;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+
+/**
+ * Cache 2 tầng: L1 trong JVM (vd. {@link OffHeapBlobCache}) trước L2 dùng chung (Redis).
+ * Đọc L1 trước, miss thì đọc L2 và đưa lên L1. Ghi và xóa áp dụng cho cả hai tầng.
+ * {@link #getBuffer} chỉ đọc L1: miss thì người gọi đi đường get() bình thường (và đưa giá trị lên L1).
+ */
+public class TieredCache implements Cache, BufferCache {
+    private final Cache l1;
+    private final Cache l2;
+
+    public TieredCache(Cache l1, Cache l2) {
+        this.l1 = l1;
+        this.l2 = l2;
+    }
+
+    @Override
+    public String getName() {
+        return l2.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l2.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper local = l1.get(key);
+        if (local != null) return local;
+        ValueWrapper shared = l2.get(key);
+        if (shared != null && shared.get() != null) {
+            l1.put(key, shared.get());
+        }
+        return shared;
+    }
+
+    @Override
+    public ByteBuffer getBuffer(Object key) {
+        return l1 instanceof BufferCache bufferCache ? bufferCache.getBuffer(key) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) return null;
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) return (T) wrapper.get();
+        T value = l2.get(key, valueLoader);
+        if (value != null) l1.put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        l2.put(key, value);
+        l1.put(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        l2.evict(key);
+        l1.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        l2.clear();
+        l1.clear();
+    }
+}
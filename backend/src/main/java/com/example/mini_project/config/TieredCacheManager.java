@@ -0,0 +1,37 @@
+package com.example.mini_project.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bọc CacheManager dùng chung (Redis): cache nào có L1 đăng ký thì trả về {@link TieredCache}, còn lại giữ nguyên.
+ */
+public class TieredCacheManager implements CacheManager {
+    private final CacheManager shared;
+    private final Map<String, Cache> localCaches;
+    private final Map<String, Cache> tieredCaches = new ConcurrentHashMap<>();
+
+    public TieredCacheManager(CacheManager shared, Map<String, Cache> localCaches) {
+        this.shared = shared;
+        this.localCaches = Map.copyOf(localCaches);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache l1 = localCaches.get(name);
+        if (l1 == null) return shared.getCache(name);
+        return tieredCaches.computeIfAbsent(name, key -> {
+            Cache l2 = shared.getCache(key);
+            return l2 == null ? l1 : new TieredCache(l1, l2);
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return shared.getCacheNames();
+    }
+}
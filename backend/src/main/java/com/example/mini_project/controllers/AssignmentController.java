@@ -6,18 +6,26 @@ import com.example.mini_project.entities.assignment.AssignmentCreateDTO;
 import com.example.mini_project.entities.assignment.AssignmentResponseDTO;
 import com.example.mini_project.entities.assignment.AssignmentResponseDTOMapper;
 import com.example.mini_project.entities.course.Course;
-import com.example.mini_project.entities.course.CourseRole;
 import com.example.mini_project.entities.file.AssignmentFile;
+import com.example.mini_project.entities.file.PresignedUploadDTO;
+import com.example.mini_project.entities.file.PresignedUrlDTO;
+import com.example.mini_project.entities.file.UploadRequestDTO;
+import com.example.mini_project.entities.file.UploadedFileDTO;
+import com.example.mini_project.entities.file.UploadedObject;
 import com.example.mini_project.entities.user.User;
-import com.example.mini_project.entities.usercourse.UserCourse;
 import com.example.mini_project.exception.CourseNotFoundException;
 import com.example.mini_project.exception.UserNotFoundException;
 import com.example.mini_project.repositories.*;
-import com.example.mini_project.service.S3Service;
+import com.example.mini_project.service.S3DeletionService;
+import com.example.mini_project.service.CourseMembershipService;
+import com.example.mini_project.service.DirectUploadService;
+import com.example.mini_project.service.GradebookService;
+import com.example.mini_project.service.ParallelUploadService;
+import com.example.mini_project.service.PdfDownloadMode;
 import com.example.mini_project.service.UploadPdfService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.transaction.Transactional;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -28,10 +36,10 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import static com.example.mini_project.controllers.UserController.buildResponse;
 
@@ -41,37 +49,46 @@ public class AssignmentController {
     private final AssignmentRepository assignmentRepository;
     private final UserRepository userRepository;
     private final CourseRepository courseRepository;
-    private final UserCourseRepository userCourseRepository;
+    private final CourseMembershipService courseMembershipService;
     private final SubmissionRepository submissionRepository;
-    private final S3Service s3Service;
+    private final S3DeletionService s3DeletionService;
     private final UploadPdfService uploadPdfService;
+    private final DirectUploadService directUploadService;
+    private final ParallelUploadService parallelUploadService;
+    private final GradebookService gradebookService;
 
     public AssignmentController(AssignmentRepository assignmentRepository,
                                 UserRepository userRepository,
                                 CourseRepository courseRepository,
-                                UserCourseRepository userCourseRepository,
+                                CourseMembershipService courseMembershipService,
                                 SubmissionRepository submissionRepository,
-                                S3Service s3Service, UploadPdfService uploadPdfService) {
+                                S3DeletionService s3DeletionService, UploadPdfService uploadPdfService,
+                                DirectUploadService directUploadService,
+                                ParallelUploadService parallelUploadService,
+                                GradebookService gradebookService) {
         this.assignmentRepository = assignmentRepository;
         this.userRepository = userRepository;
         this.courseRepository = courseRepository;
-        this.userCourseRepository = userCourseRepository;
+        this.courseMembershipService = courseMembershipService;
         this.submissionRepository = submissionRepository;
-        this.s3Service = s3Service;
+        this.s3DeletionService = s3DeletionService;
         this.uploadPdfService = uploadPdfService;
+        this.directUploadService = directUploadService;
+        this.parallelUploadService = parallelUploadService;
+        this.gradebookService = gradebookService;
     }
 
     @GetMapping()
     public ResponseEntity getAllCourseAssignment(@PathVariable("course-id") Long courseId) {
-        List<AssignmentResponseDTO> AssignmentResponseDTOList = StreamSupport.stream(this.assignmentRepository
-                        .findByCourse_Id(courseId).spliterator(), false)
-                .map(AssignmentResponseDTOMapper::toDTO).collect(Collectors.toList());
+        List<AssignmentResponseDTO> AssignmentResponseDTOList = assignmentRepository.findDTOsByCourseId(courseId);
         return buildResponse(HttpStatus.OK, "Assignment: Lấy dữ liệu assignment thành công", AssignmentResponseDTOList);
     }
 
     @GetMapping("{assignment-id}/pdf")
     public ResponseEntity<?> getAssignmentPdf(@PathVariable("assignment-id") Long assignmentId,
-                                              @RequestParam(value = "index", required = false) Integer index) {
+                                              @RequestParam(value = "index", required = false) Integer index,
+                                              HttpServletRequest request,
+                                              HttpServletResponse response) throws IOException {
         Optional<Assignment> assignmentOptional = assignmentRepository.findById(assignmentId);
         if (assignmentOptional.isEmpty()) {
             return buildResponse(HttpStatus.BAD_REQUEST, "Assignment: Không tìm thấy assignment để trích xuất pdf", null);
@@ -88,16 +105,18 @@ public class AssignmentController {
         
         AssignmentFile file = assignment.getFiles().get(fileIndex);
 
-        byte[] pdfBytes =
-                uploadPdfService.loadPdfBytes(file.getS3Key());
+        // Presigned mode: backend chỉ kiểm tra quyền và trả link, client tải thẳng từ S3
+        if (uploadPdfService.getDownloadMode() != PdfDownloadMode.STREAM) {
+            PresignedUrlDTO link = uploadPdfService.presignedUrl(file);
+            if (uploadPdfService.getDownloadMode() == PdfDownloadMode.REDIRECT) {
+                return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(link.url())).build();
+            }
+            return buildResponse(HttpStatus.OK, "Assignment: Lấy link PDF thành công", link);
+        }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .header(
-                        HttpHeaders.CONTENT_DISPOSITION,
-                        "inline; filename=\"" + file.getOriginalFilename() + "\""
-                )
-                .body(new ByteArrayResource(pdfBytes));
+        // Ghi thẳng vào response (hỗ trợ Range), không giữ cả file trên heap
+        uploadPdfService.writePdf(file, request, response);
+        return null;
     }
 
     @PostMapping(
@@ -160,7 +179,9 @@ public class AssignmentController {
             return buildResponse(HttpStatus.BAD_REQUEST, "Edit assignment: Không tìm thấy assignment cần edit", null);
 
 
+        Double previousWeight = assignmentOptional.get().getAssignmentWeight();
         Assignment updateAssignment = getUpdateAssignment(request, assignmentOptional);
+        gradebookService.onWeightChanged(updateAssignment, previousWeight);
         if (files != null && !files.isEmpty()) {
             ResponseEntity<ResponseDTO<Object>> INTERNAL_SERVER_ERROR = saveS3File(files, updateAssignment);
             if (INTERNAL_SERVER_ERROR != null) return INTERNAL_SERVER_ERROR;
@@ -170,6 +191,71 @@ public class AssignmentController {
     }
 
 
+    /**
+     * Bước 1 của upload thẳng lên S3: trả về presigned PUT URL cho từng file.
+     */
+    @PostMapping("{assignment-id}/upload-urls")
+    public ResponseEntity presignAssignmentUploads(@PathVariable("course-id") Long courseId,
+                                                   @PathVariable("assignment-id") Long assignmentId,
+                                                   @RequestBody List<UploadRequestDTO> files,
+                                                   Authentication auth)
+            throws UserNotFoundException, CourseNotFoundException {
+        Course course = getCourseFromHttp(courseId, "Upload assignment");
+        User user = getUserFromAuth(auth, "Upload assignment");
+        if (!isTutor(user.getUsername(), course.getId())) {
+            return buildResponse(HttpStatus.FORBIDDEN,
+                    "Upload assignment: Không phải tutor hoặc không tìm thấy bạn trong hệ thống!", null);
+        }
+        Optional<Assignment> assignmentOptional = assignmentRepository.findById(assignmentId);
+        if (assignmentOptional.isEmpty() || !assignmentOptional.get().getCourse().getId().equals(courseId))
+            return buildResponse(HttpStatus.BAD_REQUEST, "Upload assignment: Không tìm thấy assignment", null);
+
+        try {
+            List<PresignedUploadDTO> uploads = directUploadService.presignUploads(
+                    AssignmentFile.uploadKeyPrefix(assignmentOptional.get()), files);
+            return buildResponse(HttpStatus.OK, "Upload assignment: Tạo link upload thành công", uploads);
+        } catch (IllegalArgumentException e) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Upload assignment: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Bước 2 của upload thẳng lên S3: kiểm tra object bằng HEAD rồi lưu metadata AssignmentFile.
+     */
+    @PostMapping("{assignment-id}/uploads/complete")
+    @Transactional
+    public ResponseEntity completeAssignmentUploads(@PathVariable("course-id") Long courseId,
+                                                    @PathVariable("assignment-id") Long assignmentId,
+                                                    @RequestBody List<UploadedFileDTO> files,
+                                                    Authentication auth)
+            throws UserNotFoundException, CourseNotFoundException {
+        Course course = getCourseFromHttp(courseId, "Upload assignment");
+        User user = getUserFromAuth(auth, "Upload assignment");
+        if (!isTutor(user.getUsername(), course.getId())) {
+            return buildResponse(HttpStatus.FORBIDDEN,
+                    "Upload assignment: Không phải tutor hoặc không tìm thấy bạn trong hệ thống!", null);
+        }
+        Optional<Assignment> assignmentOptional = assignmentRepository.findById(assignmentId);
+        if (assignmentOptional.isEmpty() || !assignmentOptional.get().getCourse().getId().equals(courseId))
+            return buildResponse(HttpStatus.BAD_REQUEST, "Upload assignment: Không tìm thấy assignment", null);
+        Assignment assignment = assignmentOptional.get();
+
+        List<UploadedObject> uploaded;
+        try {
+            uploaded = directUploadService.verifyUploads(AssignmentFile.uploadKeyPrefix(assignment), files);
+        } catch (IllegalArgumentException e) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Upload assignment: " + e.getMessage(), null);
+        }
+        for (UploadedObject object : uploaded) {
+            boolean attached = assignment.getFiles().stream()
+                    .anyMatch(file -> file.getS3Key().equals(object.s3Key()));
+            if (!attached) {
+                assignment.addFile(AssignmentFile.fromUpload(assignment, object));
+            }
+        }
+        return buildResponse(HttpStatus.OK, "Upload assignment: Thành công!", AssignmentResponseDTOMapper.toDTO(assignment));
+    }
+
     @DeleteMapping("{assignment-id}/delete")
     @Transactional
     public ResponseEntity deleteAssignment(@PathVariable("course-id") Long courseId,
@@ -188,14 +274,15 @@ public class AssignmentController {
 
         Assignment deleteAssignment = assignmentOptional.get();
 
-        // Delete submission files from S3 and then delete submissions
-        submissionRepository.findByAssignment_Id(assignmentId).forEach(submission -> {
-            submission.getFiles().forEach(file -> s3Service.deleteObject(file.getS3Key()));
-        });
-        submissionRepository.deleteByAssignment_Id(assignmentId);
+        gradebookService.onAssignmentDeleted(deleteAssignment);
 
-        // Delete assignment files from S3
-        deleteAssignment.getFiles().forEach(file -> s3Service.deleteObject(file.getS3Key()));
+        // File S3 của submission và assignment được xóa qua outbox sau khi transaction commit
+        List<String> s3Keys = new ArrayList<>();
+        submissionRepository.findByAssignment_Id(assignmentId).forEach(submission ->
+                submission.getFiles().forEach(file -> s3Keys.add(file.getS3Key())));
+        submissionRepository.deleteByAssignment_Id(assignmentId);
+        deleteAssignment.getFiles().forEach(file -> s3Keys.add(file.getS3Key()));
+        s3DeletionService.enqueue(s3Keys);
 
         course.removeAssignment(assignmentOptional.get());
         return buildResponse(HttpStatus.OK, "Xóa assignment: Thành công!", AssignmentResponseDTOMapper.toDTO(deleteAssignment));
@@ -223,10 +310,7 @@ public class AssignmentController {
 
     private boolean isTutor(String username,
                             Long id) {
-        Optional<UserCourse> userCourseOptional = userCourseRepository.findByUser_UsernameAndCourse_Id(username, id);
-        if (userCourseOptional.isEmpty())
-            return false;
-        return userCourseOptional.get().getRole().equals(CourseRole.TUTOR);
+        return courseMembershipService.isTutor(username, id);
     }
 
     // helper
@@ -246,13 +330,14 @@ public class AssignmentController {
     }
 
     private ResponseEntity<ResponseDTO<Object>> saveS3File(List<MultipartFile> files, Assignment assignment) {
+        if (files == null) return null;
         try {
-            for (MultipartFile file : files) {
-                if (file != null && !file.isEmpty()) {
-                    String s3Key = AssignmentFile.generateS3Key(assignment, file);
-                    AssignmentFile assignmentFile = AssignmentFile.build(s3Service, s3Key, assignment, file);
-                    assignment.addFile(assignmentFile);
-                }
+            // Upload song song, thêm file theo đúng thứ tự trong request
+            List<MultipartFile> nonEmpty = files.stream().filter(file -> file != null && !file.isEmpty()).toList();
+            List<String> keys = nonEmpty.stream().map(file -> AssignmentFile.generateS3Key(assignment, file)).toList();
+            List<String> storedKeys = parallelUploadService.uploadAll(keys, nonEmpty);
+            for (int i = 0; i < nonEmpty.size(); i++) {
+                assignment.addFile(AssignmentFile.fromUpload(assignment, UploadedObject.of(storedKeys.get(i), nonEmpty.get(i))));
             }
         } catch (IOException e) {
             return buildResponse(HttpStatus.INTERNAL_SERVER_ERROR,
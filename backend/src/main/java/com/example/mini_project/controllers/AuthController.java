@@ -55,7 +55,7 @@ public class AuthController {
         );
 
         final UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        String token = jwtUtil.generateToken(userDetails.getUsername());
+        String token = jwtUtil.generateToken(userDetails.getUsername(), userDetails.getAuthorities());
         return ResponseEntity.ok(new ResponseDTO<>("User đăng nhập thành công", token));
     }
 
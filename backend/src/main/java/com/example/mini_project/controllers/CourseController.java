@@ -1,13 +1,26 @@
 package com.example.mini_project.controllers;
 
+import com.example.mini_project.entities.PageResponseDTO;
 import com.example.mini_project.entities.ResponseDTO;
 import com.example.mini_project.entities.course.*;
+import com.example.mini_project.entities.submission.Submission;
 import com.example.mini_project.entities.user.User;
 import com.example.mini_project.entities.usercourse.UserCourse;
+import com.example.mini_project.entities.usercourse.UserCourseDTO;
 import com.example.mini_project.repositories.CourseRepository;
+import com.example.mini_project.repositories.SubmissionRepository;
 import com.example.mini_project.repositories.UserCourseRepository;
 import com.example.mini_project.repositories.UserRepository;
+import com.example.mini_project.service.CourseMembershipService;
+import com.example.mini_project.service.CourseSearchService;
+import com.example.mini_project.service.GradebookFormat;
+import com.example.mini_project.service.GradebookReportService;
+import com.example.mini_project.service.GradebookService;
+import com.example.mini_project.service.S3DeletionService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -19,12 +32,12 @@ import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.function.Function;
 
 import static com.example.mini_project.controllers.UserController.buildResponse;
 
@@ -36,22 +49,39 @@ public class CourseController {
     private final UserRepository userRepository;
     private final UserCourseRepository userCourseRepository;
     private final PasswordEncoder encoder;
+    private final SubmissionRepository submissionRepository;
+    private final S3DeletionService s3DeletionService;
+    private final CourseSearchService courseSearchService;
+    private final GradebookService gradebookService;
+    private final GradebookReportService gradebookReportService;
+    private final CourseMembershipService courseMembershipService;
 
     public CourseController(CourseRepository courseRepository, UserRepository userRepository,
-                            UserCourseRepository userCourseRepository, PasswordEncoder encoder) {
+                            UserCourseRepository userCourseRepository, PasswordEncoder encoder,
+                            SubmissionRepository submissionRepository, S3DeletionService s3DeletionService,
+                            CourseSearchService courseSearchService, GradebookService gradebookService,
+                            GradebookReportService gradebookReportService,
+                            CourseMembershipService courseMembershipService) {
         this.courseRepository = courseRepository;
         this.userRepository = userRepository;
         this.userCourseRepository = userCourseRepository;
         this.encoder = encoder;
+        this.submissionRepository = submissionRepository;
+        this.s3DeletionService = s3DeletionService;
+        this.courseSearchService = courseSearchService;
+        this.gradebookService = gradebookService;
+        this.gradebookReportService = gradebookReportService;
+        this.courseMembershipService = courseMembershipService;
     }
 
     @GetMapping()
-    public ResponseEntity getAllCourse() {
-        Iterable<Course> courses = courseRepository.findAll();
-        List<CourseResponseDTO> result = StreamSupport.stream(courses.spliterator(), false)
-                .map(CourseResponseDTOMapper::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(new ResponseDTO<>("Lấy dữ liệu course thành công", result));
+    public ResponseEntity getAllCourse(@RequestParam(value = "limit", defaultValue = "50") int limit,
+                                       @RequestParam(value = "cursor", required = false) String cursor) {
+        int pageSize = PageResponseDTO.clampLimit(limit);
+        List<CourseResponseDTO> courses = courseRepository.findDTOPage(
+                PageResponseDTO.decodeCursor(cursor), Limit.of(pageSize + 1));
+        return ResponseEntity.ok(PageResponseDTO.of("Lấy dữ liệu course thành công", courses, pageSize,
+                CourseResponseDTO::getId, Function.identity()));
     }
 
     @GetMapping("/{course-id}")
@@ -64,14 +94,16 @@ public class CourseController {
 
 
     @GetMapping("/all-users/{course-id}")
-    public ResponseEntity getAllUsersInCourse(@PathVariable("course-id") Long courseId) {
-        Optional<Course> courseOptional = courseRepository.findById(courseId);
-        if (courseOptional.isEmpty()) return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+    public ResponseEntity getAllUsersInCourse(@PathVariable("course-id") Long courseId,
+                                              @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                              @RequestParam(value = "cursor", required = false) String cursor) {
+        if (!courseRepository.existsById(courseId)) return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(new ResponseDTO<>("Không tìm thấy course hợp lệ", null));
-        Course course = courseOptional.get();
-        List<UserCourse> users = new ArrayList<>();
-        course.getStudents().forEach(userCourse -> users.add(userCourse));
-        return ResponseEntity.ok(new ResponseDTO<>("Lấy danh sách user trong course thành công", users));
+        int pageSize = PageResponseDTO.clampLimit(limit);
+        List<UserCourseDTO> users = userCourseRepository.findDTOPageByCourse(
+                courseId, PageResponseDTO.decodeCursor(cursor), Limit.of(pageSize + 1));
+        return ResponseEntity.ok(PageResponseDTO.of("Lấy danh sách user trong course thành công", users, pageSize,
+                UserCourseDTO::getId, Function.identity()));
     }
 
         @GetMapping("{course-id}/cum-weight")
@@ -84,19 +116,44 @@ public class CourseController {
                 throw new RuntimeException("Không tìm thấy học sinh");
             User user = userOptional.get();
             return buildResponse(HttpStatus.OK, "Lấy tổng điểm thành công",
-                    courseRepository.getTotalWeightedScore(user.getId(), courseId));
+                    gradebookService.getTotal(user.getId(), courseId));
         }
+
+    /**
+     * Bảng điểm cả course cho tutor: điểm từng assignment và tổng điểm của mọi học sinh.
+     * format=csv (mặc định) hoặc ndjson, ghi thẳng vào response theo từng học sinh.
+     */
+    @GetMapping("{course-id}/gradebook")
+    public ResponseEntity<?> getGradebook(@PathVariable("course-id") Long courseId,
+                                          @RequestParam(value = "format", defaultValue = "csv") String format,
+                                          Authentication auth,
+                                          HttpServletResponse response) throws IOException {
+        if (!courseRepository.existsById(courseId))
+            return buildResponse(HttpStatus.NOT_FOUND, "Gradebook: Không tìm thấy course hợp lệ", null);
+        GradebookFormat gradebookFormat = GradebookFormat.from(format);
+        if (gradebookFormat == null)
+            return buildResponse(HttpStatus.BAD_REQUEST, "Gradebook: format chỉ nhận csv hoặc ndjson", null);
+        UserDetails userDetails = (UserDetails) auth.getPrincipal();
+        if (!courseMembershipService.isTutor(userDetails.getUsername(), courseId))
+            return buildResponse(HttpStatus.FORBIDDEN, "Gradebook: Chỉ tutor mới xem được bảng điểm", null);
+
+        response.setContentType(gradebookFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"gradebook-" + courseId + "." + gradebookFormat.getExtension() + "\"");
+        gradebookReportService.write(courseId, gradebookFormat, response.getOutputStream());
+        return null;
+    }
+
     @GetMapping("/search")
     public ResponseEntity searchCourse(@RequestParam(value = "q", required = false) String keyword,
-                                       @RequestParam(value = "is-private", required = false) Boolean isPrivate) {
-        List<Course> resultList = courseRepository.search(keyword, isPrivate);
-        if (resultList == null) return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .body(new ResponseDTO<>("Vui lòng tìm kiếm trường phù hợp", null));
-        if (resultList.isEmpty()) return ResponseEntity.ok(
+                                       @RequestParam(value = "is-private", required = false) Boolean isPrivate,
+                                       @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                       @RequestParam(value = "cursor", required = false) String cursor) {
+        PageResponseDTO<CourseResponseDTO> page = courseSearchService.search(keyword, isPrivate, cursor, limit);
+        if (page.getData().isEmpty()) return ResponseEntity.ok(
                 new ResponseDTO<>("Không có course phù hợp mô tả", null));
-        int n = resultList.size();
-        return ResponseEntity.ok(new ResponseDTO<>("Tìm kiếm được " + n + " dữ liệu!",
-                resultList.stream().map(CourseResponseDTOMapper::toDTO).toList()));
+        page.setMessage("Tìm kiếm được " + page.getData().size() + " dữ liệu!");
+        return ResponseEntity.ok(page);
     }
 
     @PostMapping("/create")
@@ -247,6 +304,15 @@ public class CourseController {
                     .body(new ResponseDTO<>("Xóa course: Chỉ user tạo ra mới có thể xóa course này", null));
         }
 
+        // Submission không cascade theo course: xóa trước, file S3 của submission và assignment đưa vào outbox
+        List<String> s3Keys = new ArrayList<>();
+        List<Submission> submissions = submissionRepository.findByAssignment_Course_Id(courseId);
+        submissions.forEach(submission -> submission.getFiles().forEach(file -> s3Keys.add(file.getS3Key())));
+        submissionRepository.deleteAll(submissions);
+        course.getAssignmentList().forEach(assignment ->
+                assignment.getFiles().forEach(file -> s3Keys.add(file.getS3Key())));
+        s3DeletionService.enqueue(s3Keys);
+
         courseRepository.delete(courseOptional.get());
         return ResponseEntity.ok(new ResponseDTO<>("Xóa course thành công",
                 CourseResponseDTOMapper.toDTO(courseOptional.get())));
@@ -1,20 +1,33 @@
 package com.example.mini_project.controllers;
 
+import com.example.mini_project.entities.PageResponseDTO;
 import com.example.mini_project.entities.assignment.Assignment;
 import com.example.mini_project.entities.course.Course;
-import com.example.mini_project.entities.course.CourseRole;
+import com.example.mini_project.entities.file.PresignedUploadDTO;
+import com.example.mini_project.entities.file.PresignedUrlDTO;
 import com.example.mini_project.entities.file.SubmissionFile;
+import com.example.mini_project.entities.file.UploadRequestDTO;
+import com.example.mini_project.entities.file.UploadedObject;
 import com.example.mini_project.entities.submission.*;
 import com.example.mini_project.entities.user.User;
-import com.example.mini_project.entities.usercourse.UserCourse;
 import com.example.mini_project.repositories.AssignmentRepository;
 import com.example.mini_project.repositories.SubmissionRepository;
-import com.example.mini_project.repositories.UserCourseRepository;
-import com.example.mini_project.service.S3Service;
+import com.example.mini_project.service.BulkGradingService;
+import com.example.mini_project.service.ParallelUploadService;
+import com.example.mini_project.service.CourseMembershipService;
+import com.example.mini_project.service.DirectUploadService;
+import com.example.mini_project.service.GradebookService;
+import com.example.mini_project.service.PdfDownloadMode;
+import com.example.mini_project.service.S3DeletionService;
+import com.example.mini_project.service.StreamingUploadService;
+import com.example.mini_project.service.SubmissionUploadService;
 import com.example.mini_project.service.UploadPdfService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -25,39 +38,66 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static com.example.mini_project.controllers.UserController.buildResponse;
 
 
+@Slf4j
 @RestController
 @RequestMapping("courses/{course-id}/assignments/{assignment-id}/submissions")
 public class SubmissionController {
-    private final UserCourseRepository userCourseRepository;
+    private final CourseMembershipService courseMembershipService;
     private final AssignmentRepository assignmentRepository;
     private final SubmissionRepository submissionRepository;
-    private final S3Service s3Service;
+    private final DirectUploadService directUploadService;
+    private final ParallelUploadService parallelUploadService;
+    private final StreamingUploadService streamingUploadService;
+    private final S3DeletionService s3DeletionService;
+    private final GradebookService gradebookService;
+    private final BulkGradingService bulkGradingService;
+    private final SubmissionUploadService submissionUploadService;
+    private final int bulkGradeMaxItems;
 
     @Autowired
     private UploadPdfService uploadPdfService;
 
-    public SubmissionController(UserCourseRepository userCourseRepository,
+    public SubmissionController(CourseMembershipService courseMembershipService,
                                 AssignmentRepository assignmentRepository,
                                 SubmissionRepository submissionRepository,
-                                S3Service s3Service) {
+                                DirectUploadService directUploadService,
+                                ParallelUploadService parallelUploadService,
+                                StreamingUploadService streamingUploadService,
+                                S3DeletionService s3DeletionService,
+                                GradebookService gradebookService,
+                                BulkGradingService bulkGradingService,
+                                SubmissionUploadService submissionUploadService,
+                                @Value("${app.grading.bulk.max-items:1000}") int bulkGradeMaxItems) {
         this.assignmentRepository = assignmentRepository;
-        this.userCourseRepository = userCourseRepository;
+        this.courseMembershipService = courseMembershipService;
         this.submissionRepository = submissionRepository;
-        this.s3Service = s3Service;
+        this.directUploadService = directUploadService;
+        this.parallelUploadService = parallelUploadService;
+        this.streamingUploadService = streamingUploadService;
+        this.s3DeletionService = s3DeletionService;
+        this.gradebookService = gradebookService;
+        this.bulkGradingService = bulkGradingService;
+        this.submissionUploadService = submissionUploadService;
+        this.bulkGradeMaxItems = bulkGradeMaxItems;
     }
 
     @GetMapping()
-    public ResponseEntity<?> getSubmissionByAssignment(@PathVariable("assignment-id") Long assignmentId) {
-        List<SubmissionDTO> submissionDTOList = this.submissionRepository.findByAssignment_Id(assignmentId)
-                .stream().map(SubmissionMapper::toDTO).toList();
-        return buildResponse(HttpStatus.OK, "Lấy submission theo assignment thành công", submissionDTOList);
+    public ResponseEntity<?> getSubmissionByAssignment(@PathVariable("assignment-id") Long assignmentId,
+                                                       @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                                       @RequestParam(value = "cursor", required = false) String cursor) {
+        int pageSize = PageResponseDTO.clampLimit(limit);
+        List<Submission> submissions = submissionRepository.findByAssignment_IdAndIdGreaterThanOrderByIdAsc(
+                assignmentId, PageResponseDTO.decodeCursor(cursor), Limit.of(pageSize + 1));
+        return ResponseEntity.ok(PageResponseDTO.of("Lấy submission theo assignment thành công", submissions,
+                pageSize, Submission::getId, SubmissionMapper::toDTO));
     }
 
     /**
@@ -68,7 +108,9 @@ public class SubmissionController {
      */
     @GetMapping("/{submissionId}/pdf")
     public ResponseEntity<?> getSubmissionPdf(@PathVariable Long submissionId,
-                                              @RequestParam(value = "index", required = false) Integer index) {
+                                              @RequestParam(value = "index", required = false) Integer index,
+                                              HttpServletRequest request,
+                                              HttpServletResponse response) throws IOException {
 
         Submission submission = extractSubmission(submissionId);
         
@@ -82,16 +124,18 @@ public class SubmissionController {
         
         SubmissionFile file = submission.getFiles().get(fileIndex);
 
-        byte[] pdfBytes =
-                uploadPdfService.loadPdfBytes(file.getS3Key());
+        // Presigned mode: backend chỉ kiểm tra quyền và trả link, client tải thẳng từ S3
+        if (uploadPdfService.getDownloadMode() != PdfDownloadMode.STREAM) {
+            PresignedUrlDTO link = uploadPdfService.presignedUrl(file);
+            if (uploadPdfService.getDownloadMode() == PdfDownloadMode.REDIRECT) {
+                return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(link.url())).build();
+            }
+            return buildResponse(HttpStatus.OK, "Submission: Lấy link PDF thành công", link);
+        }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .header(
-                        HttpHeaders.CONTENT_DISPOSITION,
-                        "inline; filename=\"" + file.getOriginalFilename() + "\""
-                )
-                .body(new ByteArrayResource(pdfBytes));
+        // Ghi thẳng vào response (hỗ trợ Range), không giữ cả file trên heap
+        uploadPdfService.writePdf(file, request, response);
+        return null;
     }
 
     @Transactional
@@ -122,28 +166,12 @@ public class SubmissionController {
             return buildResponse(HttpStatus.BAD_REQUEST, "Submission: Cần ít nhất một file", null);
         }
 
-        Submission submission = new Submission();
-        submission.setUser(user);
-        submission.setAssignment(assignment);
-        submission.setDescription(request.getDescription());
-        LocalDateTime now = LocalDateTime.now();
-        submission.setSubmissionTime(now);
-        if (now.isAfter(assignment.getAssignmentDue())) {
-            submission.setStatus(SubmissionStatus.LATE);
-        } else {
-            submission.setStatus(SubmissionStatus.SUBMITTED);
-        }
+        Submission submission = submissionUploadService.newSubmission(user, assignment, request.getDescription());
         Submission addedSubmission = submissionRepository.save(submission); // save lần 1 để tạo submission id
 
         // tạo submission files
         try {
-            for (MultipartFile file : files) {
-                if (file != null && !file.isEmpty()) {
-                    String s3Key = SubmissionFile.generateS3Key(submission, file);
-                    SubmissionFile submissionFile = SubmissionFile.buildSubmissionFile(s3Service, s3Key, submission, file);
-                    submission.addFile(submissionFile);
-                }
-            }
+            uploadSubmissionFiles(submission, files);
         } catch (IOException e) {
             return buildResponse(HttpStatus.INTERNAL_SERVER_ERROR,
                     "Submission: Upload file thất bại (S3)", null);
@@ -156,19 +184,130 @@ public class SubmissionController {
 
 
 
+    /**
+     * Bước 1 của upload thẳng lên S3: học sinh xin presigned PUT URL cho các file sẽ nộp.
+     */
+    @PostMapping("/upload-urls")
+    public ResponseEntity<?> presignSubmissionUploads(@PathVariable("course-id") Long courseId,
+                                                      @PathVariable("assignment-id") Long assignmentId,
+                                                      @RequestBody List<UploadRequestDTO> files,
+                                                      Authentication auth) {
+        try {
+            User user = extractStudentFromUserCourse(courseId, auth);
+            Assignment assignment = extractAssignmentFromUserCourse(assignmentId);
+            if (assignment.getCourse() == null || !assignment.getCourse().getId().equals(courseId)) {
+                return buildResponse(HttpStatus.BAD_REQUEST, "Submission: Assignment không thuộc khóa học", null);
+            }
+            List<PresignedUploadDTO> uploads = directUploadService.presignUploads(
+                    SubmissionFile.uploadKeyPrefix(assignmentId, user.getId()), files);
+            return buildResponse(HttpStatus.OK, "Submission: Tạo link upload thành công", uploads);
+        } catch (RuntimeException e) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Submission: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Bước 2 của upload thẳng lên S3: kiểm tra object bằng HEAD rồi lưu SubmissionFile.
+     * Tạo submission mới nếu học sinh chưa nộp, ngược lại thêm file vào submission hiện có (giống edit).
+     */
+    @Transactional
+    @PostMapping("/uploads/complete")
+    public ResponseEntity<?> completeSubmissionUploads(@PathVariable("course-id") Long courseId,
+                                                       @PathVariable("assignment-id") Long assignmentId,
+                                                       @RequestBody SubmissionUploadCompleteDTO request,
+                                                       Authentication auth) {
+        User user;
+        Assignment assignment;
+        List<UploadedObject> uploaded;
+        try {
+            user = extractStudentFromUserCourse(courseId, auth);
+            assignment = extractAssignmentFromUserCourse(assignmentId);
+            if (assignment.getCourse() == null || !assignment.getCourse().getId().equals(courseId)) {
+                return buildResponse(HttpStatus.BAD_REQUEST, "Submission: Assignment không thuộc khóa học", null);
+            }
+            uploaded = directUploadService.verifyUploads(
+                    SubmissionFile.uploadKeyPrefix(assignmentId, user.getId()), request.getFiles());
+        } catch (RuntimeException e) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Submission: " + e.getMessage(), null);
+        }
+
+        return buildResponse(HttpStatus.OK, "Submission: Thành công!",
+                SubmissionMapper.toDTO(submissionUploadService.attachUploads(
+                        user, assignment, request.getDescription(), uploaded)));
+    }
+
+    /**
+     * Upload một file lớn bằng raw body (Content-Type: application/pdf), không qua multipart.
+     * Body được đọc theo từng part và gửi thẳng lên S3 multipart upload, nên không bị giới hạn bởi
+     * spring.servlet.multipart.max-file-size và không spool ra disk. Tạo hoặc thêm vào submission như uploads/complete.
+     */
+    @PutMapping(
+            value = "/stream",
+            consumes = {MediaType.APPLICATION_PDF_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE}
+    )
+    public ResponseEntity<?> streamSubmissionUpload(@PathVariable("course-id") Long courseId,
+                                                    @PathVariable("assignment-id") Long assignmentId,
+                                                    @RequestParam("filename") String filename,
+                                                    @RequestParam(value = "description", required = false) String description,
+                                                    HttpServletRequest request,
+                                                    Authentication auth) {
+        User user;
+        Assignment assignment;
+        try {
+            user = extractStudentFromUserCourse(courseId, auth);
+            assignment = extractAssignmentFromUserCourse(assignmentId);
+        } catch (RuntimeException e) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Submission: " + e.getMessage(), null);
+        }
+        if (assignment.getCourse() == null || !assignment.getCourse().getId().equals(courseId)) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Submission: Assignment không thuộc khóa học", null);
+        }
+        if (filename.isBlank()) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Submission: Thiếu tên file", null);
+        }
+        if (request.getContentLengthLong() > streamingUploadService.getMaxFileBytes()) {
+            return buildResponse(HttpStatus.PAYLOAD_TOO_LARGE, "Submission: File vượt quá kích thước cho phép", null);
+        }
+
+        String s3Key = SubmissionFile.uploadKeyPrefix(assignmentId, user.getId())
+                + UUID.randomUUID() + "-" + filename.replace('/', '_').replace('\\', '_');
+        StreamingUploadService.StreamedUpload streamed;
+        try {
+            streamed = streamingUploadService.upload(s3Key, request.getInputStream(), request.getContentType());
+        } catch (IllegalArgumentException e) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Submission: " + e.getMessage(), null);
+        } catch (IOException e) {
+            return buildResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Submission: Upload file thất bại (S3)", null);
+        }
+
+        // Upload xong mới mở transaction ngắn để lưu metadata
+        UploadedObject uploaded = new UploadedObject(s3Key, filename, request.getContentType(), streamed.size());
+        Submission submission;
+        try {
+            submission = submissionUploadService.attachUploads(user, assignment, description, List.of(uploaded));
+        } catch (RuntimeException e) {
+            // Object đã lên S3 nhưng không có dòng nào trỏ tới: đưa vào outbox để worker xóa
+            log.warn("Không lưu được file {} vào submission, xóa object", s3Key, e);
+            s3DeletionService.enqueue(List.of(s3Key));
+            return buildResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Submission: Lưu file thất bại", null);
+        }
+        return buildResponse(HttpStatus.OK, "Submission: Thành công!", SubmissionMapper.toDTO(submission));
+    }
+
     @Transactional
     @DeleteMapping("/{submission-id}/delete")
     public ResponseEntity<?> deleteSubmission(@PathVariable("submission-id") Long submissionId,
                                               Authentication auth) {
         Submission submission;
         try {
-            submission = extractSubmission(submissionId);
+            submission = extractSubmissionForUpdate(submissionId);
             authorizeUser(auth, submission);
         } catch (RuntimeException e) {
             return buildResponse(HttpStatus.BAD_REQUEST, "Delete Submission: " + e.getMessage(), null);
         }
 
-        submission.getFiles().forEach(file -> uploadPdfService.deleteFile(file.getS3Key()));
+        s3DeletionService.enqueue(submission.getFiles().stream().map(SubmissionFile::getS3Key).toList());
+        gradebookService.onSubmissionDeleted(submission);
         submissionRepository.delete(submission);
         return buildResponse(HttpStatus.OK, "Delete Submission: Xóa submission thành công",
                 SubmissionMapper.toDTO(submission));
@@ -180,13 +319,14 @@ public class SubmissionController {
 //        return null; // TODO: Làm sau
 //    }
 
+    @Transactional
     @PutMapping("/{submission-id}/grade")
     public ResponseEntity<?> gradeSubmission(@PathVariable("submission-id") Long submissionId,
                                              @RequestParam("grade") Double grade, Authentication auth) {
 
         Submission submission;
         try {
-            submission = extractSubmission(submissionId);
+            submission = extractSubmissionForUpdate(submissionId);
         } catch (RuntimeException e) {
             return buildResponse(HttpStatus.BAD_REQUEST, "Grade Submission: " + e.getMessage(), null);
         }
@@ -194,21 +334,57 @@ public class SubmissionController {
         UserDetails userDetails = (UserDetails) auth.getPrincipal();
         String username = userDetails.getUsername();
         Course course = submission.getAssignment().getCourse();
-        UserCourse userCourse = userCourseRepository
-                .findByUser_UsernameAndCourse_Id(username, course.getId())
-                .orElse(null);
 
         // Only tutors can grade submissions
-        boolean isTutor = userCourse != null && userCourse.getRole().equals(CourseRole.TUTOR);
+        boolean isTutor = courseMembershipService.isTutor(username, course.getId());
         if (!isTutor) {
             return buildResponse(HttpStatus.FORBIDDEN, "Grade Submission: Bạn không có quyền chấm submission này", null);
         }
 
+        Double previousGrade = submission.getGrade();
         submission.setGrade(grade);
         submissionRepository.save(submission);
+        gradebookService.onGradeChanged(submission, previousGrade);
         return buildResponse(HttpStatus.OK, "Grade Submission: Chấm điểm thành công", SubmissionMapper.toDTO(submission));
     }
 
+    /**
+     * Chấm nhiều submission của assignment trong một request: kiểm tra quyền tutor một lần,
+     * trả kết quả cho từng phần tử (cùng thứ tự với request).
+     */
+    @PutMapping("/grades")
+    public ResponseEntity<?> gradeSubmissions(@PathVariable("course-id") Long courseId,
+                                              @PathVariable("assignment-id") Long assignmentId,
+                                              @RequestBody List<BulkGradeItemDTO> items,
+                                              Authentication auth) {
+        if (items == null || items.isEmpty()) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Bulk Grade: Cần ít nhất một submission", null);
+        }
+        if (items.size() > bulkGradeMaxItems) {
+            return buildResponse(HttpStatus.BAD_REQUEST,
+                    "Bulk Grade: Tối đa " + bulkGradeMaxItems + " submission mỗi request", null);
+        }
+        Assignment assignment;
+        try {
+            assignment = extractAssignmentFromUserCourse(assignmentId);
+        } catch (RuntimeException e) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Bulk Grade: " + e.getMessage(), null);
+        }
+        if (assignment.getCourse() == null || !assignment.getCourse().getId().equals(courseId)) {
+            return buildResponse(HttpStatus.BAD_REQUEST, "Bulk Grade: Assignment không thuộc khóa học", null);
+        }
+
+        UserDetails userDetails = (UserDetails) auth.getPrincipal();
+        if (!courseMembershipService.isTutor(userDetails.getUsername(), courseId)) {
+            return buildResponse(HttpStatus.FORBIDDEN, "Bulk Grade: Bạn không có quyền chấm submission này", null);
+        }
+
+        List<BulkGradeResultDTO> results = bulkGradingService.grade(assignment, items);
+        long graded = results.stream().filter(result -> result.status() == BulkGradeStatus.GRADED).count();
+        return buildResponse(HttpStatus.OK,
+                "Bulk Grade: Chấm điểm thành công " + graded + "/" + results.size() + " submission", results);
+    }
+
     @Transactional
     @PutMapping(
             value = "/{submission-id}/edit",
@@ -234,13 +410,7 @@ public class SubmissionController {
         }
         // Storing logic
         try {
-            for (MultipartFile file : files) {
-                if (file != null && !file.isEmpty()) {
-                    String s3Key = SubmissionFile.generateS3Key(submission, file);
-                    SubmissionFile submissionFile = SubmissionFile.buildSubmissionFile(s3Service, s3Key, submission, file);
-                    submission.addFile(submissionFile);
-                }
-            }
+            uploadSubmissionFiles(submission, files);
         } catch (IOException e) {
             return buildResponse(HttpStatus.BAD_REQUEST,
                     "Edit Submission: Không upload được lên s3 - " + e.getMessage(), null);
@@ -249,14 +419,22 @@ public class SubmissionController {
                 SubmissionMapper.toDTO(submissionRepository.save(submission)));
     }
 
+    // Upload các file song song, sau đó thêm vào submission theo đúng thứ tự trong request
+    private void uploadSubmissionFiles(Submission submission, List<MultipartFile> files) throws IOException {
+        List<MultipartFile> nonEmpty = files.stream().filter(file -> file != null && !file.isEmpty()).toList();
+        List<String> keys = nonEmpty.stream().map(file -> SubmissionFile.generateS3Key(submission, file)).toList();
+        List<String> storedKeys = parallelUploadService.uploadAll(keys, nonEmpty);
+        for (int i = 0; i < nonEmpty.size(); i++) {
+            submission.addFile(SubmissionFile.fromUpload(submission, UploadedObject.of(storedKeys.get(i), nonEmpty.get(i))));
+        }
+    }
+
     private User extractStudentFromUserCourse(Long courseId, Authentication auth) {
         UserDetails userDetails = (UserDetails) auth.getPrincipal();
-        Optional<UserCourse> userCourseOptional = userCourseRepository
-                .findByUser_UsernameAndCourse_Id(userDetails.getUsername(), courseId);
-        if (userCourseOptional.isEmpty())
+        User user = courseMembershipService.findMemberUser(userDetails.getUsername(), courseId);
+        if (user == null)
             throw new RuntimeException("Không phải học sinh khóa học");
-        UserCourse userCourse = userCourseOptional.get();
-        return userCourse.getUser();
+        return user;
     }
 
     private Assignment extractAssignmentFromUserCourse(Long assignmentId) {
@@ -284,6 +462,12 @@ public class SubmissionController {
         return submissionOptional.get();
     }
 
+    // Như extractSubmission nhưng khóa dòng tới hết transaction, dùng khi cần điểm hiện tại để cập nhật gradebook
+    private Submission extractSubmissionForUpdate(Long submissionId) throws RuntimeException {
+        return submissionRepository.findByIdForUpdate(submissionId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy submission phù hợp"));
+    }
+
     // Tutor là người submit, hoặc là admin hoặc là tutor
     private void authorizeUser(Authentication auth, Submission submission) {
         UserDetails userDetails = (UserDetails) auth.getPrincipal();
@@ -294,10 +478,7 @@ public class SubmissionController {
 
         // Check if user is a tutor in the course
         Course course = submission.getAssignment().getCourse();
-        UserCourse userCourse = userCourseRepository
-                .findByUser_UsernameAndCourse_Id(username, course.getId())
-                .orElse(null);
-        boolean isTutor = userCourse != null && userCourse.getRole().equals(CourseRole.TUTOR);
+        boolean isTutor = courseMembershipService.isTutor(username, course.getId());
 
         // Allow access if user is owner OR tutor
         if (!isOwner && !isTutor) {
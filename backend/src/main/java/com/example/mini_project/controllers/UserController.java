@@ -1,12 +1,16 @@
 package com.example.mini_project.controllers;
 
+import com.example.mini_project.entities.PageResponseDTO;
 import com.example.mini_project.entities.ResponseDTO;
 import com.example.mini_project.entities.user.User;
 import com.example.mini_project.entities.user.UserDTO;
 import com.example.mini_project.entities.user.UserDTOMapper;
 import com.example.mini_project.repositories.UserRepository;
+import com.example.mini_project.service.CourseMembershipService;
+import com.example.mini_project.service.CustomUserDetailService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,8 +25,8 @@ import org.springframework.web.bind.annotation.*;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 @Slf4j
 @RestController
@@ -30,10 +34,16 @@ import java.util.stream.StreamSupport;
 public class UserController {
     private final UserRepository userRepository;
     private final PasswordEncoder encoder;
+    private final CustomUserDetailService userDetailService;
+    private final CourseMembershipService courseMembershipService;
 
-    public UserController(UserRepository userRepository, PasswordEncoder encoder) {
+    public UserController(UserRepository userRepository, PasswordEncoder encoder,
+                          CustomUserDetailService userDetailService,
+                          CourseMembershipService courseMembershipService) {
         this.userRepository = userRepository;
         this.encoder = encoder;
+        this.userDetailService = userDetailService;
+        this.courseMembershipService = courseMembershipService;
     }
 
     public static <T> ResponseEntity<ResponseDTO<T>> buildResponse(HttpStatus status, String message, T data) {
@@ -41,10 +51,15 @@ public class UserController {
     }
 
     @GetMapping()
-    public ResponseEntity getUsers() {
-        Iterable<User> users = userRepository.findAll();
-        List<UserDTO> result = StreamSupport.stream(users.spliterator(), false).map(UserDTOMapper::toDTO).toList();
-        return buildResponse(HttpStatus.OK, "Lấy dữ liệu thành công", result);
+    public ResponseEntity getUsers(@RequestParam(value = "limit", defaultValue = "50") int limit,
+                                   @RequestParam(value = "cursor", required = false) String cursor) {
+        int pageSize = PageResponseDTO.clampLimit(limit);
+        List<UserDTO> users = userRepository.findDTOPage(
+                PageResponseDTO.decodeCursor(cursor), Limit.of(pageSize + 1));
+        PageResponseDTO<UserDTO> page = PageResponseDTO.of("Lấy dữ liệu thành công", users, pageSize,
+                UserDTO::getId, Function.identity());
+        userRepository.withRolesAndCourses(page.getData());
+        return ResponseEntity.ok(page);
     }
 
     @GetMapping("/search")
@@ -62,8 +77,8 @@ public class UserController {
             begin = LocalDate.now().minusYears(age + 1).plusDays(1);
             end = LocalDate.now().minusYears(age);
         }
-        List<UserDTO> result = userRepository.searchByCustom(firstname, lastname, address, phoneNum, cityname, begin, end)
-                .stream().map(UserDTOMapper::toDTO).toList();
+        List<UserDTO> result = userRepository.withRolesAndCourses(
+                userRepository.searchByCustom(firstname, lastname, address, phoneNum, cityname, begin, end));
         return buildResponse(HttpStatus.OK, "Tìm kiếm thành công!", result);
     }
 
@@ -113,6 +128,7 @@ public class UserController {
             updatedUser.setPassword(encoder.encode(user.getPassword()));
         }
         userRepository.save(updatedUser);
+        userDetailService.evictPrincipal(username);
         return buildResponse(HttpStatus.OK, "Thay đổi thông tin thành công!", UserDTOMapper.toDTO(updatedUser));
     }
 
@@ -178,7 +194,9 @@ public class UserController {
         if (containAdmin) {
             return buildResponse(HttpStatus.BAD_REQUEST, "Không thể xóa admin role", null);
         }
+        courseMembershipService.evictAll(user.getCourses());
         userRepository.delete(user);
+        userDetailService.evictPrincipal(username);
         return buildResponse(HttpStatus.OK, "Xóa thành công user", UserDTOMapper.toDTO(user));
     }
 }
\ No newline at end of file
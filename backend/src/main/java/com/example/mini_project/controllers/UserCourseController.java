@@ -3,7 +3,6 @@ package com.example.mini_project.controllers;
 import com.example.mini_project.entities.ResponseDTO;
 import com.example.mini_project.entities.course.Course;
 import com.example.mini_project.entities.course.CourseResponseDTO;
-import com.example.mini_project.entities.course.CourseResponseDTOMapper;
 import com.example.mini_project.entities.course.CourseRole;
 import com.example.mini_project.entities.user.User;
 import com.example.mini_project.entities.usercourse.CourseEnrollRequest;
@@ -14,6 +13,11 @@ import com.example.mini_project.exception.UserNotFoundException;
 import com.example.mini_project.repositories.CourseRepository;
 import com.example.mini_project.repositories.UserCourseRepository;
 import com.example.mini_project.repositories.UserRepository;
+import com.example.mini_project.service.CourseMembershipService;
+import com.example.mini_project.service.GradebookService;
+import com.example.mini_project.service.RosterImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -23,6 +27,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -37,13 +45,21 @@ public class UserCourseController {
     private final UserRepository userRepository;
     private final CourseRepository courseRepository;
     private final PasswordEncoder encoder;
+    private final CourseMembershipService courseMembershipService;
+    private final GradebookService gradebookService;
+    private final RosterImportService rosterImportService;
 
     public UserCourseController(UserCourseRepository userCourseRepository, UserRepository userRepository,
-                                CourseRepository courseRepository, PasswordEncoder encoder) {
+                                CourseRepository courseRepository, PasswordEncoder encoder,
+                                CourseMembershipService courseMembershipService, GradebookService gradebookService,
+                                RosterImportService rosterImportService) {
         this.userCourseRepository = userCourseRepository;
         this.userRepository = userRepository;
         this.courseRepository = courseRepository;
         this.encoder = encoder;
+        this.courseMembershipService = courseMembershipService;
+        this.gradebookService = gradebookService;
+        this.rosterImportService = rosterImportService;
     }
     // // Helper methods
 
@@ -80,20 +96,45 @@ public class UserCourseController {
             return buildResponse(HttpStatus.FORBIDDEN, "Enroll: User đã ở trong course!", null);
         }
         // Bước 4: Bắt user nhập mật khẩu của course nếu course là private
-        boolean verified = !course.getIsPrivate().equals(Boolean.TRUE);
-        if (encoder.matches(req.password(), course.getPassword())) {
-            verified = true;
-        }
+        // Course public thì không cần chạy BCrypt
+        boolean verified = !course.getIsPrivate().equals(Boolean.TRUE)
+                || (req != null && req.password() != null && encoder.matches(req.password(), course.getPassword()));
         if (!verified) {
             return buildResponse(HttpStatus.BAD_REQUEST, "Enroll: Sai mật khẩu của khóa học, vui lòng nhập lại", null);
         }
         // Mặc định sẽ là Role STUDENT
         UserCourse userCourse = new UserCourse(null, user, course, LocalDate.now(), CourseRole.STUDENT);
+        // Có thể đã có bài được chấm nếu user từng rút khỏi course rồi đăng ký lại
+        userCourse.setWeightedScore(gradebookService.initialTotal(user.getId(), course.getId()));
 
         course.addStudent(userCourse);
+        courseMembershipService.evict(user.getUsername(), course.getId());
         return buildResponse(HttpStatus.OK, "Enroll: Đăng ký khóa học thành công", UserCourseDTOMapping.toDTO(userCourse));
     }
 
+    /**
+     * Người tạo course import danh sách học sinh từ CSV (body text/csv, cột đầu là username, header tùy chọn).
+     * Body được đọc dần theo chunk; response là NDJSON gồm lỗi từng dòng, tiến độ sau mỗi chunk và tổng kết.
+     */
+    @PostMapping(value = "/import/{course-id}", consumes = {"text/csv", "text/plain"})
+    public ResponseEntity importRoster(@PathVariable("course-id") Long courseId, Authentication auth,
+                                       HttpServletRequest request, HttpServletResponse response)
+            throws UserNotFoundException, CourseNotFoundException, IOException {
+        User owner = getUserFromAuth(auth, "Import Roster", this.userRepository);
+        Course course = getCourseFromHttp(courseId, "Import Roster", this.courseRepository);
+        if (!course.getCreatedBy().getId().equals(owner.getId())) {
+            return buildResponse(HttpStatus.FORBIDDEN,
+                    "Import Roster: Chỉ người tạo khóa học mới có thể import danh sách học sinh", null);
+        }
+
+        Charset charset = request.getCharacterEncoding() == null
+                ? StandardCharsets.UTF_8 : Charset.forName(request.getCharacterEncoding());
+        response.setContentType("application/x-ndjson");
+        rosterImportService.importRoster(course.getId(),
+                new InputStreamReader(request.getInputStream(), charset), response.getOutputStream());
+        return null;
+    }
+
     @DeleteMapping("/withdraw/{course-id}")
     @Transactional
     public ResponseEntity<String> withdrawUserFromCourse(@PathVariable("course-id") Long courseId, Authentication auth)
@@ -110,6 +151,7 @@ public class UserCourseController {
         }
         // userCourseRepository.deleteById(userCourseId);
         course.removeStudent(userCourseOptional.get());
+        courseMembershipService.evict(user.getUsername(), course.getId());
         return ResponseEntity.ok("Withdraw: Rút khỏi khóa học thành công");
     }
 
@@ -142,6 +184,7 @@ public class UserCourseController {
         }
         // Bước 5: Update
         targetUserCourse.setRole(CourseRole.TUTOR);
+        courseMembershipService.evict(targetUserCourse.getUser().getUsername(), course.getId());
         // userCourseRepository.save(userCourse); Khong can phai lam v trong nhung method nao duoc goi la Transactional
         return buildResponse(HttpStatus.OK,
                 "Promote Tutor: Thăng cấp người dùng thành tutor thành công", UserCourseDTOMapping.toDTO(targetUserCourse));
@@ -171,6 +214,7 @@ public class UserCourseController {
                     "Demote Tutor: Người dùng đã là student", targetUserCourse);
 
         targetUserCourse.setRole(CourseRole.STUDENT);
+        courseMembershipService.evict(targetUserCourse.getUser().getUsername(), course.getId());
         // userCourseRepository.save(userCourse); Khong can phai lam v trong nhung method nao duoc goi la Transactional
         return buildResponse(HttpStatus.OK,
                 "Demote Tutor: Hạ cấp người dùng thành student thành công", UserCourseDTOMapping.toDTO(targetUserCourse));
@@ -191,6 +235,7 @@ public class UserCourseController {
                     "Remove All Students: Chỉ người tạo khóa học mới có thể xóa tất cả sinh viên", null);
         }
 
+        courseMembershipService.evictAll(course.getStudents());
         course.getStudents().clear();
         return buildResponse(HttpStatus.OK,
                 "Remove All Students: Xóa tất cả sinh viên khỏi khóa học thành công", null);
@@ -208,6 +253,7 @@ public class UserCourseController {
                     "Remove All Courses: Chỉ người dùng hiện tại mới có thể xóa tất cả khóa học của họ", null);
         }
         // userCourseRepository.deleteAllByUser_Id(userId);
+        courseMembershipService.evictAll(user.getCourses());
         user.getCourses().clear();
         return buildResponse(HttpStatus.OK,
                 "Remove All Courses: Xóa tất cả khóa học của người dùng thành công", null);
@@ -217,9 +263,7 @@ public class UserCourseController {
     public ResponseEntity getUserEnrolledCourses(Authentication auth) throws UserNotFoundException {
         User user = getUserFromAuth(auth, "Get All Courses", this.userRepository);
 
-        List<UserCourse> userCourseList = userCourseRepository.findAllByUser_Id(user.getId());
-        List<CourseResponseDTO> courseList = userCourseList.stream().map(
-                userCourse -> CourseResponseDTOMapper.toDTO(userCourse.getCourse())).toList();
+        List<CourseResponseDTO> courseList = userCourseRepository.findEnrolledCourseDTOs(user.getId());
         return buildResponse(HttpStatus.OK, "Get all courses: thành công", courseList);
     }
 
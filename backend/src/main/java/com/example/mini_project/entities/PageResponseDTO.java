@@ -0,0 +1,79 @@
+package com.example.mini_project.entities;
+
+import com.example.mini_project.exception.InvalidCursorException;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Response cho các list endpoint phân trang kiểu keyset theo id: data vẫn là một list như ResponseDTO,
+ * next là cursor (opaque) để lấy trang tiếp theo, null khi đã hết dữ liệu.
+ * Repository lấy limit + 1 dòng có id > cursor, dòng dư chỉ dùng để biết còn trang sau (không cần count(*) hay OFFSET).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class PageResponseDTO<T> extends ResponseDTO<List<T>> {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private String next;
+
+    public PageResponseDTO(String message, List<T> data, String next) {
+        super(message, data);
+        this.next = next;
+    }
+
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Id cuối cùng của trang trước, 0 nếu chưa có cursor (trang đầu).
+     */
+    public static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return 0;
+        long value;
+        try {
+            value = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Cursor không hợp lệ");
+        }
+        // Cursor do server tạo không bao giờ âm; giá trị âm sẽ làm OFFSET của search lỗi 500
+        if (value < 0) throw new InvalidCursorException("Cursor không hợp lệ");
+        return value;
+    }
+
+    public static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param rows kết quả query với limit + 1 dòng, sắp xếp theo id tăng dần
+     */
+    public static <E, T> PageResponseDTO<T> of(String message, List<E> rows, int limit,
+                                               Function<E, Long> idOf, Function<E, T> mapper) {
+        boolean hasNext = rows.size() > limit;
+        List<E> page = hasNext ? rows.subList(0, limit) : rows;
+        String next = hasNext ? encodeCursor(idOf.apply(page.get(page.size() - 1))) : null;
+        return new PageResponseDTO<>(message, page.stream().map(mapper).toList(), next);
+    }
+
+    /**
+     * Cho kết quả không sắp theo id (vd. search có xếp hạng): cursor là số dòng đã trả về.
+     *
+     * @param rows   kết quả query với limit + 1 dòng, bắt đầu từ offset
+     * @param offset giá trị decodeCursor của request hiện tại
+     */
+    public static <T> PageResponseDTO<T> ofOffset(String message, List<T> rows, int limit, long offset) {
+        boolean hasNext = rows.size() > limit;
+        List<T> page = hasNext ? rows.subList(0, limit) : rows;
+        return new PageResponseDTO<>(message, page, hasNext ? encodeCursor(offset + limit) : null);
+    }
+}
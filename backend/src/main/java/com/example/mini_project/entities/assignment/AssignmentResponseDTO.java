@@ -6,6 +6,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.LocalDateTime;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,6 +19,13 @@ public class AssignmentResponseDTO {
     private Double assignmentWeight;
     private String courseCode;
     private String createdBy;
+
+    // Constructor expression trong JPQL (AssignmentRepository)
+    public AssignmentResponseDTO(Long id, String assignmentName, LocalDateTime assignmentDue,
+                                 Double assignmentWeight, String courseCode, String createdBy) {
+        this(id, assignmentName, assignmentDue == null ? null : assignmentDue.toString(),
+                assignmentWeight, courseCode, createdBy);
+    }
 }
 
 
@@ -5,6 +5,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.LocalDate;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,4 +19,11 @@ public class CourseResponseDTO {
     private Boolean isPrivate;
     private String createdBy;
     private String courseDescription;
+
+    // Constructor expression trong JPQL (CourseRepository, UserCourseRepository)
+    public CourseResponseDTO(Long id, String courseCode, String courseName, LocalDate endDate,
+                             Boolean isPrivate, String createdBy, String courseDescription) {
+        this(id, courseCode, courseName, endDate == null ? null : endDate.toString(),
+                isPrivate, createdBy, courseDescription);
+    }
 }
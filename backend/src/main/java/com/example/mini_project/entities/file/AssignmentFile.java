@@ -1,7 +1,6 @@
 package com.example.mini_project.entities.file;
 
 import com.example.mini_project.entities.assignment.Assignment;
-import com.example.mini_project.service.S3Service;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -9,7 +8,6 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -18,6 +16,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = @Index(columnList = "s3Key"))
 public class AssignmentFile implements StoredFile {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -51,22 +50,18 @@ public class AssignmentFile implements StoredFile {
         );
     }
 
-    public static AssignmentFile build(S3Service s3Service, String s3Key,
-                                       Assignment assignment, MultipartFile file) throws IOException {
-
-        s3Service.uploadFile(
-                s3Key,
-                file.getInputStream(),
-                file.getSize(),
-                file.getContentType()
-        );
+    // Prefix cho key của file upload thẳng lên S3 bằng presigned URL
+    public static String uploadKeyPrefix(Assignment assignment) {
+        return String.format("assignments/assignment-%d/uploads/", assignment.getId());
+    }
 
+    public static AssignmentFile fromUpload(Assignment assignment, UploadedObject uploaded) {
         AssignmentFile assignmentFile = new AssignmentFile();
         assignmentFile.setAssignment(assignment);
-        assignmentFile.setS3Key(s3Key);
-        assignmentFile.setOriginalFilename(file.getOriginalFilename());
-        assignmentFile.setContentType(file.getContentType());
-        assignmentFile.setFileSize(file.getSize());
+        assignmentFile.setS3Key(uploaded.s3Key());
+        assignmentFile.setOriginalFilename(uploaded.originalFilename());
+        assignmentFile.setContentType(uploaded.contentType());
+        assignmentFile.setFileSize(uploaded.fileSize());
         assignmentFile.setUploadedAt(LocalDateTime.now());
         return assignmentFile;
     }
@@ -0,0 +1,24 @@
+package com.example.mini_project.entities.file;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Số tham chiếu của một blob content-addressed (blobs/sha256/{hash}): số SubmissionFile/AssignmentFile đang trỏ tới.
+ * Được tăng/giảm trong cùng transaction với việc thêm/xóa dòng file, dưới khóa dòng (xem ContentAddressedStorage).
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "blobs")
+public class ContentBlob {
+    @Id
+    @Column(length = 128)
+    private String s3Key;
+
+    @Column(nullable = false)
+    private int refcount;
+}
@@ -0,0 +1,7 @@
+package com.example.mini_project.entities.file;
+
+import java.time.Instant;
+
+// Client PUT file lên url với đúng Content-Type và Content-Length đã khai báo, sau đó gửi lại s3Key
+public record PresignedUploadDTO(String s3Key, String url, String contentType, Instant expiresAt) {
+}
@@ -0,0 +1,6 @@
+package com.example.mini_project.entities.file;
+
+import java.time.Instant;
+
+public record PresignedUrlDTO(String url, Instant expiresAt) {
+}
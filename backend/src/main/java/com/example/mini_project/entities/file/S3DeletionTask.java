@@ -0,0 +1,51 @@
+package com.example.mini_project.entities.file;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox cho việc xóa object trên S3: được ghi cùng transaction với việc xóa entity,
+ * sau đó S3DeletionWorker xóa theo batch (DeleteObjects) và retry khi lỗi.
+ * Key của presigned upload được ghi trước với nextAttemptAt ở tương lai và bị bỏ khi upload complete.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "s3_deletion_outbox", indexes = {@Index(columnList = "nextAttemptAt"), @Index(columnList = "s3Key")})
+public class S3DeletionTask {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 1024)
+    private String s3Key;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(length = 1024)
+    private String lastError;
+
+    public static S3DeletionTask of(String s3Key) {
+        return of(s3Key, LocalDateTime.now());
+    }
+
+    public static S3DeletionTask of(String s3Key, LocalDateTime nextAttemptAt) {
+        S3DeletionTask task = new S3DeletionTask();
+        task.setS3Key(s3Key);
+        task.setCreatedAt(LocalDateTime.now());
+        task.setNextAttemptAt(nextAttemptAt);
+        return task;
+    }
+}
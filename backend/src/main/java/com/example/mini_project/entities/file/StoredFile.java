@@ -3,6 +3,14 @@ package com.example.mini_project.entities.file;
 import java.time.LocalDateTime;
 
 public interface StoredFile {
+    String getS3Key();
+
+    String getOriginalFilename();
+
+    Long getFileSize();
+
+    LocalDateTime getUploadedAt();
+
     void setS3Key(String s3Key);
 
     void setOriginalFilename(String filename);
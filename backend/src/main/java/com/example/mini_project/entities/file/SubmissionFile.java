@@ -2,13 +2,11 @@ package com.example.mini_project.entities.file;
 
 
 import com.example.mini_project.entities.submission.Submission;
-import com.example.mini_project.service.S3Service;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -19,6 +17,7 @@ import java.util.UUID;
 @Setter
 @Getter
 @Entity
+@Table(indexes = @Index(columnList = "s3Key"))
 public class SubmissionFile implements StoredFile {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -54,22 +53,18 @@ public class SubmissionFile implements StoredFile {
         );
     }
 
-    public static SubmissionFile buildSubmissionFile(S3Service s3Service, String s3Key,
-                                                     Submission submission, MultipartFile file) throws IOException {
-
-        s3Service.uploadFile(
-                s3Key,
-                file.getInputStream(),
-                file.getSize(),
-                file.getContentType()
-        );
+    // Prefix cho key của file upload thẳng lên S3 bằng presigned URL, trước khi có submission id
+    public static String uploadKeyPrefix(Long assignmentId, Long userId) {
+        return String.format("submissions/assignment-%d/user-%d/uploads/", assignmentId, userId);
+    }
 
+    public static SubmissionFile fromUpload(Submission submission, UploadedObject uploaded) {
         SubmissionFile submissionFile = new SubmissionFile();
         submissionFile.setSubmission(submission);
-        submissionFile.setS3Key(s3Key);
-        submissionFile.setOriginalFilename(file.getOriginalFilename());
-        submissionFile.setContentType(file.getContentType());
-        submissionFile.setFileSize(file.getSize());
+        submissionFile.setS3Key(uploaded.s3Key());
+        submissionFile.setOriginalFilename(uploaded.originalFilename());
+        submissionFile.setContentType(uploaded.contentType());
+        submissionFile.setFileSize(uploaded.fileSize());
         submissionFile.setUploadedAt(LocalDateTime.now());
         return submissionFile;
     }
@@ -0,0 +1,5 @@
+package com.example.mini_project.entities.file;
+
+// Client khai báo file sắp upload thẳng lên S3
+public record UploadRequestDTO(String filename, String contentType, Long fileSize) {
+}
@@ -0,0 +1,5 @@
+package com.example.mini_project.entities.file;
+
+// File client đã upload xong lên S3, gửi kèm trong request complete
+public record UploadedFileDTO(String s3Key, String filename) {
+}
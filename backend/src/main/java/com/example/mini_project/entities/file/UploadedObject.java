@@ -0,0 +1,11 @@
+package com.example.mini_project.entities.file;
+
+import org.springframework.web.multipart.MultipartFile;
+
+// Metadata của object đã lên S3 (xác nhận bằng HEAD, hoặc vừa upload từ multipart)
+public record UploadedObject(String s3Key, String originalFilename, String contentType, Long fileSize) {
+
+    public static UploadedObject of(String s3Key, MultipartFile file) {
+        return new UploadedObject(s3Key, file.getOriginalFilename(), file.getContentType(), file.getSize());
+    }
+}
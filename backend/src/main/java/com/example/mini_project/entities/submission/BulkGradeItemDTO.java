@@ -0,0 +1,9 @@
+package com.example.mini_project.entities.submission;
+
+import lombok.Data;
+
+@Data
+public class BulkGradeItemDTO {
+    private Long submissionId;
+    private Double grade;
+}
@@ -0,0 +1,5 @@
+package com.example.mini_project.entities.submission;
+
+// Kết quả chấm của từng phần tử trong request chấm điểm hàng loạt, cùng thứ tự với request
+public record BulkGradeResultDTO(Long submissionId, Double grade, BulkGradeStatus status) {
+}
@@ -0,0 +1,11 @@
+package com.example.mini_project.entities.submission;
+
+public enum BulkGradeStatus {
+    GRADED,
+    // Không có submission với id này trong assignment
+    NOT_FOUND,
+    // Điểm null, âm hoặc không phải số hữu hạn
+    INVALID_GRADE,
+    // submissionId lặp lại trong cùng request, chỉ lần đầu được xử lý
+    DUPLICATE
+}
@@ -0,0 +1,12 @@
+package com.example.mini_project.entities.submission;
+
+import com.example.mini_project.entities.file.UploadedFileDTO;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SubmissionUploadCompleteDTO {
+    String description;
+    List<UploadedFileDTO> files;
+}
@@ -1,13 +1,32 @@
 package com.example.mini_project.entities.user;
 
+import com.example.mini_project.entities.course.CourseRole;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.LocalDate;
+
 @Getter
 @Setter
+@NoArgsConstructor
 public class EnrolledCourseDTO {
+    // Chỉ dùng để gom kết quả query theo user, không trả về client
+    @JsonIgnore
+    private Long userId;
     private String courseCode;
     private String courseName;
     private String courseRole;
     private String enrolledDate;
+
+    // Constructor expression trong JPQL (UserRepository.findEnrolledCourses)
+    public EnrolledCourseDTO(Long userId, String courseCode, String courseName, CourseRole courseRole,
+                             LocalDate enrolledDate) {
+        this.userId = userId;
+        this.courseCode = courseCode;
+        this.courseName = courseName;
+        this.courseRole = courseRole == null ? null : courseRole.name();
+        this.enrolledDate = enrolledDate == null ? null : enrolledDate.toString();
+    }
 }
\ No newline at end of file
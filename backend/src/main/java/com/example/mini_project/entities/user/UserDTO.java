@@ -13,6 +13,7 @@ import java.util.Set;
 @AllArgsConstructor
 @NoArgsConstructor
 public class UserDTO {
+    private Long id;
     private String username;
     private String firstname;
     private String lastname;
@@ -20,6 +21,11 @@ public class UserDTO {
     private String address;
     private Set<String> role;
     private List<EnrolledCourseDTO> courses;
+
+    // Constructor expression trong JPQL, role và courses được UserRepository điền sau bằng query theo lô
+    public UserDTO(Long id, String username, String firstname, String lastname, String phone, String address) {
+        this(id, username, firstname, lastname, phone, address, null, null);
+    }
 }
 
 
@@ -6,6 +6,7 @@ import java.util.stream.Collectors;
 public class UserDTOMapper {
     public static UserDTO toDTO(User user) {
         UserDTO dto = new UserDTO();
+        dto.setId(user.getId());
         dto.setUsername(user.getUsername());
         dto.setFirstname(user.getFirstname());
         dto.setLastname(user.getLastname());
@@ -0,0 +1,5 @@
+package com.example.mini_project.entities.user;
+
+// Một dòng của user_roles, dùng khi lấy role của cả trang user trong một query
+public record UserRoleRow(Long userId, String role) {
+}
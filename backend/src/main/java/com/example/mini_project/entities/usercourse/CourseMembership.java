@@ -0,0 +1,12 @@
+package com.example.mini_project.entities.usercourse;
+
+import com.example.mini_project.entities.course.CourseRole;
+
+/**
+ * Quan hệ user - course tối giản để cache cho các bước phân quyền (tutor/student).
+ */
+public record CourseMembership(Long userId, CourseRole role) {
+    public boolean isTutor() {
+        return role == CourseRole.TUTOR;
+    }
+}
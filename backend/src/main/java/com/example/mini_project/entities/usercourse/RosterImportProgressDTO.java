@@ -0,0 +1,5 @@
+package com.example.mini_project.entities.usercourse;
+
+// Tiến độ import danh sách học sinh: type = "progress" sau mỗi chunk, "done" khi kết thúc
+public record RosterImportProgressDTO(String type, long processed, long enrolled, long skipped, long failed) {
+}
@@ -0,0 +1,8 @@
+package com.example.mini_project.entities.usercourse;
+
+// Dòng CSV không import được (line tính từ 1, kể cả dòng header)
+public record RosterRowErrorDTO(String type, long line, String username, String message) {
+    public RosterRowErrorDTO(long line, String username, String message) {
+        this("error", line, username, message);
+    }
+}
@@ -3,6 +3,7 @@ package com.example.mini_project.entities.usercourse;
 import com.example.mini_project.entities.user.User;
 import com.example.mini_project.entities.course.Course;
 import com.example.mini_project.entities.course.CourseRole;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 import java.time.LocalDate;
@@ -43,5 +44,15 @@ public class UserCourse {
     @Column(name="role")
     @Enumerated(EnumType.STRING)
     private CourseRole role;
+
+    // Tổng điểm đã nhân trọng số của user trong course, do GradebookService cộng dồn bằng UPDATE.
+    // updatable = false: flush entity không ghi đè giá trị (có thể đã cũ) đang nằm trong persistence context
+    @JsonIgnore
+    @Column(name = "weighted_score", nullable = false, updatable = false)
+    private double weightedScore;
+
+    public UserCourse(Long id, User user, Course course, LocalDate enrolledDate, CourseRole role) {
+        this(id, user, course, enrolledDate, role, 0);
+    }
 }
 
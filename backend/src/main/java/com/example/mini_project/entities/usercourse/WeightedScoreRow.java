@@ -0,0 +1,5 @@
+package com.example.mini_project.entities.usercourse;
+
+// Tổng điểm có trọng số của một user trong một course (giá trị đang lưu hoặc tính lại từ submission)
+public record WeightedScoreRow(Long userId, Double weightedScore) {
+}
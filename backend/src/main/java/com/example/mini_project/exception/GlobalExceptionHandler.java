@@ -2,6 +2,7 @@ package com.example.mini_project.exception;
 
 import com.example.mini_project.entities.ResponseDTO;
 import com.example.mini_project.entities.usercourse.UserCourse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
@@ -40,6 +41,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(status).body(new ResponseDTO<>(message, usercourse));
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ResponseDTO<Void>> handleInvalidCursor(InvalidCursorException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ResponseDTO<>(ex.getMessage(), null));
+    }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ResponseDTO<Void>> handlePasswordHashingBusy(PasswordHashingBusyException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ResponseDTO<>(ex.getMessage(), null));
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<String> handleMaxSize(
             MaxUploadSizeExceededException ex) {
@@ -0,0 +1,8 @@
+package com.example.mini_project.exception;
+
+// Cursor phân trang không decode được
+public class InvalidCursorException extends IllegalArgumentException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
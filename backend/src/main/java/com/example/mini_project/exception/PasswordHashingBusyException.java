@@ -0,0 +1,8 @@
+package com.example.mini_project.exception;
+
+// Pool băm mật khẩu đã đầy, client nên thử lại sau
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
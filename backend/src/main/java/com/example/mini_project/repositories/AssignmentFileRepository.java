@@ -0,0 +1,9 @@
+package com.example.mini_project.repositories;
+
+import com.example.mini_project.entities.file.AssignmentFile;
+import org.springframework.data.repository.CrudRepository;
+
+public interface AssignmentFileRepository extends CrudRepository<AssignmentFile, Long> {
+
+    boolean existsByS3Key(String s3Key);
+}
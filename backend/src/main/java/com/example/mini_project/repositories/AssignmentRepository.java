@@ -1,10 +1,25 @@
 package com.example.mini_project.repositories;
 
 import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.assignment.AssignmentResponseDTO;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface AssignmentRepository extends JpaRepository<Assignment, Long> {
     List<Assignment> findByCourse_Id(Long id);
+
+    // Một query cho cả danh sách, không load course/createdBy cho từng assignment
+    @Query("""
+            SELECT new com.example.mini_project.entities.assignment.AssignmentResponseDTO(
+                a.id, a.assignmentName, a.assignmentDue, a.assignmentWeight, c.courseCode, u.username)
+            FROM Assignment a
+            JOIN a.course c
+            JOIN a.createdBy u
+            WHERE c.id = :courseId
+            ORDER BY a.id
+            """)
+    List<AssignmentResponseDTO> findDTOsByCourseId(@Param("courseId") Long courseId);
 }
@@ -1,6 +1,8 @@
 package com.example.mini_project.repositories;
 
 import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseResponseDTO;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -15,8 +17,21 @@ public interface CourseRepository extends CrudRepository<Course, Long> {
 
     List<Course> findByIsPrivate(Boolean isPrivate);
 
+    // Keyset pagination: id > afterId, không dùng OFFSET. Lấy luôn username người tạo trong cùng query.
     @Query("""
-            SELECT c FROM Course c
+            SELECT new com.example.mini_project.entities.course.CourseResponseDTO(
+                c.id, c.courseCode, c.courseName, c.endDate, c.isPrivate, u.username, c.courseDescription)
+            FROM Course c
+            JOIN c.createdBy u
+            WHERE c.id > :afterId
+            ORDER BY c.id
+            """)
+    List<CourseResponseDTO> findDTOPage(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("""
+            SELECT new com.example.mini_project.entities.course.CourseResponseDTO(
+                c.id, c.courseCode, c.courseName, c.endDate, c.isPrivate, u.username, c.courseDescription)
+            FROM Course c
             LEFT JOIN c.createdBy u
             WHERE (
                 :q IS NULL
@@ -25,14 +40,22 @@ public interface CourseRepository extends CrudRepository<Course, Long> {
                 OR LOWER(u.username) LIKE LOWER(CONCAT('%', CAST(:q AS string), '%'))
             )
             AND (:isPrivate IS NULL OR c.isPrivate = :isPrivate)
+            AND c.id > :afterId
+            ORDER BY c.id
             """)
-    List<Course> search(
+    List<CourseResponseDTO> search(
             @Param("q") String q,
-            @Param("isPrivate") Boolean isPrivate
+            @Param("isPrivate") Boolean isPrivate,
+            @Param("afterId") Long afterId,
+            Limit limit
     );
 
 
+    @Query("SELECT c.id FROM Course c WHERE c.id > :afterId ORDER BY c.id")
+    List<Long> findIdPage(@Param("afterId") Long afterId, Limit limit);
+
     // Luật viết JPQL: Khi join không cần dùng ON, và phải sử dụng class attributes chứ kh phải column name
+    // Chỉ còn dùng khi user không còn trong course (không có dòng user_course giữ tổng điểm)
     @Query("SELECT COALESCE(SUM(s.grade * a.assignmentWeight / 100), 0) " +
             " FROM Submission s" +
             " JOIN s.assignment a" +
@@ -0,0 +1,24 @@
+package com.example.mini_project.repositories;
+
+import com.example.mini_project.entities.file.S3DeletionTask;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface S3DeletionTaskRepository extends CrudRepository<S3DeletionTask, Long> {
+
+    // SKIP LOCKED: nhiều instance cùng chạy worker sẽ lấy các batch khác nhau
+    @Query(value = "SELECT * FROM s3_deletion_outbox WHERE next_attempt_at <= :now " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<S3DeletionTask> lockDueTasks(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Task đang bị worker khóa thì DELETE chờ worker commit
+    @Modifying
+    @Query("DELETE FROM S3DeletionTask t WHERE t.s3Key IN :keys")
+    int deleteByS3KeyIn(@Param("keys") Collection<String> keys);
+}
@@ -5,4 +5,5 @@ import org.springframework.data.repository.CrudRepository;
 
 public interface SubmissionFileRepository extends CrudRepository<SubmissionFile, Long> {
 
+    boolean existsByS3Key(String s3Key);
 }
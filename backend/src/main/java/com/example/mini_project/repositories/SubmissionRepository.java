@@ -1,11 +1,16 @@
 package com.example.mini_project.repositories;
 
 import com.example.mini_project.entities.submission.Submission;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface SubmissionRepository extends CrudRepository<Submission, Long> {
 
@@ -14,8 +19,23 @@ public interface SubmissionRepository extends CrudRepository<Submission, Long> {
 
     List<Submission> findByAssignment_Id(Long id);
 
+    List<Submission> findByAssignment_IdAndIdGreaterThanOrderByIdAsc(Long assignmentId, Long afterId, Limit limit);
+
     boolean existsByUser_IdAndAssignment_Id(Long userId, Long assignmentId);
 
+    Optional<Submission> findByUser_IdAndAssignment_Id(Long userId, Long assignmentId);
+
+    // Khóa dòng (SELECT ... FOR UPDATE) tới hết transaction: điểm cũ đọc được không bị lần chấm khác đổi trước khi
+    // tính delta cho user_course
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Submission s WHERE s.id = :id")
+    Optional<Submission> findByIdForUpdate(@Param("id") Long id);
+
+    // Chấm điểm hàng loạt: nạp và khóa mọi submission cần chấm của assignment trong một query,
+    // theo thứ tự id để hai request chấm chồng nhau không deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Submission> findByAssignment_IdAndIdInOrderByIdAsc(Long assignmentId, Collection<Long> ids);
+
     void deleteByAssignment_Id(Long assignmentId);
 
 
@@ -1,6 +1,11 @@
 package com.example.mini_project.repositories;
 
+import com.example.mini_project.entities.course.CourseResponseDTO;
 import com.example.mini_project.entities.usercourse.UserCourse;
+import com.example.mini_project.entities.usercourse.UserCourseDTO;
+import com.example.mini_project.entities.usercourse.WeightedScoreRow;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -21,4 +26,67 @@ public interface UserCourseRepository extends CrudRepository<UserCourse, Long> {
 
     // Convention: Sử dụng findAll khi fetch từ 1 field one to many
     List<UserCourse> findAllByUser_Id(Long id);
+
+    // Keyset pagination theo uc.id, trả về DTO trong một query (không load user/course cho từng dòng)
+    @Query("""
+            SELECT new com.example.mini_project.entities.usercourse.UserCourseDTO(
+                uc.id, u.id, u.username, c.courseCode, uc.role)
+            FROM UserCourse uc
+            JOIN uc.user u
+            JOIN uc.course c
+            WHERE c.id = :courseId AND uc.id > :afterId
+            ORDER BY uc.id
+            """)
+    List<UserCourseDTO> findDTOPageByCourse(@Param("courseId") Long courseId, @Param("afterId") Long afterId,
+                                            Limit limit);
+
+    @Query("""
+            SELECT new com.example.mini_project.entities.course.CourseResponseDTO(
+                c.id, c.courseCode, c.courseName, c.endDate, c.isPrivate, creator.username, c.courseDescription)
+            FROM UserCourse uc
+            JOIN uc.course c
+            JOIN c.createdBy creator
+            WHERE uc.user.id = :userId
+            ORDER BY c.id
+            """)
+    List<CourseResponseDTO> findEnrolledCourseDTOs(@Param("userId") Long userId);
+
+    // Gradebook: tổng điểm có trọng số được lưu sẵn trên user_course (xem GradebookService)
+    @Query("SELECT uc.weightedScore FROM UserCourse uc WHERE uc.user.id = :userId AND uc.course.id = :courseId")
+    Optional<Double> findWeightedScore(@Param("userId") Long userId, @Param("courseId") Long courseId);
+
+    @Modifying
+    @Query("UPDATE UserCourse uc SET uc.weightedScore = uc.weightedScore + :delta " +
+            "WHERE uc.user.id = :userId AND uc.course.id = :courseId")
+    int addWeightedScore(@Param("userId") Long userId, @Param("courseId") Long courseId, @Param("delta") double delta);
+
+    // Trọng số assignment đổi weightDelta: cộng grade * weightDelta / 100 cho mọi user đã được chấm bài đó
+    @Modifying
+    @Query("""
+            UPDATE UserCourse uc
+            SET uc.weightedScore = uc.weightedScore + (
+                SELECT s.grade * :weightDelta / 100 FROM Submission s
+                WHERE s.user.id = uc.user.id AND s.assignment.id = :assignmentId)
+            WHERE uc.course.id = :courseId
+            AND uc.user.id IN (
+                SELECT s.user.id FROM Submission s WHERE s.assignment.id = :assignmentId AND s.grade IS NOT NULL)
+            """)
+    int addAssignmentWeightDelta(@Param("courseId") Long courseId, @Param("assignmentId") Long assignmentId,
+                                 @Param("weightDelta") double weightDelta);
+
+    @Modifying
+    @Query("UPDATE UserCourse uc SET uc.weightedScore = :score " +
+            "WHERE uc.user.id = :userId AND uc.course.id = :courseId")
+    int setWeightedScore(@Param("userId") Long userId, @Param("courseId") Long courseId, @Param("score") double score);
+
+    // Tính lại từ đầu, chỉ dùng cho job rebuild
+    @Query("""
+            SELECT new com.example.mini_project.entities.usercourse.WeightedScoreRow(
+                s.user.id, SUM(s.grade * a.assignmentWeight / 100))
+            FROM Submission s
+            JOIN s.assignment a
+            WHERE a.course.id = :courseId AND s.grade IS NOT NULL
+            GROUP BY s.user.id
+            """)
+    List<WeightedScoreRow> computeWeightedScores(@Param("courseId") Long courseId);
 }
@@ -1,13 +1,23 @@
 package com.example.mini_project.repositories;
 
+import com.example.mini_project.entities.user.EnrolledCourseDTO;
 import com.example.mini_project.entities.user.User;
+import com.example.mini_project.entities.user.UserDTO;
+import com.example.mini_project.entities.user.UserRoleRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public interface UserRepository extends CrudRepository<User, Integer> {
     Optional<User> findByUsername(String username);
@@ -16,14 +26,48 @@ public interface UserRepository extends CrudRepository<User, Integer> {
 
     Optional<User> findById(Long id);
 
-    @Query("SELECT u FROM User u WHERE " +
+    // Keyset pagination: id > afterId, không dùng OFFSET
+    @Query("SELECT new com.example.mini_project.entities.user.UserDTO(" +
+            "u.id, u.username, u.firstname, u.lastname, u.phoneNum, u.address) " +
+            "FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserDTO> findDTOPage(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT new com.example.mini_project.entities.user.UserRoleRow(u.id, r) " +
+            "FROM User u JOIN u.role r WHERE u.id IN :userIds")
+    List<UserRoleRow> findRoles(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT new com.example.mini_project.entities.user.EnrolledCourseDTO(" +
+            "uc.user.id, c.courseCode, c.courseName, uc.role, uc.enrolledDate) " +
+            "FROM UserCourse uc JOIN uc.course c WHERE uc.user.id IN :userIds ORDER BY c.id")
+    List<EnrolledCourseDTO> findEnrolledCourses(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Điền role và danh sách course cho một trang UserDTO: luôn 2 query, không phụ thuộc số user
+     * (thay cho UserDTOMapper đi qua user.getCourses() và uc.getCourse() cho từng user).
+     */
+    default List<UserDTO> withRolesAndCourses(List<UserDTO> users) {
+        if (users.isEmpty()) return users;
+        List<Long> userIds = users.stream().map(UserDTO::getId).toList();
+        Map<Long, Set<String>> roles = findRoles(userIds).stream().collect(Collectors.groupingBy(
+                UserRoleRow::userId, Collectors.mapping(UserRoleRow::role, Collectors.toSet())));
+        Map<Long, List<EnrolledCourseDTO>> courses = findEnrolledCourses(userIds).stream()
+                .collect(Collectors.groupingBy(EnrolledCourseDTO::getUserId));
+        users.forEach(user -> {
+            user.setRole(roles.getOrDefault(user.getId(), new HashSet<>()));
+            user.setCourses(courses.getOrDefault(user.getId(), new ArrayList<>()));
+        });
+        return users;
+    }
+
+    @Query("SELECT new com.example.mini_project.entities.user.UserDTO(" +
+            "u.id, u.username, u.firstname, u.lastname, u.phoneNum, u.address) FROM User u WHERE " +
             "(:firstname IS NULL OR u.firstname = :firstname) AND " +
             "(:lastname IS NULL OR u.lastname = :lastname) AND " +
             "(:address IS NULL OR u.address = :address) AND " +
             "(:phoneNum IS NULL OR u.phoneNum = :phoneNum) AND " +
             "((:start IS NULL AND :end IS NULL) OR u.dob BETWEEN :start AND :end) AND " +
             "(:cityname IS NUlL OR u.address LIKE %:cityname%)")
-    List<User> searchByCustom(
+    List<UserDTO> searchByCustom(
             @Param("firstname") String firstname, @Param("lastname") String lastname,
             @Param("address") String address, @Param("phoneNum") String phoneNum,
             @Param("cityname") String cityname,
@@ -7,14 +7,17 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @Slf4j
@@ -27,14 +30,18 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailService userDetailService;
 
+    // true: không tra DB cho request đã xác thực, thay đổi role chỉ có hiệu lực khi token hết hạn
+    @Value("${app.security.jwt-claims-only:false}")
+    private boolean claimsOnly;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtil.validateJwtToken(jwt)) {
-                final String username = jwtUtil.getUserFromToken(jwt);
-                final UserDetails userDetails = userDetailService.loadUserByUsername(username);
+            JwtUtil.VerifiedToken token = jwt == null ? null : jwtUtil.verify(jwt);
+            if (token != null) {
+                final UserDetails userDetails = resolvePrincipal(token);
                 UsernamePasswordAuthenticationToken authenticationToken =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails,
@@ -59,6 +66,18 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // claims-only: role lấy từ JWT đã ký, không tra DB; token cũ không có claim roles thì vẫn tra qua cache
+    private UserDetails resolvePrincipal(JwtUtil.VerifiedToken token) {
+        List<String> roles = token.roles();
+        if (claimsOnly && roles != null && !roles.isEmpty()) {
+            return User.withUsername(token.username())
+                    .password("")
+                    .authorities(roles.toArray(String[]::new))
+                    .build();
+        }
+        return userDetailService.loadPrincipal(token.username());
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
         if (headerAuth != null && headerAuth.startsWith("Bearer ")) {
@@ -1,57 +1,127 @@
 package com.example.mini_project.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
 
 @Component
 @Slf4j
 public class JwtUtil {
+    static final String ROLES_CLAIM = "roles";
+
     @Value("${spring.app.jwtSecret}")
     private String jwtSecret;
 
     @Value("${spring.app.jwtExpirationMs}")
     private Integer jwtExpirationMs;
 
+    // Số token đã xác thực được nhớ và thời gian nhớ tối đa (không vượt quá hạn của token)
+    @Value("${app.security.jwt-cache.max-size:10000}")
+    private long verifiedCacheMaxSize = 10_000;
+
+    @Value("${app.security.jwt-cache.ttl-ms:300000}")
+    private long verifiedCacheTtlMs = 300_000;
+
     private SecretKey key;
+    // JwtParser immutable và thread-safe, chỉ cần build một lần
+    private JwtParser parser;
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * Thông tin lấy từ một JWT đã xác thực. roles null nếu token không có claim "roles".
+     */
+    public record VerifiedToken(String username, List<String> roles, Instant expiresAt) {
+    }
 
     // Annotation có nghĩa là method này sẽ được chạy ngay sau khi tất cả Bean Injection và instance
     // khác đc khởi tạo.
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(verifiedCacheTtlMs))
+                .build();
     }
 
     public String generateToken(String username) {
+        return generateToken(username, List.of());
+    }
+
+    // Ghi kèm role vào claim "roles" để chế độ claims-only không cần tra DB
+    public String generateToken(String username, Collection<? extends GrantedAuthority> authorities) {
+        List<String> roles = authorities.stream().map(GrantedAuthority::getAuthority).sorted().toList();
         return Jwts.builder()
                 .subject(username)
+                .claim(ROLES_CLAIM, roles)
                 .issuedAt(new Date())
                 .expiration(new Date((new Date()).getTime() + jwtExpirationMs))
                 .signWith(key)
                 .compact();
     }
 
-    public String getUserFromToken(String token) {
-        return Jwts.parser().verifyWith(key).build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+    /**
+     * Xác thực chữ ký + hạn của token đúng một lần và trả về các claim cần dùng, null nếu token không hợp lệ.
+     * Token đã xác thực được nhớ theo SHA-256 của token, nên các request liên tiếp cùng token
+     * (SPA gọi nhiều API một lúc) không phải parse JSON và tính HMAC lại. Hạn của token vẫn được kiểm tra khi cache hit.
+     */
+    public VerifiedToken verify(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(Instant.now())) return cached;
+            verifiedTokens.invalidate(digest);
+            return null;
+        }
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.error("JWT validation error: {}", e.getMessage());
+            return null;
+        }
+        Date expiration = claims.getExpiration();
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                rolesOf(claims.get(ROLES_CLAIM)),
+                expiration == null ? Instant.MAX : expiration.toInstant());
+        verifiedTokens.put(digest, verified);
+        return verified;
     }
 
-    public boolean validateJwtToken(String token) {
+    // null nếu token không có claim "roles" (token cũ)
+    private static List<String> rolesOf(Object roles) {
+        if (!(roles instanceof List<?> list)) return null;
+        return list.stream().map(String::valueOf).toList();
+    }
+
+    private static String digest(String token) {
         try {
-            Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
-            return true;
-        } catch (Exception e) {
-            log.error("JWT validation error: {}", e.getMessage());
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        return false;
     }
 }
@@ -0,0 +1,125 @@
+package com.example.mini_project.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Giới hạn tần suất request theo nhóm route, chạy ngay sau AuthTokenFilter.
+ * Request đã xác thực tính theo username (cả lớp học chung một IP không bị chặn lẫn nhau),
+ * request chưa xác thực tính theo IP. Sau nginx, getRemoteAddr() là IP client trong X-Forwarded-For
+ * (server.forward-headers-strategy=native), không phải IP của proxy. Nhóm đầu tiên khớp path được áp dụng; capacity=0 tắt nhóm đó.
+ */
+@Slf4j
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    private record RouteGroup(RateLimiter.Limit limit, List<PathPattern> patterns) {
+    }
+
+    private final RateLimiter rateLimiter;
+    private final boolean enabled;
+    private final List<RouteGroup> groups = new ArrayList<>();
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+
+    public RateLimitFilter(RateLimiter rateLimiter, MeterRegistry meterRegistry,
+                           @Value("${app.ratelimit.enabled:true}") boolean enabled,
+                           @Value("${app.ratelimit.auth.paths:/auth/signin,/auth/signup}") List<String> authPaths,
+                           @Value("${app.ratelimit.auth.capacity:5}") long authCapacity,
+                           @Value("${app.ratelimit.auth.refill-per-second:0.2}") double authRefill,
+                           @Value("${app.ratelimit.search.paths:/courses/search,/users/search}") List<String> searchPaths,
+                           @Value("${app.ratelimit.search.capacity:20}") long searchCapacity,
+                           @Value("${app.ratelimit.search.refill-per-second:5}") double searchRefill,
+                           @Value("${app.ratelimit.pdf.paths:/courses/*/assignments/*/pdf,/courses/*/assignments/*/submissions/*/pdf}") List<String> pdfPaths,
+                           @Value("${app.ratelimit.pdf.capacity:30}") long pdfCapacity,
+                           @Value("${app.ratelimit.pdf.refill-per-second:10}") double pdfRefill,
+                           @Value("${app.ratelimit.default.capacity:0}") long defaultCapacity,
+                           @Value("${app.ratelimit.default.refill-per-second:50}") double defaultRefill) {
+        this.rateLimiter = rateLimiter;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        addGroup("auth", authPaths, authCapacity, authRefill);
+        addGroup("search", searchPaths, searchCapacity, searchRefill);
+        addGroup("pdf", pdfPaths, pdfCapacity, pdfRefill);
+        addGroup("default", List.of("/**"), defaultCapacity, defaultRefill);
+    }
+
+    private void addGroup(String name, List<String> paths, long capacity, double refillPerSecond) {
+        RateLimiter.Limit limit = new RateLimiter.Limit(name, capacity, refillPerSecond);
+        if (!limit.enabled()) return;
+        List<PathPattern> patterns = paths.stream()
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        groups.add(new RouteGroup(limit, patterns));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || groups.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RateLimiter.Limit limit = match(request);
+        if (limit != null) {
+            long waitMs = rateLimiter.tryAcquire(limit, clientOf(request));
+            if (waitMs > 0) {
+                rejected(limit.group()).increment();
+                log.debug("Rate limit {}: {} {}", limit.group(), request.getMethod(), request.getRequestURI());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitMs + 999) / 1000)));
+                response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Quá nhiều request, vui lòng thử lại sau");
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private RateLimiter.Limit match(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (RouteGroup group : groups) {
+            for (PathPattern pattern : group.patterns()) {
+                if (pattern.matches(path)) return group.limit();
+            }
+        }
+        return null;
+    }
+
+    private static String clientOf(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            return "user:" + auth.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private Counter rejected(String group) {
+        return rejectedCounters.computeIfAbsent(group, name -> Counter.builder("http.ratelimit.rejected")
+                .description("Số request bị từ chối vì vượt rate limit")
+                .tag("group", name)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.mini_project.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket theo (nhóm route, client).
+ * local: bucket nằm trong Caffeine (map phân đoạn, bucket không dùng lâu tự bị bỏ), mỗi bucket cập nhật bằng CAS, không khóa.
+ * redis: một Lua script atomic trên Redis nên giới hạn tính chung cho cả cluster; Redis lỗi thì tạm dùng bucket local.
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+    private static final String KEY_PREFIX = "ratelimit:";
+    // Refill theo thời gian của Redis (TIME), trả về số ms cần chờ (0 = cho qua)
+    private static final RedisScript<Long> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>("""
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1]) or capacity
+            local ts = tonumber(state[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)
+            local wait = 0
+            if tokens >= 1 then
+                tokens = tokens - 1
+            else
+                wait = math.ceil((1 - tokens) / rate)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000)
+            return wait
+            """, Long.class);
+
+    /**
+     * capacity: số request dồn tối đa, refillPerSecond: tốc độ hồi token.
+     */
+    public record Limit(String group, long capacity, double refillPerSecond) {
+        public Limit {
+            if (capacity > 0 && refillPerSecond <= 0) {
+                throw new IllegalArgumentException("refill-per-second của nhóm " + group + " phải lớn hơn 0");
+            }
+        }
+
+        public boolean enabled() {
+            return capacity > 0;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean redisMode;
+    private final Cache<String, TokenBucket> buckets;
+    private final LongSupplier nanoClock;
+
+    public RateLimiter(StringRedisTemplate redisTemplate,
+                       @Value("${app.ratelimit.mode:local}") String mode,
+                       @Value("${app.ratelimit.max-buckets:100000}") long maxBuckets) {
+        this(redisTemplate, mode, maxBuckets, System::nanoTime);
+    }
+
+    RateLimiter(StringRedisTemplate redisTemplate, String mode, long maxBuckets, LongSupplier nanoClock) {
+        this.redisTemplate = redisTemplate;
+        this.redisMode = "redis".equalsIgnoreCase(mode) && redisTemplate != null;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+    }
+
+    /**
+     * Lấy một token cho client trong nhóm limit. Trả về 0 nếu được phép, ngược lại là số ms nên chờ.
+     */
+    public long tryAcquire(Limit limit, String client) {
+        String key = KEY_PREFIX + limit.group() + ":" + client;
+        if (redisMode) {
+            try {
+                Long wait = redisTemplate.execute(TOKEN_BUCKET_SCRIPT, List.of(key),
+                        String.valueOf(limit.capacity()), String.valueOf(limit.refillPerSecond() / 1000.0));
+                return wait == null ? 0 : wait;
+            } catch (DataAccessException e) {
+                log.debug("Rate limit qua Redis lỗi, dùng bucket local: {}", e.getMessage());
+            }
+        }
+        TokenBucket bucket = buckets.get(key, ignored -> new TokenBucket(limit.capacity(), nanoClock.getAsLong()));
+        return bucket.tryAcquire(limit, nanoClock.getAsLong());
+    }
+
+    static final class TokenBucket {
+        private record State(double tokens, long refilledAt) {
+        }
+
+        private final AtomicReference<State> state;
+
+        TokenBucket(long capacity, long now) {
+            this.state = new AtomicReference<>(new State(capacity, now));
+        }
+
+        long tryAcquire(Limit limit, long now) {
+            while (true) {
+                State current = state.get();
+                double elapsedSeconds = Math.max(0, now - current.refilledAt()) / 1e9;
+                double tokens = Math.min(limit.capacity(), current.tokens() + elapsedSeconds * limit.refillPerSecond());
+                if (tokens < 1) {
+                    return Math.max(1, (long) Math.ceil((1 - tokens) / limit.refillPerSecond() * 1000));
+                }
+                if (state.compareAndSet(current, new State(tokens - 1, Math.max(now, current.refilledAt())))) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.mini_project.security;
 
 import com.example.mini_project.service.CustomUserDetailService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -34,6 +36,9 @@ public class WebSecurityConfig {
     @Autowired
     private AuthTokenFilter authenticationJwtTokenFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @org.springframework.beans.factory.annotation.Value("${app.cors.allowed-origins}")
     private String allowedOrigins;
 
@@ -44,9 +49,15 @@ public class WebSecurityConfig {
         return authenticationConfiguration.getAuthenticationManager();
     }
 
+    // Đổi strength thì hash cũ được băm lại khi user đăng nhập thành công (upgradeEncoding + UserDetailsPasswordService)
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt.strength:10}") int strength,
+                                           @Value("${app.security.bcrypt.threads:0}") int threads,
+                                           @Value("${app.security.bcrypt.queue-capacity:64}") int queueCapacity,
+                                           MeterRegistry meterRegistry) {
+        // 0: dùng một nửa số core, phần còn lại để phục vụ các request khác
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity, meterRegistry);
     }
 
     @Bean
@@ -68,6 +79,8 @@ public class WebSecurityConfig {
                         headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::disable));
 
         http.addFilterBefore(authenticationJwtTokenFilter, UsernamePasswordAuthenticationFilter.class);
+        // Sau AuthTokenFilter để biết username của request
+        http.addFilterAfter(rateLimitFilter, AuthTokenFilter.class);
 
         return http.build();
     }
@@ -79,6 +92,8 @@ public class WebSecurityConfig {
         config.setAllowedOriginPatterns(List.of(allowedOrigins.split(",")));
         config.addAllowedMethod("*");
         config.addAllowedHeader("*");
+        // PDF viewer cần đọc các header này để tải file theo từng đoạn (Range)
+        config.setExposedHeaders(List.of("Accept-Ranges", "Content-Range", "Content-Length", "ETag"));
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
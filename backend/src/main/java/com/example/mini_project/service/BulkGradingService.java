@@ -0,0 +1,77 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.submission.BulkGradeItemDTO;
+import com.example.mini_project.entities.submission.BulkGradeResultDTO;
+import com.example.mini_project.entities.submission.BulkGradeStatus;
+import com.example.mini_project.entities.submission.Submission;
+import com.example.mini_project.repositories.SubmissionRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Chấm điểm nhiều submission của một assignment trong một transaction.
+ * Nạp mọi submission bằng một query (id IN), đổi grade trên entity rồi để Hibernate flush các UPDATE
+ * thành JDBC batch (hibernate.jdbc.batch_size), tổng điểm trên user_course cũng cập nhật theo batch.
+ * Quyền tutor được kiểm tra một lần ở controller.
+ */
+@Service
+public class BulkGradingService {
+    private final SubmissionRepository submissionRepository;
+    private final GradebookService gradebookService;
+
+    public BulkGradingService(SubmissionRepository submissionRepository, GradebookService gradebookService) {
+        this.submissionRepository = submissionRepository;
+        this.gradebookService = gradebookService;
+    }
+
+    /**
+     * Trả về kết quả theo đúng thứ tự items. Phần tử lỗi (không tìm thấy, điểm sai, trùng id) bị bỏ qua,
+     * các phần tử còn lại vẫn được chấm.
+     */
+    @Transactional
+    public List<BulkGradeResultDTO> grade(Assignment assignment, List<BulkGradeItemDTO> items) {
+        Set<Long> ids = items.stream().map(BulkGradeItemDTO::getSubmissionId)
+                .filter(id -> id != null).collect(Collectors.toSet());
+        Map<Long, Submission> submissions = ids.isEmpty() ? Map.of()
+                : submissionRepository.findByAssignment_IdAndIdInOrderByIdAsc(assignment.getId(), ids).stream()
+                .collect(Collectors.toMap(Submission::getId, Function.identity()));
+
+        List<BulkGradeResultDTO> results = new ArrayList<>(items.size());
+        List<Submission> graded = new ArrayList<>();
+        Map<Long, Double> previousGrades = new HashMap<>();
+        Set<Long> seen = new HashSet<>();
+        for (BulkGradeItemDTO item : items) {
+            Long submissionId = item.getSubmissionId();
+            Double grade = item.getGrade();
+            Submission submission = submissions.get(submissionId);
+            BulkGradeStatus status;
+            if (submission == null) {
+                status = BulkGradeStatus.NOT_FOUND;
+            } else if (!seen.add(submissionId)) {
+                status = BulkGradeStatus.DUPLICATE;
+            } else if (grade == null || !Double.isFinite(grade) || grade < 0) {
+                status = BulkGradeStatus.INVALID_GRADE;
+            } else {
+                previousGrades.put(submissionId, submission.getGrade());
+                submission.setGrade(grade);
+                graded.add(submission);
+                status = BulkGradeStatus.GRADED;
+            }
+            results.add(new BulkGradeResultDTO(submissionId, grade, status));
+        }
+
+        // Entity đang managed: dirty checking sinh UPDATE khi flush lúc commit, không cần save từng cái
+        gradebookService.onGradesChanged(assignment, graded, previousGrades);
+        return results;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.repositories.AssignmentFileRepository;
+import com.example.mini_project.repositories.SubmissionFileRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lưu file theo nội dung (app.storage.content-addressed): mỗi SHA-256 chỉ có một object
+ * blobs/sha256/{hash} trên S3, các SubmissionFile/AssignmentFile cùng nội dung trỏ chung s3Key đó.
+ * Số tham chiếu nằm ở bảng blobs (ContentBlob), được tăng/giảm trong cùng transaction với việc thêm/xóa dòng file
+ * và luôn dưới khóa dòng (SELECT ... FOR UPDATE). Nhờ vậy upload bỏ qua PUT vì blob đã có, xóa file và
+ * S3DeletionWorker xóa object không thể chen vào giữa nhau: ai đến sau phải chờ transaction kia commit.
+ * Vì s3Key chứa hash nên cache file_pdf cũng được dùng chung giữa các user.
+ */
+@Slf4j
+@Service
+public class ContentAddressedStorage {
+    static final String KEY_PREFIX = "blobs/sha256/";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    // Dòng blob bị worker xóa trong lúc chờ khóa thì tạo lại và khóa lại
+    private static final int MAX_LOCK_ATTEMPTS = 3;
+
+    private static final String POSTGRES_ENSURE_SQL =
+            "INSERT INTO blobs (s3_key, refcount) VALUES (:key, 0) ON CONFLICT (s3_key) DO NOTHING";
+    private static final String GENERIC_ENSURE_SQL = "INSERT INTO blobs (s3_key, refcount) SELECT v.s3_key, 0 "
+            + "FROM (VALUES (CAST(:key AS VARCHAR(128)))) AS v(s3_key) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM blobs b WHERE b.s3_key = v.s3_key)";
+    private static final String LOCK_SQL =
+            "SELECT s3_key, refcount FROM blobs WHERE s3_key IN (:keys) ORDER BY s3_key FOR UPDATE";
+    private static final String UPDATE_SQL = "UPDATE blobs SET refcount = :refcount WHERE s3_key = :key";
+    private static final String DELETE_SQL = "DELETE FROM blobs WHERE s3_key IN (:keys) AND refcount = 0";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final SubmissionFileRepository submissionFileRepository;
+    private final AssignmentFileRepository assignmentFileRepository;
+    private final boolean enabled;
+    private String ensureSql = GENERIC_ENSURE_SQL;
+
+    public ContentAddressedStorage(NamedParameterJdbcTemplate jdbcTemplate,
+                                   SubmissionFileRepository submissionFileRepository,
+                                   AssignmentFileRepository assignmentFileRepository,
+                                   @Value("${app.storage.content-addressed:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.submissionFileRepository = submissionFileRepository;
+        this.assignmentFileRepository = assignmentFileRepository;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    void init() {
+        try {
+            String product = jdbcTemplate.getJdbcTemplate().execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            if ("PostgreSQL".equalsIgnoreCase(product)) ensureSql = POSTGRES_ENSURE_SQL;
+        } catch (DataAccessException e) {
+            log.warn("Content-addressed storage: không xác định được database, dùng INSERT ... WHERE NOT EXISTS", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static boolean isContentAddressed(String s3Key) {
+        return s3Key.startsWith(KEY_PREFIX);
+    }
+
+    public static String keyFor(String sha256) {
+        return KEY_PREFIX + sha256;
+    }
+
+    /**
+     * Tăng số tham chiếu cho từng dòng file sắp được lưu (key lặp lại n lần thì tăng n).
+     * Phải gọi trong transaction sẽ lưu các dòng file đó; khóa dòng blob được giữ tới khi transaction kết thúc.
+     * Trả về các key trước đó không còn tham chiếu: object có thể chưa có hoặc đang chờ xóa trên S3, nên phải PUT.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<String> acquire(List<String> s3Keys) {
+        Map<String, Long> counts = countByKey(s3Keys);
+        Map<String, Integer> current = lockRefcounts(counts.keySet());
+        Set<String> missing = new LinkedHashSet<>();
+        counts.forEach((key, count) -> {
+            int refcount = current.get(key);
+            if (refcount == 0) missing.add(key);
+            update(key, refcount + count.intValue());
+        });
+        return missing;
+    }
+
+    /**
+     * Giảm số tham chiếu cho từng dòng file bị xóa, trong cùng transaction với việc xóa dòng file.
+     * Trả về các key không còn tham chiếu, cần đưa vào outbox xóa S3.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<String> release(List<String> s3Keys) {
+        Map<String, Long> counts = countByKey(s3Keys);
+        Map<String, Integer> current = lockRefcounts(counts.keySet());
+        Set<String> unreferenced = new LinkedHashSet<>();
+        counts.forEach((key, count) -> {
+            int refcount = Math.max(current.get(key) - count.intValue(), 0);
+            if (refcount == 0) unreferenced.add(key);
+            update(key, refcount);
+        });
+        return unreferenced;
+    }
+
+    /**
+     * Dùng bởi S3DeletionWorker: khóa dòng blob và trả về các key được phép xóa object.
+     * Khóa giữ tới hết transaction của worker nên upload cùng nội dung phải chờ, rồi thấy refcount 0 và PUT lại.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<String> lockUnreferenced(Collection<String> s3Keys) {
+        Set<String> unreferenced = new LinkedHashSet<>();
+        lockRefcounts(new TreeSet<>(s3Keys)).forEach((key, refcount) -> {
+            if (refcount > 0) return;
+            // refcount lệch với bảng file (không nên xảy ra): giữ object, an toàn hơn là xóa
+            if (submissionFileRepository.existsByS3Key(key) || assignmentFileRepository.existsByS3Key(key)) {
+                log.warn("Blob {} có refcount 0 nhưng vẫn còn file trỏ tới, không xóa", key);
+                return;
+            }
+            unreferenced.add(key);
+        });
+        return unreferenced;
+    }
+
+    // Sau khi object đã bị xóa khỏi S3
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void forget(Collection<String> s3Keys) {
+        if (s3Keys.isEmpty()) return;
+        jdbcTemplate.update(DELETE_SQL, Map.of("keys", s3Keys));
+    }
+
+    // Tạo dòng blob nếu chưa có rồi khóa theo thứ tự key (tránh deadlock giữa các transaction)
+    private Map<String, Integer> lockRefcounts(Collection<String> s3Keys) {
+        Map<String, Integer> refcounts = new HashMap<>();
+        Set<String> pending = new TreeSet<>(s3Keys);
+        for (int attempt = 0; attempt < MAX_LOCK_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            SqlParameterSource[] rows = pending.stream()
+                    .map(key -> new MapSqlParameterSource("key", key))
+                    .toArray(SqlParameterSource[]::new);
+            jdbcTemplate.batchUpdate(ensureSql, rows);
+            jdbcTemplate.query(LOCK_SQL, Map.of("keys", pending), (RowCallbackHandler) resultSet ->
+                    refcounts.put(resultSet.getString("s3_key"), resultSet.getInt("refcount")));
+            pending.removeAll(refcounts.keySet());
+        }
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException("Không khóa được blob: " + pending);
+        }
+        return refcounts;
+    }
+
+    private void update(String s3Key, int refcount) {
+        jdbcTemplate.update(UPDATE_SQL, Map.of("key", s3Key, "refcount", refcount));
+    }
+
+    private static Map<String, Long> countByKey(List<String> s3Keys) {
+        return s3Keys.stream().collect(Collectors.groupingBy(Function.identity(), TreeMap::new, Collectors.counting()));
+    }
+
+    public static String sha256(InputStream input) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
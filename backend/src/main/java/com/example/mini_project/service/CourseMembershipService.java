@@ -0,0 +1,96 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.config.ReadWriteRoutingDataSource;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.entities.usercourse.CourseMembership;
+import com.example.mini_project.entities.usercourse.UserCourse;
+import com.example.mini_project.repositories.UserCourseRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+
+/**
+ * Cache quan hệ (username, courseId) -> role trong course, dùng cho các kiểm tra tutor/owner.
+ * Chấm 200 bài liên tiếp chỉ query user_course một lần. "Không phải thành viên" cũng được cache.
+ * Mọi thay đổi user_course (enroll, withdraw, promote/demote...) phải gọi evict; evict chạy sau khi
+ * transaction commit, để request khác không kịp ghi lại giá trị cũ vào cache.
+ */
+@Service
+public class CourseMembershipService {
+    public static final String MEMBERSHIP_CACHE = "course_membership";
+
+    private final UserCourseRepository userCourseRepository;
+    private final CacheManager cacheManager;
+    private final EntityManager entityManager;
+
+    public CourseMembershipService(UserCourseRepository userCourseRepository, CacheManager cacheManager,
+                                   EntityManager entityManager) {
+        this.userCourseRepository = userCourseRepository;
+        this.cacheManager = cacheManager;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Membership của user trong course, null nếu user không ở trong course.
+     */
+    public CourseMembership find(String username, Long courseId) {
+        Cache cache = cache();
+        String key = key(username, courseId);
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null) return (CourseMembership) cached.get();
+
+        // Đọc từ primary: replica có thể chưa có thay đổi vừa làm cache bị evict
+        CourseMembership membership = ReadWriteRoutingDataSource.onPrimary(() ->
+                userCourseRepository.findByUser_UsernameAndCourse_Id(username, courseId)
+                        .map(userCourse -> new CourseMembership(userCourse.getUser().getId(), userCourse.getRole()))
+                        .orElse(null));
+        cache.put(key, membership);
+        return membership;
+    }
+
+    /**
+     * User (proxy, chưa query) của thành viên course, null nếu user không ở trong course.
+     */
+    public User findMemberUser(String username, Long courseId) {
+        CourseMembership membership = find(username, courseId);
+        return membership == null ? null : entityManager.getReference(User.class, membership.userId());
+    }
+
+    public boolean isTutor(String username, Long courseId) {
+        CourseMembership membership = find(username, courseId);
+        return membership != null && membership.isTutor();
+    }
+
+    public void evict(String username, Long courseId) {
+        String key = key(username, courseId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache().evict(key);
+                }
+            });
+        } else {
+            cache().evict(key);
+        }
+    }
+
+    public void evictAll(Collection<UserCourse> userCourses) {
+        userCourses.forEach(userCourse ->
+                evict(userCourse.getUser().getUsername(), userCourse.getCourse().getId()));
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(MEMBERSHIP_CACHE);
+    }
+
+    // courseId đứng trước vì username có thể chứa ':'
+    private static String key(String username, Long courseId) {
+        return courseId + ":" + username;
+    }
+}
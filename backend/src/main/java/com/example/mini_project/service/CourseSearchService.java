@@ -0,0 +1,174 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.PageResponseDTO;
+import com.example.mini_project.entities.course.CourseResponseDTO;
+import com.example.mini_project.repositories.CourseRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Tìm course cho /courses/search.
+ * Trên PostgreSQL: tsvector (code, name, description, có prefix match) và trigram (substring của code/name
+ * và username người tạo), đều có GIN index, xếp theo ts_rank + similarity. Cursor là offset trong danh sách đã xếp hạng.
+ * Từ khóa dưới TRIGRAM_MIN_LENGTH ký tự chỉ tìm theo prefix tsvector.
+ * DB khác (H2 khi test) hoặc khi không tạo được index: dùng lại query LIKE, phân trang keyset theo id.
+ */
+@Slf4j
+@Service
+public class CourseSearchService {
+    static final int MAX_TERMS = 8;
+
+    // Bảng do Hibernate tạo (ddl-auto), nên cột generated và index được thêm sau khi schema đã có
+    private static final List<String> POSTGRES_DDL = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            """
+            ALTER TABLE courses ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+                setweight(to_tsvector('simple', coalesce(course_code, '')), 'A')
+                || setweight(to_tsvector('simple', coalesce(course_name, '')), 'B')
+                || setweight(to_tsvector('simple', coalesce(course_description, '')), 'C')
+            ) STORED""",
+            "CREATE INDEX IF NOT EXISTS idx_courses_search_vector ON courses USING gin (search_vector)",
+            "CREATE INDEX IF NOT EXISTS idx_courses_title_trgm ON courses "
+                    + "USING gin ((lower(coalesce(course_code, '') || ' ' || coalesce(course_name, ''))) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_courses_created_user ON courses (created_user_id)"
+    );
+
+    private static final String TITLE = "lower(coalesce(c.course_code, '') || ' ' || coalesce(c.course_name, ''))";
+
+    /*
+     * pg_trgm chỉ dùng được GIN index cho LIKE '%q%' khi q có ít nhất một trigram, tức từ 3 ký tự trở lên.
+     * Với q ngắn hơn, hai nhánh LIKE thành quét toàn bộ index (thực tế là cả bảng), nên chỉ tìm theo prefix tsvector.
+     */
+    static final int TRIGRAM_MIN_LENGTH = 3;
+
+    private static final String FULL_TEXT_HITS =
+            "SELECT c.id FROM courses c WHERE c.search_vector @@ to_tsquery('simple', :tsquery)";
+    private static final String TRIGRAM_HITS = """
+            UNION
+            SELECT c.id FROM courses c WHERE %s LIKE :pattern
+            UNION
+            SELECT c.id FROM courses c JOIN users u ON u.id = c.created_user_id WHERE lower(u.username) LIKE :pattern
+            """.formatted(TITLE);
+
+    // Mỗi nhánh UNION dùng được một index riêng, tránh OR giữa các bảng làm planner quét toàn bộ courses
+    private static final String RANKED_TEMPLATE = """
+            WITH hits AS (
+                %2$s
+            )
+            SELECT c.id, c.course_code, c.course_name, c.end_date, c.is_private, u.username, c.course_description
+            FROM hits h
+            JOIN courses c ON c.id = h.id
+            JOIN users u ON u.id = c.created_user_id
+            WHERE CAST(:isPrivate AS boolean) IS NULL OR c.is_private = :isPrivate
+            ORDER BY ts_rank(c.search_vector, to_tsquery('simple', :tsquery)) + similarity(%1$s, :term) DESC, c.id
+            LIMIT :limit OFFSET :offset
+            """;
+
+    static final String RANKED_QUERY = RANKED_TEMPLATE.formatted(TITLE, FULL_TEXT_HITS + "\n" + TRIGRAM_HITS);
+    // Từ khóa ngắn hơn TRIGRAM_MIN_LENGTH: chỉ nhánh tsvector
+    static final String PREFIX_QUERY = RANKED_TEMPLATE.formatted(TITLE, FULL_TEXT_HITS);
+
+    private static final RowMapper<CourseResponseDTO> ROW_MAPPER = (rs, rowNum) -> new CourseResponseDTO(
+            rs.getLong("id"),
+            rs.getString("course_code"),
+            rs.getString("course_name"),
+            rs.getObject("end_date", LocalDate.class),
+            rs.getObject("is_private", Boolean.class),
+            rs.getString("username"),
+            rs.getString("course_description"));
+
+    private final CourseRepository courseRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final boolean fullTextEnabled;
+    private volatile boolean fullText;
+
+    public CourseSearchService(CourseRepository courseRepository,
+                               NamedParameterJdbcTemplate jdbcTemplate,
+                               @Value("${app.search.course.full-text:true}") boolean fullTextEnabled) {
+        this.courseRepository = courseRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.fullTextEnabled = fullTextEnabled;
+    }
+
+    @PostConstruct
+    void init() {
+        if (!fullTextEnabled) return;
+        try {
+            String product = jdbcTemplate.getJdbcTemplate().execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            if (!"PostgreSQL".equalsIgnoreCase(product)) {
+                log.info("Course search: {} không hỗ trợ tsvector/pg_trgm, dùng LIKE", product);
+                return;
+            }
+            POSTGRES_DDL.forEach(jdbcTemplate.getJdbcTemplate()::execute);
+            fullText = true;
+        } catch (DataAccessException e) {
+            log.warn("Không tạo được index full-text cho course, search dùng LIKE", e);
+        }
+    }
+
+    public boolean isFullText() {
+        return fullText;
+    }
+
+    /**
+     * Trả về trang kết quả (message để trống cho controller điền).
+     */
+    public PageResponseDTO<CourseResponseDTO> search(String q, Boolean isPrivate, String cursor, int limit) {
+        int pageSize = PageResponseDTO.clampLimit(limit);
+        long position = PageResponseDTO.decodeCursor(cursor);
+        String term = q == null ? null : q.trim().toLowerCase(Locale.ROOT);
+        String tsquery = term == null ? "" : toPrefixQuery(term);
+        boolean shortTerm = term != null && term.length() < TRIGRAM_MIN_LENGTH;
+        // Từ khóa ngắn không có chữ/số (vd "%") thì tsvector không khớp gì, dùng LIKE như DB khác
+        if (term == null || term.isEmpty() || !fullText || (shortTerm && tsquery.isEmpty())) {
+            List<CourseResponseDTO> rows = courseRepository.search(
+                    term == null || term.isEmpty() ? null : term, isPrivate, position, Limit.of(pageSize + 1));
+            return PageResponseDTO.of(null, rows, pageSize, CourseResponseDTO::getId, Function.identity());
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("tsquery", tsquery)
+                .addValue("pattern", likePattern(term))
+                .addValue("term", term)
+                .addValue("isPrivate", isPrivate, Types.BOOLEAN)
+                .addValue("limit", pageSize + 1)
+                .addValue("offset", position);
+        List<CourseResponseDTO> rows = jdbcTemplate.query(shortTerm ? PREFIX_QUERY : RANKED_QUERY, params, ROW_MAPPER);
+        return PageResponseDTO.ofOffset(null, rows, pageSize, position);
+    }
+
+    /**
+     * "java co" -> "java:* & co:*". Chỉ giữ chữ và số nên không thể chèn cú pháp tsquery.
+     * Không còn từ nào thì trả về tsquery rỗng ('') để nhánh full-text không khớp gì, chỉ còn trigram.
+     */
+    static String toPrefixQuery(String term) {
+        return Arrays.stream(term.split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .limit(MAX_TERMS)
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    // Escape ký tự đặc biệt của LIKE (PostgreSQL dùng '\' làm escape mặc định)
+    static String likePattern(String term) {
+        return "%" + term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
@@ -1,31 +1,52 @@
 package com.example.mini_project.service;
 
+import com.example.mini_project.config.ReadWriteRoutingDataSource;
 import com.example.mini_project.entities.user.User;
 import com.example.mini_project.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.Optional;
 
 // cần tạo thêm class này và class UserDetails để có thể lưu trữ thông tin User mỗi khi client log in hoặc sign in
 @Service
 @Slf4j
-public class CustomUserDetailService implements UserDetailsService {
+public class CustomUserDetailService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
 
+    // Principal cho request đã có JWT hợp lệ, tránh query users + user_roles ở mỗi request.
+    // Chỉ cache trong JVM: node khác thấy thay đổi role/mật khẩu sau tối đa một TTL.
+    private final Cache<String, UserDetails> principalCache;
+
     @Autowired
-    public CustomUserDetailService(UserRepository userRepository) {
+    public CustomUserDetailService(UserRepository userRepository,
+                                   @Value("${app.security.principal-cache.ttl-ms:60000}") long principalTtlMs,
+                                   @Value("${app.security.principal-cache.max-size:10000}") long principalMaxSize,
+                                   @Value("${spring.app.jwtExpirationMs}") long jwtExpirationMs) {
         log.info("Đang khởi tạo CustomUserDetailsSerrvice...");
         this.userRepository = userRepository;
+        // TTL phải ngắn hơn thời hạn token
+        long ttlMs = Math.max(1, Math.min(principalTtlMs, jwtExpirationMs / 2));
+        this.principalCache = Caffeine.newBuilder()
+                .maximumSize(principalMaxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Optional<User> userOptional = userRepository.findByUsername(username);
+        // Luôn đọc primary: kết quả được cache ở loadPrincipal, và mật khẩu/role vừa đổi phải có hiệu lực ngay
+        Optional<User> userOptional = ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findByUsername(username));
         if (userOptional.isEmpty()) {
             throw new UsernameNotFoundException("User không tìm thấy theo username: " + username);
         }
@@ -36,4 +57,40 @@ public class CustomUserDetailService implements UserDetailsService {
                 user.getAuthorities()
         );
     }
+
+    /**
+     * Principal cho AuthTokenFilter, đi qua cache. Không giữ password hash trong cache.
+     * Đăng nhập (kiểm tra mật khẩu) vẫn dùng {@link #loadUserByUsername} và luôn đọc DB.
+     */
+    public UserDetails loadPrincipal(String username) throws UsernameNotFoundException {
+        return principalCache.get(username, key -> {
+            UserDetails userDetails = loadUserByUsername(key);
+            return org.springframework.security.core.userdetails.User.withUsername(userDetails.getUsername())
+                    .password("")
+                    .authorities(userDetails.getAuthorities())
+                    .build();
+        });
+    }
+
+    /**
+     * Spring Security gọi sau khi đăng nhập thành công mà hash đang lưu có cost khác app.security.bcrypt.strength.
+     * newPassword là hash mới đã được encode.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        userRepository.findByUsername(userDetails.getUsername()).ifPresent(user -> {
+            user.setPassword(newPassword);
+            userRepository.save(user);
+        });
+        evictPrincipal(userDetails.getUsername());
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+
+    // Gọi khi role/mật khẩu thay đổi hoặc user bị xóa
+    public void evictPrincipal(String username) {
+        principalCache.invalidate(username);
+    }
 }
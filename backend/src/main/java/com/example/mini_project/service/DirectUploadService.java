@@ -0,0 +1,121 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.file.PresignedUploadDTO;
+import com.example.mini_project.entities.file.UploadRequestDTO;
+import com.example.mini_project.entities.file.UploadedFileDTO;
+import com.example.mini_project.entities.file.UploadedObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Upload 2 bước: client xin presigned PUT URL, upload thẳng lên S3, rồi gọi endpoint complete.
+ * File không đi qua Tomcat nên backend không phải buffer multipart và upload lại lên S3.
+ * Mỗi key được hẹn xóa trong s3_deletion_outbox ngay khi ký URL (sau khi URL hết hạn + pending-cleanup-delay),
+ * complete bỏ hẹn đó; client bỏ dở (đóng tab, complete lỗi) thì S3DeletionWorker dọn object.
+ * Các hàm ở đây ném IllegalArgumentException với message cho client khi request không hợp lệ.
+ */
+@Slf4j
+@Service
+public class DirectUploadService {
+    private static final String DEFAULT_CONTENT_TYPE = "application/pdf";
+
+    private final S3Service s3Service;
+    private final S3DeletionService s3DeletionService;
+
+    @Value("${app.upload.max-file-bytes:10485760}")
+    private long maxFileBytes;
+
+    @Value("${app.upload.max-files-per-request:10}")
+    private int maxFilesPerRequest;
+
+    @Value("${app.upload.presign-ttl-seconds:900}")
+    private long presignTtlSeconds;
+
+    // Thời gian chờ thêm sau khi URL hết hạn, để complete gọi trễ vẫn kịp bỏ hẹn xóa
+    @Value("${app.upload.pending-cleanup-delay-seconds:86400}")
+    private long pendingCleanupDelaySeconds;
+
+    public DirectUploadService(S3Service s3Service, S3DeletionService s3DeletionService) {
+        this.s3Service = s3Service;
+        this.s3DeletionService = s3DeletionService;
+    }
+
+    /**
+     * Tạo presigned PUT URL cho từng file, key nằm dưới keyPrefix để bước complete kiểm tra được quyền sở hữu.
+     */
+    public List<PresignedUploadDTO> presignUploads(String keyPrefix, List<UploadRequestDTO> files) {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("Cần ít nhất một file");
+        }
+        if (files.size() > maxFilesPerRequest) {
+            throw new IllegalArgumentException("Tối đa " + maxFilesPerRequest + " file mỗi lần upload");
+        }
+        List<PresignedUploadDTO> result = new ArrayList<>();
+        for (UploadRequestDTO file : files) {
+            if (file == null || file.filename() == null || file.filename().isBlank()) {
+                throw new IllegalArgumentException("Thiếu tên file");
+            }
+            if (file.fileSize() == null || file.fileSize() <= 0 || file.fileSize() > maxFileBytes) {
+                throw new IllegalArgumentException("Kích thước file không hợp lệ: " + file.filename());
+            }
+            String contentType = file.contentType() == null || file.contentType().isBlank()
+                    ? DEFAULT_CONTENT_TYPE : file.contentType();
+            String s3Key = keyPrefix + UUID.randomUUID() + "-" + sanitize(file.filename());
+            PresignedPutObjectRequest presigned = s3Service.presignUpload(
+                    s3Key, contentType, file.fileSize(), Duration.ofSeconds(presignTtlSeconds));
+            result.add(new PresignedUploadDTO(s3Key, presigned.url().toString(), contentType, presigned.expiration()));
+        }
+        s3DeletionService.schedule(result.stream().map(PresignedUploadDTO::s3Key).toList(),
+                Duration.ofSeconds(presignTtlSeconds + pendingCleanupDelaySeconds));
+        return result;
+    }
+
+    /**
+     * Kiểm tra các file client báo đã upload: key phải thuộc keyPrefix, object phải tồn tại (HEAD)
+     * và không vượt quá giới hạn kích thước. Object quá lớn bị xóa khỏi S3.
+     * Bỏ hẹn xóa của các key hợp lệ, nên phải gọi trong transaction lưu dòng file của chúng.
+     */
+    public List<UploadedObject> verifyUploads(String keyPrefix, List<UploadedFileDTO> files) {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("Cần ít nhất một file");
+        }
+        if (files.size() > maxFilesPerRequest) {
+            throw new IllegalArgumentException("Tối đa " + maxFilesPerRequest + " file mỗi lần upload");
+        }
+        Set<String> seen = new HashSet<>();
+        List<UploadedObject> result = new ArrayList<>();
+        for (UploadedFileDTO file : files) {
+            if (file == null || file.s3Key() == null || !file.s3Key().startsWith(keyPrefix)
+                    || !seen.add(file.s3Key())) {
+                throw new IllegalArgumentException("File upload không hợp lệ");
+            }
+            HeadObjectResponse head = s3Service.headObject(file.s3Key())
+                    .orElseThrow(() -> new IllegalArgumentException("File chưa được upload lên S3: " + file.filename()));
+            if (head.contentLength() == null || head.contentLength() > maxFileBytes) {
+                log.warn("Direct upload vượt quá giới hạn, xóa object: {}", file.s3Key());
+                s3Service.deleteObject(file.s3Key());
+                throw new IllegalArgumentException("File vượt quá kích thước cho phép: " + file.filename());
+            }
+            String filename = file.filename() == null || file.filename().isBlank()
+                    ? file.s3Key().substring(file.s3Key().lastIndexOf('/') + 1) : file.filename();
+            result.add(new UploadedObject(file.s3Key(), filename, head.contentType(), head.contentLength()));
+        }
+        s3DeletionService.cancel(result.stream().map(UploadedObject::s3Key).toList());
+        return result;
+    }
+
+    // helper: tên file không được chứa '/', tránh làm lệch prefix của key
+    private String sanitize(String filename) {
+        return filename.replace('/', '_').replace('\\', '_');
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.mini_project.service;
+
+import java.util.Locale;
+
+/**
+ * Định dạng của báo cáo điểm cả course (/courses/{id}/gradebook?format=).
+ */
+public enum GradebookFormat {
+    // Dòng đầu là header, mỗi học sinh một dòng, cột điểm theo thứ tự assignment
+    CSV("text/csv;charset=UTF-8", "csv"),
+    // Mỗi học sinh một object JSON trên một dòng
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    GradebookFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    // null nếu không hợp lệ
+    public static GradebookFormat from(String value) {
+        if (value == null || value.isBlank()) return CSV;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
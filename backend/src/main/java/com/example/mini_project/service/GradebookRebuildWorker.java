@@ -0,0 +1,50 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.repositories.CourseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Định kỳ tính lại tổng điểm của từng course từ submission và so với giá trị đang lưu.
+ * Mỗi course chạy trong transaction riêng của GradebookService.rebuildCourse.
+ */
+@Slf4j
+@Component
+public class GradebookRebuildWorker {
+    private final GradebookService gradebookService;
+    private final CourseRepository courseRepository;
+    private final int batchSize;
+
+    public GradebookRebuildWorker(GradebookService gradebookService, CourseRepository courseRepository,
+                                  @Value("${app.gradebook.rebuild-batch-size:500}") int batchSize) {
+        this.gradebookService = gradebookService;
+        this.courseRepository = courseRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${app.gradebook.rebuild-cron:0 30 3 * * *}")
+    public void rebuildAll() {
+        long afterId = 0;
+        int courses = 0;
+        int corrected = 0;
+        List<Long> courseIds;
+        do {
+            courseIds = courseRepository.findIdPage(afterId, Limit.of(batchSize));
+            for (Long courseId : courseIds) {
+                try {
+                    corrected += gradebookService.rebuildCourse(courseId);
+                } catch (RuntimeException e) {
+                    log.error("Rebuild gradebook course {} thất bại", courseId, e);
+                }
+                courses++;
+                afterId = courseId;
+            }
+        } while (courseIds.size() == batchSize);
+        log.info("Rebuild gradebook: {} course, {} tổng điểm bị sửa", courses, corrected);
+    }
+}
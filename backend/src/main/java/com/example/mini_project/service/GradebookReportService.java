@@ -0,0 +1,235 @@
+package com.example.mini_project.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Báo cáo điểm của mọi học sinh trong một course: điểm từng assignment và tổng điểm có trọng số.
+ * Một query duy nhất, sắp theo user, đọc bằng cursor forward-only (fetch-size) và ghi thẳng ra response,
+ * mỗi lúc chỉ giữ điểm của một học sinh nên bộ nhớ không tăng theo số học sinh.
+ */
+@Service
+public class GradebookReportService {
+    private static final String ASSIGNMENTS_QUERY =
+            "SELECT id, assignment_name, assignment_weight FROM assignments WHERE course_id = ? ORDER BY id";
+
+    // Học sinh chưa nộp bài nào vẫn có một dòng (assignment_id null) nhờ LEFT JOIN
+    private static final String GRADES_QUERY = """
+            SELECT u.id AS user_id, u.username, u.first_name, u.last_name, s.assignment_id, s.grade
+            FROM user_course uc
+            JOIN users u ON u.id = uc.user_id
+            LEFT JOIN submissions s ON s.user_id = uc.user_id
+                AND s.assignment_id IN (SELECT a.id FROM assignments a WHERE a.course_id = uc.course_id)
+            WHERE uc.course_id = ? AND uc.role = 'STUDENT'
+            ORDER BY u.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+
+    public GradebookReportService(DataSource dataSource, JsonMapper jsonMapper,
+                                  @Value("${app.gradebook.report.fetch-size:500}") int fetchSize) {
+        // JdbcTemplate riêng để đặt fetch-size: PostgreSQL chỉ đọc theo cursor khi có fetch-size và đang trong transaction
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.jsonMapper = jsonMapper;
+    }
+
+    record AssignmentColumn(long id, String name, double weight) {
+    }
+
+    @Transactional(readOnly = true)
+    public void write(Long courseId, GradebookFormat format, OutputStream out) throws IOException {
+        List<AssignmentColumn> columns = jdbcTemplate.query(ASSIGNMENTS_QUERY, (rs, rowNum) -> new AssignmentColumn(
+                rs.getLong("id"), rs.getString("assignment_name"), rs.getDouble("assignment_weight")), courseId);
+        Map<Long, Integer> columnIndex = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) columnIndex.put(columns.get(i).id(), i);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        ReportWriter report = format == GradebookFormat.NDJSON
+                ? new NdjsonReportWriter(writer, columns, jsonMapper)
+                : new CsvReportWriter(writer, columns);
+        report.header();
+        try {
+            jdbcTemplate.query(GRADES_QUERY, (RowCallbackHandler) rs -> report.accept(rs, columnIndex), courseId);
+            report.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    static final class StudentRow {
+        final long userId;
+        final String username;
+        final String firstname;
+        final String lastname;
+        final Double[] grades;
+
+        StudentRow(ResultSet rs, int columnCount) throws SQLException {
+            this.userId = rs.getLong("user_id");
+            this.username = rs.getString("username");
+            this.firstname = rs.getString("first_name");
+            this.lastname = rs.getString("last_name");
+            this.grades = new Double[columnCount];
+        }
+
+        // Cùng công thức với GradebookService: SUM(grade * weight / 100), bài chưa chấm không tính
+        double total(List<AssignmentColumn> columns) {
+            double total = 0;
+            for (int i = 0; i < grades.length; i++) {
+                if (grades[i] != null) total += grades[i] * columns.get(i).weight() / 100;
+            }
+            return total;
+        }
+    }
+
+    private abstract static class ReportWriter {
+        final Writer writer;
+        final List<AssignmentColumn> columns;
+
+        ReportWriter(Writer writer, List<AssignmentColumn> columns) {
+            this.writer = writer;
+            this.columns = columns;
+        }
+
+        private StudentRow current;
+
+        abstract void header();
+
+        // Các dòng của một học sinh liền nhau (ORDER BY user), gặp học sinh mới thì ghi học sinh trước ra
+        void accept(ResultSet rs, Map<Long, Integer> columnIndex) throws SQLException {
+            long userId = rs.getLong("user_id");
+            if (current == null || current.userId != userId) {
+                finish();
+                current = new StudentRow(rs, columns.size());
+            }
+            Integer index = columnIndex.get(rs.getLong("assignment_id"));
+            double grade = rs.getDouble("grade");
+            if (index != null && !rs.wasNull()) current.grades[index] = grade;
+        }
+
+        void finish() {
+            if (current != null) row(current);
+            current = null;
+        }
+
+        abstract void row(StudentRow student);
+
+        void writeLine(String line) {
+            try {
+                writer.write(line);
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class CsvReportWriter extends ReportWriter {
+        CsvReportWriter(Writer writer, List<AssignmentColumn> columns) {
+            super(writer, columns);
+        }
+
+        @Override
+        void header() {
+            // BOM để Excel đọc đúng tên tiếng Việt
+            List<String> cells = new ArrayList<>(List.of("\uFEFFuser_id", "username", "firstname", "lastname"));
+            columns.forEach(column -> cells.add(column.name() + " (" + column.weight() + "%)"));
+            cells.add("total");
+            writeLine(join(cells));
+        }
+
+        @Override
+        void row(StudentRow student) {
+            List<String> cells = new ArrayList<>(List.of(Long.toString(student.userId),
+                    nullToEmpty(student.username), nullToEmpty(student.firstname), nullToEmpty(student.lastname)));
+            Arrays.stream(student.grades).forEach(grade -> cells.add(grade == null ? "" : grade.toString()));
+            cells.add(Double.toString(student.total(columns)));
+            writeLine(join(cells));
+        }
+
+        private static String join(List<String> cells) {
+            return String.join(",", cells.stream().map(CsvReportWriter::escape).toList());
+        }
+
+        // Quote theo RFC 4180; chặn công thức (=, +, -, @, hoặc TAB/CR đứng trước chúng) khi mở bằng Excel.
+        // Số âm như -1.5 vẫn giữ nguyên; parseDouble bỏ qua khoảng trắng đầu nên TAB/CR luôn được chặn riêng
+        static String escape(String value) {
+            if (!value.isEmpty() && isFormulaStart(value)) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+            return value;
+        }
+
+        private static boolean isFormulaStart(String value) {
+            char first = value.charAt(0);
+            return first == '\t' || first == '\r' || ("=+-@".indexOf(first) >= 0 && !isNumber(value));
+        }
+
+        private static boolean isNumber(String value) {
+            try {
+                Double.parseDouble(value);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private static String nullToEmpty(String value) {
+            return value == null ? "" : value;
+        }
+    }
+
+    private static class NdjsonReportWriter extends ReportWriter {
+        private final JsonMapper jsonMapper;
+
+        NdjsonReportWriter(Writer writer, List<AssignmentColumn> columns, JsonMapper jsonMapper) {
+            super(writer, columns);
+            this.jsonMapper = jsonMapper;
+        }
+
+        @Override
+        void header() {
+        }
+
+        @Override
+        void row(StudentRow student) {
+            // Key là assignment id, giữ thứ tự assignment
+            Map<String, Double> grades = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size(); i++) grades.put(Long.toString(columns.get(i).id()), student.grades[i]);
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("userId", student.userId);
+            line.put("username", student.username);
+            line.put("firstname", student.firstname);
+            line.put("lastname", student.lastname);
+            line.put("grades", grades);
+            line.put("total", student.total(columns));
+            writeLine(jsonMapper.writeValueAsString(line));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.submission.Submission;
+import com.example.mini_project.entities.usercourse.WeightedScoreRow;
+import com.example.mini_project.repositories.CourseRepository;
+import com.example.mini_project.repositories.UserCourseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tổng điểm có trọng số (SUM grade * weight / 100) của mỗi user trong mỗi course, lưu trên user_course.
+ * Được cộng dồn bằng UPDATE trong cùng transaction với thay đổi gây ra nó (chấm điểm, đổi trọng số, xóa
+ * submission/assignment), nên đọc tổng điểm chỉ là tra một dòng theo (user_id, course_id).
+ * GradebookRebuildWorker định kỳ tính lại từ submission để kiểm tra và sửa sai lệch.
+ */
+@Slf4j
+@Service
+public class GradebookService {
+    // Sai số làm tròn của double khi cộng dồn nhiều lần
+    static final double TOLERANCE = 1e-6;
+
+    private static final String ADD_WEIGHTED_SCORE_SQL =
+            "UPDATE user_course SET weighted_score = weighted_score + ? WHERE user_id = ? AND course_id = ?";
+    private static final String LOCK_WEIGHTED_SCORES_SQL =
+            "SELECT user_id, weighted_score FROM user_course WHERE course_id = ? ORDER BY user_id FOR UPDATE";
+
+    private final UserCourseRepository userCourseRepository;
+    private final CourseRepository courseRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter corrections;
+
+    public GradebookService(UserCourseRepository userCourseRepository, CourseRepository courseRepository,
+                            JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.userCourseRepository = userCourseRepository;
+        this.courseRepository = courseRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.corrections = Counter.builder("gradebook.rebuild.corrected")
+                .description("Số tổng điểm lệch so với submission bị job rebuild sửa lại")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tổng điểm của user trong course. User không còn trong course (đã rút) thì tính trực tiếp từ submission.
+     */
+    @Transactional(readOnly = true)
+    public double getTotal(Long userId, Long courseId) {
+        return userCourseRepository.findWeightedScore(userId, courseId)
+                .orElseGet(() -> courseRepository.getTotalWeightedScore(userId, courseId));
+    }
+
+    /**
+     * Giá trị ban đầu cho user_course mới: 0, trừ khi user đã có bài được chấm từ lần học trước.
+     */
+    public double initialTotal(Long userId, Long courseId) {
+        return courseRepository.getTotalWeightedScore(userId, courseId);
+    }
+
+    // Gọi sau khi submission.grade đã được đổi từ previousGrade
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onGradeChanged(Submission submission, Double previousGrade) {
+        Assignment assignment = submission.getAssignment();
+        double delta = (valueOf(submission.getGrade()) - valueOf(previousGrade))
+                * valueOf(assignment.getAssignmentWeight()) / 100;
+        if (delta != 0) {
+            userCourseRepository.addWeightedScore(submission.getUser().getId(), assignment.getCourse().getId(), delta);
+        }
+    }
+
+    /**
+     * Như onGradeChanged cho nhiều submission của cùng một assignment (chấm hàng loạt).
+     * previousGrades theo submission id; các UPDATE user_course được gửi chung một JDBC batch.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onGradesChanged(Assignment assignment, List<Submission> submissions, Map<Long, Double> previousGrades) {
+        double weight = valueOf(assignment.getAssignmentWeight());
+        Map<Long, Double> deltaByUser = new LinkedHashMap<>();
+        for (Submission submission : submissions) {
+            double delta = (valueOf(submission.getGrade()) - valueOf(previousGrades.get(submission.getId()))) * weight / 100;
+            if (delta != 0) deltaByUser.merge(submission.getUser().getId(), delta, Double::sum);
+        }
+        if (deltaByUser.isEmpty()) return;
+        Long courseId = assignment.getCourse().getId();
+        List<Object[]> batch = new ArrayList<>(deltaByUser.size());
+        deltaByUser.forEach((userId, delta) -> batch.add(new Object[]{delta, userId, courseId}));
+        jdbcTemplate.batchUpdate(ADD_WEIGHTED_SCORE_SQL, batch);
+    }
+
+    // Gọi sau khi assignment.assignmentWeight đã được đổi từ previousWeight
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onWeightChanged(Assignment assignment, Double previousWeight) {
+        double weightDelta = valueOf(assignment.getAssignmentWeight()) - valueOf(previousWeight);
+        if (weightDelta != 0) {
+            userCourseRepository.addAssignmentWeightDelta(
+                    assignment.getCourse().getId(), assignment.getId(), weightDelta);
+        }
+    }
+
+    // Gọi trước khi xóa submission
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onSubmissionDeleted(Submission submission) {
+        Double previousGrade = submission.getGrade();
+        if (previousGrade == null) return;
+        Assignment assignment = submission.getAssignment();
+        double delta = -previousGrade * valueOf(assignment.getAssignmentWeight()) / 100;
+        if (delta != 0) {
+            userCourseRepository.addWeightedScore(submission.getUser().getId(), assignment.getCourse().getId(), delta);
+        }
+    }
+
+    // Gọi trước khi xóa các submission của assignment
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onAssignmentDeleted(Assignment assignment) {
+        double weight = valueOf(assignment.getAssignmentWeight());
+        if (weight != 0) {
+            userCourseRepository.addAssignmentWeightDelta(assignment.getCourse().getId(), assignment.getId(), -weight);
+        }
+    }
+
+    /**
+     * Tính lại tổng điểm của cả course từ submission, sửa các dòng bị lệch. Trả về số dòng đã sửa.
+     * Khóa các dòng user_course của course trước khi tính: mọi thay đổi điểm đều UPDATE user_course trong
+     * transaction của nó, nên thay đổi đó hoặc đã commit trước khi tính lại, hoặc phải chờ rebuild xong.
+     * Không khóa thì một lần chấm commit giữa lúc tính và lúc đọc giá trị lưu sẽ bị ghi đè bằng số cũ.
+     */
+    @Transactional
+    public int rebuildCourse(Long courseId) {
+        List<WeightedScoreRow> stored = new ArrayList<>();
+        jdbcTemplate.query(LOCK_WEIGHTED_SCORES_SQL, (RowCallbackHandler) resultSet -> stored.add(new WeightedScoreRow(
+                resultSet.getLong("user_id"), resultSet.getDouble("weighted_score"))), courseId);
+        Map<Long, Double> expected = new HashMap<>();
+        for (WeightedScoreRow row : userCourseRepository.computeWeightedScores(courseId)) {
+            expected.put(row.userId(), row.weightedScore());
+        }
+        int corrected = 0;
+        for (WeightedScoreRow row : stored) {
+            double actual = expected.getOrDefault(row.userId(), 0.0);
+            if (Math.abs(actual - valueOf(row.weightedScore())) > TOLERANCE) {
+                log.warn("Gradebook lệch: user {} course {} lưu {} nhưng tính lại được {}",
+                        row.userId(), courseId, row.weightedScore(), actual);
+                userCourseRepository.setWeightedScore(row.userId(), courseId, actual);
+                corrected++;
+            }
+        }
+        corrections.increment(corrected);
+        return corrected;
+    }
+
+    private static double valueOf(Double value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.mini_project.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Tầng cache PDF trên disk của từng node, nằm trước Redis (file_pdf).
+ * File được ghi một lần rồi phục vụ bằng FileChannel.transferTo, nên dữ liệu đi từ page cache
+ * ra response mà không cần gọi Redis hay tạo byte[] mới. Giới hạn tổng dung lượng, bỏ file ít dùng nhất (LRU).
+ * s3Key không bao giờ bị ghi đè nội dung (UUID hoặc hash), nên node khác có giữ bản cũ của file đã xóa
+ * cũng không trả sai dữ liệu; bản đó chỉ chiếm chỗ cho tới khi bị LRU bỏ.
+ */
+@Slf4j
+@Component
+public class LocalBlobCache {
+    private static final Pattern CACHE_FILE = Pattern.compile("[0-9a-f]{32}\\.pdf|put-.*\\.tmp");
+
+    private final Path directory;
+    private final long maxBytes;
+    private final boolean enabled;
+    // access-order: phần tử đầu là file lâu nhất chưa được đọc
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public LocalBlobCache(@Value("${app.pdf.local-cache.dir:${java.io.tmpdir}/mini-project-pdf-cache}") Path directory,
+                          @Value("${app.pdf.local-cache.max-bytes:268435456}") long maxBytes,
+                          @Value("${app.pdf.local-cache.enabled:true}") boolean enabled) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.enabled = enabled;
+        if (enabled) {
+            // Index chỉ nằm trong bộ nhớ, nên xóa các file cache còn lại từ lần chạy trước
+            Files.createDirectories(directory);
+            try (Stream<Path> leftovers = Files.list(directory)) {
+                for (Path path : leftovers.toList()) {
+                    if (CACHE_FILE.matcher(path.getFileName().toString()).matches()) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Kích thước file đang cache, -1 nếu chưa có. Đánh dấu file vừa được dùng.
+     */
+    public long size(String s3Key) {
+        if (!enabled) return -1;
+        synchronized (entries) {
+            Long size = entries.get(s3Key);
+            return size == null ? -1 : size;
+        }
+    }
+
+    /**
+     * Ghi count byte bắt đầu từ position ra out. Trả về false nếu file không còn trong cache hoặc ngắn hơn
+     * đoạn cần đọc (khi đó chưa có byte nào được ghi, caller lấy từ Redis/S3).
+     * Nếu đã ghi một phần rồi mới thiếu dữ liệu thì ném IOException, vì response không thể sửa lại được nữa.
+     */
+    public boolean transferTo(String s3Key, long position, long count, OutputStream out) throws IOException {
+        if (!enabled) return false;
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(pathFor(s3Key), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            // Index còn key nhưng file đã mất: bỏ key để put sau đó ghi lại file, thay vì miss mãi
+            evict(s3Key);
+            return false;
+        }
+        // File đã mở vẫn đọc được kể cả khi bị evict (unlink) trong lúc đang gửi
+        try (channel) {
+            // File bị cắt ngắn trên disk (hết chỗ, bị sửa từ bên ngoài): bỏ khỏi cache để lần sau ghi lại
+            if (channel.size() < position + count) {
+                log.warn("File cache local của {} ngắn hơn dự kiến ({} < {}), bỏ qua", s3Key, channel.size(), position + count);
+                evict(s3Key);
+                return false;
+            }
+            WritableByteChannel target = Channels.newChannel(out);
+            long sent = 0;
+            while (sent < count) {
+                long n = channel.transferTo(position + sent, count - sent, target);
+                if (n <= 0) break;
+                sent += n;
+            }
+            if (sent < count) {
+                evict(s3Key);
+                throw new IOException("Chỉ gửi được " + sent + "/" + count + " byte từ cache local: " + s3Key);
+            }
+        }
+        return true;
+    }
+
+    public void put(String s3Key, byte[] bytes) {
+        if (!enabled || bytes.length > maxBytes) return;
+        synchronized (entries) {
+            if (entries.containsKey(s3Key)) return;
+        }
+        Path temp = null;
+        try {
+            // Ghi ra file tạm rồi rename, để reader không bao giờ thấy file ghi dở
+            temp = Files.createTempFile(directory, "put-", ".tmp");
+            Files.write(temp, bytes);
+            // Rename, cập nhật index và xóa file bị bỏ đều dưới khóa entries (như evict),
+            // nên một lần xóa của key cũ không thể xóa mất file vừa được put lại
+            synchronized (entries) {
+                if (entries.containsKey(s3Key)) return;
+                Files.move(temp, pathFor(s3Key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                entries.put(s3Key, (long) bytes.length);
+                totalBytes += bytes.length;
+                Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+                while (totalBytes > maxBytes && eldest.hasNext()) {
+                    Map.Entry<String, Long> entry = eldest.next();
+                    if (entry.getKey().equals(s3Key)) continue;
+                    totalBytes -= entry.getValue();
+                    deleteFile(entry.getKey());
+                    eldest.remove();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Không ghi được PDF vào cache local: {}", s3Key, e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // file tạm sẽ bị dọn ở lần khởi động sau
+                }
+            }
+        }
+    }
+
+    public void evict(String s3Key) {
+        if (!enabled) return;
+        synchronized (entries) {
+            Long size = entries.remove(s3Key);
+            if (size == null) return;
+            totalBytes -= size;
+            deleteFile(s3Key);
+        }
+    }
+
+    long totalBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private void deleteFile(String s3Key) {
+        try {
+            Files.deleteIfExists(pathFor(s3Key));
+        } catch (IOException e) {
+            log.warn("Không xóa được PDF khỏi cache local: {}", s3Key, e);
+        }
+    }
+
+    // s3Key có '/', dùng hash làm tên file
+    private Path pathFor(String s3Key) {
+        return directory.resolve(DigestUtils.md5DigestAsHex(s3Key.getBytes(StandardCharsets.UTF_8)) + ".pdf");
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.mini_project.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Upload nhiều file lên S3 song song trên một pool có giới hạn, để request nhiều file
+ * chỉ mất xấp xỉ thời gian của một lần PUT thay vì tổng tất cả.
+ * Pool được tạo nội bộ (không phải bean Executor) để không thay thế task executor mặc định của Spring.
+ */
+@Slf4j
+@Service
+public class ParallelUploadService {
+    private final S3Service s3Service;
+    private final ContentAddressedStorage contentAddressedStorage;
+    private final S3DeletionService s3DeletionService;
+    private final ExecutorService executor;
+
+    public ParallelUploadService(S3Service s3Service,
+                                 ContentAddressedStorage contentAddressedStorage,
+                                 S3DeletionService s3DeletionService,
+                                 @Value("${app.upload.parallelism:8}") int parallelism,
+                                 @Value("${app.upload.queue-capacity:64}") int queueCapacity) {
+        this.s3Service = s3Service;
+        this.contentAddressedStorage = contentAddressedStorage;
+        this.s3DeletionService = s3DeletionService;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Khi queue đầy thì thread của request tự upload (back-pressure) thay vì từ chối
+        this.executor = new ThreadPoolExecutor(
+                parallelism, parallelism,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "s3-upload-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Upload files[i] lên keys[i] và trả về key thật của từng file (cùng thứ tự). Hàm chỉ trả về khi mọi upload đã kết thúc.
+     * Ở chế độ content-addressed, key thật là blobs/sha256/{hash}; phải gọi trong transaction sẽ lưu các dòng file
+     * vì số tham chiếu của blob được tăng ngay trong transaction đó.
+     * Nếu có file lỗi, các object đã upload thành công bị xóa và IOException được ném ra.
+     */
+    public List<String> uploadAll(List<String> keys, List<MultipartFile> files) throws IOException {
+        if (keys.size() != files.size()) {
+            throw new IllegalArgumentException("Số key và số file không khớp");
+        }
+        if (contentAddressedStorage.isEnabled()) {
+            return uploadContentAddressed(files);
+        }
+        List<Callable<String>> puts = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            String key = keys.get(i);
+            MultipartFile file = files.get(i);
+            puts.add(() -> {
+                put(key, file);
+                return key;
+            });
+        }
+        Outcome<String> outcome = runAll(puts);
+        if (outcome.failure() == null) return outcome.results();
+
+        // Rollback: xóa những object đã lên S3 để không bị mồ côi
+        for (String key : outcome.results()) {
+            if (key == null) continue;
+            try {
+                s3Service.deleteObject(key);
+            } catch (RuntimeException e) {
+                log.warn("Không xóa được object sau khi upload thất bại: {}", key, e);
+            }
+        }
+        throw asIOException(outcome.failure());
+    }
+
+    // Băm song song, tăng số tham chiếu trên thread của request (khóa dòng blobs tới khi transaction commit),
+    // rồi chỉ PUT các blob chưa có, mỗi blob một lần dù nhiều file cùng nội dung
+    private List<String> uploadContentAddressed(List<MultipartFile> files) throws IOException {
+        List<Callable<String>> hashes = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            hashes.add(() -> {
+                try (InputStream input = file.getInputStream()) {
+                    return ContentAddressedStorage.keyFor(ContentAddressedStorage.sha256(input));
+                }
+            });
+        }
+        Outcome<String> hashed = runAll(hashes);
+        if (hashed.failure() != null) throw asIOException(hashed.failure());
+        List<String> blobKeys = hashed.results();
+
+        Set<String> missing = contentAddressedStorage.acquire(blobKeys);
+        Map<String, MultipartFile> toUpload = new LinkedHashMap<>();
+        for (int i = 0; i < blobKeys.size(); i++) {
+            if (missing.contains(blobKeys.get(i))) toUpload.putIfAbsent(blobKeys.get(i), files.get(i));
+        }
+        List<Callable<String>> puts = new ArrayList<>(toUpload.size());
+        toUpload.forEach((key, file) -> puts.add(() -> {
+            put(key, file);
+            return key;
+        }));
+        Outcome<String> outcome = runAll(puts);
+        if (outcome.failure() == null) return blobKeys;
+
+        // Trả lại các tham chiếu vừa tăng: blob về 0 (kể cả blob vừa PUT xong) được worker xóa qua outbox
+        s3DeletionService.enqueue(blobKeys);
+        throw asIOException(outcome.failure());
+    }
+
+    private void put(String key, MultipartFile file) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            s3Service.uploadFile(key, input, file.getSize(), file.getContentType());
+        }
+    }
+
+    // Kết quả theo thứ tự task, null ở vị trí task lỗi; failure là lỗi đầu tiên
+    private record Outcome<T>(List<T> results, Throwable failure) {
+    }
+
+    // Chạy song song trên pool và chờ mọi task kết thúc, kể cả khi có task lỗi
+    private <T> Outcome<T> runAll(List<Callable<T>> tasks) {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        Throwable failure = null;
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Future<T> future : futures) {
+            T result = null;
+            try {
+                result = future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) failure = e;
+            }
+            results.add(result);
+        }
+        return new Outcome<>(results, failure);
+    }
+
+    private static IOException asIOException(Throwable failure) {
+        if (failure instanceof IOException ioException) return ioException;
+        return new IOException("Upload file lên S3 thất bại", failure);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.mini_project.service;
+
+/**
+ * Cách endpoint /pdf trả file về cho client (app.pdf.download-mode).
+ */
+public enum PdfDownloadMode {
+    // Backend stream file từ S3/Redis về client
+    STREAM,
+    // Trả 302 tới presigned URL của S3
+    REDIRECT,
+    // Trả presigned URL trong ResponseDTO
+    JSON
+}
@@ -0,0 +1,170 @@
+package com.example.mini_project.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Chống cache stampede cho file_pdf khi nhiều request cùng miss một s3Key (vd. vừa publish assignment).
+ * Trong một JVM: các request miss cùng key chờ chung một lần fetch (single-flight).
+ * Giữa các node: node nào lấy được lease ngắn trên Redis thì fetch và ghi cache, node khác chờ cache được ghi;
+ * hết thời gian chờ thì tự fetch từ S3 mà không ghi cache (stream through).
+ * Metric: pdf.cache.fetch{outcome=leader|coalesced|lease_wait|stream_through}.
+ */
+@Slf4j
+@Component
+public class PdfFetchCoalescer {
+    private static final String LEASE_PREFIX = UploadPdfService.PDF_CACHE + ":lease:";
+    // Chỉ xóa lease nếu vẫn là của mình (lease có thể đã hết hạn và bị node khác lấy)
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaderFetches;
+    private final Counter coalescedFetches;
+    private final Counter leaseWaits;
+    private final Counter streamThroughs;
+
+    @Value("${app.pdf.fetch-lease-ttl-ms:10000}")
+    private long leaseTtlMs = 10_000;
+
+    @Value("${app.pdf.fetch-lease-wait-ms:3000}")
+    private long leaseWaitMs = 3_000;
+
+    @Value("${app.pdf.fetch-lease-poll-ms:50}")
+    private long leasePollMs = 50;
+
+    /**
+     * @param redisTemplate null nghĩa là chỉ coalesce trong JVM (không dùng lease giữa các node)
+     */
+    public PdfFetchCoalescer(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.leaderFetches = counter(meterRegistry, "leader");
+        this.coalescedFetches = counter(meterRegistry, "coalesced");
+        this.leaseWaits = counter(meterRegistry, "lease_wait");
+        this.streamThroughs = counter(meterRegistry, "stream_through");
+    }
+
+    /**
+     * Đọc key từ cache, nếu miss thì fetch đúng một lần cho mỗi key trong JVM này.
+     */
+    public byte[] load(Cache cache, String key, Supplier<byte[]> fetcher) {
+        byte[] cached = cache.get(key, byte[].class);
+        if (cached != null) return cached;
+
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalescedFetches.increment();
+            return join(existing);
+        }
+        try {
+            byte[] bytes = fill(cache, key, fetcher);
+            mine.complete(bytes);
+            return bytes;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private byte[] fill(Cache cache, String key, Supplier<byte[]> fetcher) {
+        if (redisTemplate == null) {
+            return fetchAndCache(cache, key, fetcher);
+        }
+        String leaseKey = LEASE_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        Boolean acquired;
+        try {
+            acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey, token, Duration.ofMillis(leaseTtlMs));
+        } catch (DataAccessException e) {
+            log.warn("Không lấy được lease Redis cho {}, fetch trực tiếp", key, e);
+            return fetchAndCache(cache, key, fetcher);
+        }
+
+        if (Boolean.TRUE.equals(acquired)) {
+            try {
+                // Node khác có thể vừa ghi cache giữa lần đọc đầu và lúc lấy lease
+                byte[] cached = cache.get(key, byte[].class);
+                return cached != null ? cached : fetchAndCache(cache, key, fetcher);
+            } finally {
+                release(leaseKey, token);
+            }
+        }
+
+        byte[] filled = awaitCache(cache, key);
+        if (filled != null) {
+            leaseWaits.increment();
+            return filled;
+        }
+        log.info("Chờ lease quá {} ms, fetch PDF không qua cache: {}", leaseWaitMs, key);
+        streamThroughs.increment();
+        return fetcher.get();
+    }
+
+    private byte[] fetchAndCache(Cache cache, String key, Supplier<byte[]> fetcher) {
+        leaderFetches.increment();
+        byte[] bytes = fetcher.get();
+        cache.put(key, bytes);
+        return bytes;
+    }
+
+    private byte[] awaitCache(Cache cache, String key) {
+        long deadline = System.nanoTime() + Duration.ofMillis(leaseWaitMs).toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(leasePollMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            byte[] cached = cache.get(key, byte[].class);
+            if (cached != null) return cached;
+        }
+        return null;
+    }
+
+    private void release(String leaseKey, String token) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey), token);
+        } catch (DataAccessException e) {
+            log.warn("Không trả được lease Redis {}, sẽ tự hết hạn", leaseKey, e);
+        }
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw e;
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("pdf.cache.fetch")
+                .description("Số lần xử lý cache miss của file_pdf theo kết quả")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
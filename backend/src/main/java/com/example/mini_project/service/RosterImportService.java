@@ -0,0 +1,229 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.usercourse.RosterImportProgressDTO;
+import com.example.mini_project.entities.usercourse.RosterRowErrorDTO;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Import danh sách học sinh (CSV, cột đầu là username) vào một course.
+ * Đọc từng dòng, mỗi chunk: một query IN để lấy user id, rồi INSERT user_course theo JDBC batch
+ * (UserCourse dùng IDENTITY nên Hibernate không batch được). Membership đã có bị bỏ qua nhờ unique
+ * constraint (user_id, course_id). Mỗi chunk commit riêng và báo tiến độ qua Listener.
+ */
+@Slf4j
+@Service
+public class RosterImportService {
+    private static final String FIND_USERS_SQL = "SELECT id, username FROM users WHERE username IN (:usernames)";
+
+    // Tổng điểm ban đầu: user có thể đã có bài được chấm từ lần học trước (giống GradebookService.initialTotal)
+    private static final String INSERT_SELECT = """
+            INSERT INTO user_course (user_id, course_id, enrolled_date, role, weighted_score)
+            SELECT CAST(:userId AS BIGINT), CAST(:courseId AS BIGINT), CAST(:enrolledDate AS DATE), 'STUDENT',
+                COALESCE((SELECT SUM(s.grade * a.assignment_weight / 100) FROM submissions s
+                          JOIN assignments a ON a.id = s.assignment_id
+                          WHERE s.user_id = :userId AND a.course_id = :courseId), 0)
+            """;
+    private static final String POSTGRES_INSERT_SQL = INSERT_SELECT + " ON CONFLICT (user_id, course_id) DO NOTHING";
+    private static final String GENERIC_INSERT_SQL = INSERT_SELECT
+            + " WHERE NOT EXISTS (SELECT 1 FROM user_course uc WHERE uc.user_id = :userId AND uc.course_id = :courseId)";
+
+    public interface Listener {
+        void onRowError(RosterRowErrorDTO error);
+
+        void onProgress(RosterImportProgressDTO progress);
+    }
+
+    private record RosterRow(long line, String username) {
+    }
+
+    private static final class Tally {
+        long processed;
+        long enrolled;
+        long skipped;
+        long failed;
+
+        RosterImportProgressDTO toDTO(String type) {
+            return new RosterImportProgressDTO(type, processed, enrolled, skipped, failed);
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CourseMembershipService courseMembershipService;
+    private final JsonMapper jsonMapper;
+    private final int chunkSize;
+    private String insertSql = GENERIC_INSERT_SQL;
+
+    public RosterImportService(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               CourseMembershipService courseMembershipService, JsonMapper jsonMapper,
+                               @Value("${app.roster.import.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.courseMembershipService = courseMembershipService;
+        this.jsonMapper = jsonMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    @PostConstruct
+    void init() {
+        try {
+            String product = jdbcTemplate.getJdbcTemplate().execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            if ("PostgreSQL".equalsIgnoreCase(product)) insertSql = POSTGRES_INSERT_SQL;
+        } catch (DataAccessException e) {
+            log.warn("Roster import: không xác định được database, dùng INSERT ... WHERE NOT EXISTS", e);
+        }
+    }
+
+    /**
+     * Import rồi ghi kết quả ra out dạng NDJSON: mỗi dòng lỗi một object "error",
+     * sau mỗi chunk một object "progress", cuối cùng một object "done".
+     */
+    public void importRoster(Long courseId, Reader reader, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        Listener listener = new Listener() {
+            @Override
+            public void onRowError(RosterRowErrorDTO error) {
+                writeLine(error, false);
+            }
+
+            @Override
+            public void onProgress(RosterImportProgressDTO progress) {
+                // Flush để client thấy tiến độ ngay, không phải chờ hết file
+                writeLine(progress, true);
+            }
+
+            private void writeLine(Object value, boolean flush) {
+                try {
+                    writer.write(jsonMapper.writeValueAsString(value));
+                    writer.write('\n');
+                    if (flush) writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        try {
+            RosterImportProgressDTO done = importRoster(courseId, reader, listener);
+            listener.onProgress(done);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public RosterImportProgressDTO importRoster(Long courseId, Reader reader, Listener listener) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        Tally tally = new Tally();
+        List<RosterRow> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && line.startsWith("\uFEFF")) line = line.substring(1);
+            String username = firstField(line).trim();
+            if (username.isEmpty()) continue;
+            if (lineNumber == 1 && username.equalsIgnoreCase("username")) continue;
+            chunk.add(new RosterRow(lineNumber, username));
+            if (chunk.size() == chunkSize) {
+                importChunk(courseId, chunk, tally, listener);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) importChunk(courseId, chunk, tally, listener);
+        return tally.toDTO("done");
+    }
+
+    private void importChunk(Long courseId, List<RosterRow> chunk, Tally tally, Listener listener) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, Long> userIds = new HashMap<>();
+            jdbcTemplate.query(FIND_USERS_SQL,
+                    Map.of("usernames", chunk.stream().map(RosterRow::username).distinct().toList()),
+                    rs -> {
+                        userIds.put(rs.getString("username"), rs.getLong("id"));
+                    });
+
+            // Username trùng trong cùng chunk: chỉ insert lần đầu, các lần sau tính là bỏ qua
+            Map<String, RosterRow> toInsert = new LinkedHashMap<>();
+            for (RosterRow row : chunk) {
+                if (!userIds.containsKey(row.username())) {
+                    listener.onRowError(new RosterRowErrorDTO(row.line(), row.username(), "Không tìm thấy user"));
+                    tally.failed++;
+                } else if (toInsert.putIfAbsent(row.username(), row) != null) {
+                    tally.skipped++;
+                }
+            }
+
+            Date today = Date.valueOf(LocalDate.now());
+            List<String> usernames = new ArrayList<>(toInsert.keySet());
+            SqlParameterSource[] batch = usernames.stream()
+                    .map(username -> new MapSqlParameterSource("userId", userIds.get(username))
+                            .addValue("courseId", courseId)
+                            .addValue("enrolledDate", today))
+                    .toArray(SqlParameterSource[]::new);
+            int[] updated = batch.length == 0 ? new int[0] : jdbcTemplate.batchUpdate(insertSql, batch);
+            for (int i = 0; i < updated.length; i++) {
+                // 0 dòng: đã là thành viên course (ON CONFLICT DO NOTHING / NOT EXISTS)
+                if (updated[i] > 0 || updated[i] == Statement.SUCCESS_NO_INFO) {
+                    courseMembershipService.evict(usernames.get(i), courseId);
+                    tally.enrolled++;
+                } else {
+                    tally.skipped++;
+                }
+            }
+        });
+        tally.processed += chunk.size();
+        listener.onProgress(tally.toDTO("progress"));
+    }
+
+    // Cột đầu tiên của dòng CSV, bỏ dấu nháy kép nếu có (RFC 4180)
+    static String firstField(String line) {
+        if (!line.startsWith("\"")) {
+            int comma = line.indexOf(',');
+            return comma < 0 ? line : line.substring(0, comma);
+        }
+        StringBuilder field = new StringBuilder();
+        for (int i = 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    break;
+                }
+            } else {
+                field.append(c);
+            }
+        }
+        return field.toString();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.file.S3DeletionTask;
+import com.example.mini_project.repositories.S3DeletionTaskRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Xóa object S3 qua outbox: enqueue() ghi key vào bảng s3_deletion_outbox trong transaction của request,
+ * S3DeletionWorker gọi processBatch() để xóa theo batch bằng DeleteObjects. Key lỗi được retry với backoff tăng dần.
+ * Nhờ vậy request xóa assignment/course không giữ connection DB trong lúc gọi S3 từng key một.
+ */
+@Slf4j
+@Service
+public class S3DeletionService {
+    // Giới hạn của S3 DeleteObjects
+    static final int MAX_KEYS_PER_REQUEST = 1000;
+
+    private final S3DeletionTaskRepository taskRepository;
+    private final S3Service s3Service;
+    private final UploadPdfService uploadPdfService;
+    private final ContentAddressedStorage contentAddressedStorage;
+    private final int batchSize;
+
+    @Value("${app.s3.deletion.retry-base-seconds:30}")
+    private long retryBaseSeconds;
+
+    @Value("${app.s3.deletion.retry-max-seconds:3600}")
+    private long retryMaxSeconds;
+
+    public S3DeletionService(S3DeletionTaskRepository taskRepository,
+                             S3Service s3Service,
+                             UploadPdfService uploadPdfService,
+                             ContentAddressedStorage contentAddressedStorage,
+                             @Value("${app.s3.deletion.batch-size:1000}") int batchSize) {
+        this.taskRepository = taskRepository;
+        this.s3Service = s3Service;
+        this.uploadPdfService = uploadPdfService;
+        this.contentAddressedStorage = contentAddressedStorage;
+        this.batchSize = Math.min(Math.max(batchSize, 1), MAX_KEYS_PER_REQUEST);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Ghi các key cần xóa vào outbox, dùng chung transaction với việc xóa entity (rollback thì không xóa).
+     * Cache PDF và presigned URL của key bị bỏ ngay. Blob content-addressed thì mỗi key (lặp lại theo số file)
+     * trả lại một tham chiếu, chỉ vào outbox khi không còn file nào dùng.
+     */
+    @Transactional
+    public void enqueue(Collection<String> s3Keys) {
+        List<String> sharedKeys = s3Keys.stream().filter(ContentAddressedStorage::isContentAddressed).toList();
+        Set<String> unreferenced = sharedKeys.isEmpty() ? Set.of() : contentAddressedStorage.release(sharedKeys);
+        List<S3DeletionTask> tasks = new ArrayList<>();
+        for (String s3Key : new LinkedHashSet<>(s3Keys)) {
+            if (ContentAddressedStorage.isContentAddressed(s3Key)) {
+                if (!unreferenced.contains(s3Key)) continue;
+            } else {
+                uploadPdfService.evictFile(s3Key);
+            }
+            tasks.add(S3DeletionTask.of(s3Key));
+        }
+        taskRepository.saveAll(tasks);
+    }
+
+    /**
+     * Hẹn xóa các key sau delay: object của presigned PUT URL mà client có thể không bao giờ gọi complete.
+     * Key mới (UUID) nên không có cache hay refcount cần xử lý như enqueue().
+     */
+    @Transactional
+    public void schedule(Collection<String> s3Keys, Duration delay) {
+        LocalDateTime at = LocalDateTime.now().plus(delay);
+        taskRepository.saveAll(s3Keys.stream().map(key -> S3DeletionTask.of(key, at)).toList());
+    }
+
+    /**
+     * Bỏ hẹn xóa khi object đã được lưu vào DB. Phải chạy trong transaction lưu dòng file:
+     * rollback thì lịch xóa vẫn còn và object không bị bỏ lại trên S3.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cancel(Collection<String> s3Keys) {
+        if (s3Keys.isEmpty()) return;
+        taskRepository.deleteByS3KeyIn(s3Keys);
+    }
+
+    /**
+     * Lấy một batch task đến hạn (khóa bằng SKIP LOCKED), xóa bằng một request DeleteObjects.
+     * Task thành công bị xóa khỏi outbox, task lỗi được hẹn lại. Trả về số task đã xử lý.
+     */
+    @Transactional
+    public int processBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<S3DeletionTask> locked = taskRepository.lockDueTasks(now, batchSize);
+        if (locked.isEmpty()) return 0;
+
+        // Blob content-addressed: khóa dòng blobs tới hết transaction, chỉ xóa khi refcount vẫn là 0.
+        // Upload cùng nội dung đang chờ khóa sẽ thấy blob đã bị xóa và PUT lại
+        Set<String> sharedKeys = locked.stream()
+                .map(S3DeletionTask::getS3Key)
+                .filter(ContentAddressedStorage::isContentAddressed)
+                .collect(Collectors.toSet());
+        Set<String> unreferenced = sharedKeys.isEmpty() ? Set.of() : contentAddressedStorage.lockUnreferenced(sharedKeys);
+        List<S3DeletionTask> due = new ArrayList<>();
+        List<S3DeletionTask> referenced = new ArrayList<>();
+        for (S3DeletionTask task : locked) {
+            if (sharedKeys.contains(task.getS3Key()) && !unreferenced.contains(task.getS3Key())) {
+                referenced.add(task);
+            } else {
+                due.add(task);
+            }
+        }
+        taskRepository.deleteAll(referenced);
+        if (due.isEmpty()) return locked.size();
+
+        List<String> keys = due.stream().map(S3DeletionTask::getS3Key).distinct().toList();
+        Map<String, String> errors;
+        try {
+            errors = s3Service.deleteObjects(keys);
+        } catch (RuntimeException e) {
+            log.warn("DeleteObjects thất bại cho {} key, sẽ retry", keys.size(), e);
+            String message = String.valueOf(e.getMessage());
+            errors = new HashMap<>();
+            for (String key : keys) errors.put(key, message);
+        }
+
+        List<S3DeletionTask> done = new ArrayList<>();
+        List<S3DeletionTask> failed = new ArrayList<>();
+        for (S3DeletionTask task : due) {
+            String error = errors.get(task.getS3Key());
+            if (error == null) {
+                done.add(task);
+                continue;
+            }
+            task.setAttempts(task.getAttempts() + 1);
+            task.setNextAttemptAt(now.plusSeconds(backoffSeconds(task.getAttempts())));
+            task.setLastError(error.length() > 1024 ? error.substring(0, 1024) : error);
+            failed.add(task);
+        }
+        List<String> deletedBlobs = done.stream()
+                .map(S3DeletionTask::getS3Key)
+                .filter(ContentAddressedStorage::isContentAddressed)
+                .distinct()
+                .toList();
+        deletedBlobs.forEach(uploadPdfService::evictFile);
+        if (!deletedBlobs.isEmpty()) contentAddressedStorage.forget(deletedBlobs);
+        taskRepository.deleteAll(done);
+        taskRepository.saveAll(failed);
+        if (!failed.isEmpty()) {
+            log.warn("Không xóa được {} / {} object S3, sẽ retry", failed.size(), due.size());
+        }
+        return locked.size();
+    }
+
+    // 30s, 60s, 120s, ... tối đa retryMaxSeconds
+    long backoffSeconds(int attempts) {
+        int shift = Math.min(attempts - 1, 20);
+        return Math.min(retryBaseSeconds << shift, retryMaxSeconds);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.mini_project.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Định kỳ xả outbox xóa S3. Mỗi batch chạy trong transaction riêng của S3DeletionService,
+ * lặp lại đến khi batch không đầy (outbox đã hết task đến hạn).
+ */
+@Slf4j
+@Component
+public class S3DeletionWorker {
+    private final S3DeletionService s3DeletionService;
+
+    public S3DeletionWorker(S3DeletionService s3DeletionService) {
+        this.s3DeletionService = s3DeletionService;
+    }
+
+    @Scheduled(fixedDelayString = "${app.s3.deletion.poll-interval-ms:5000}")
+    public void drain() {
+        try {
+            int processed;
+            do {
+                processed = s3DeletionService.processBatch();
+            } while (processed >= s3DeletionService.getBatchSize());
+        } catch (RuntimeException e) {
+            log.error("Xử lý outbox xóa S3 thất bại", e);
+        }
+    }
+}
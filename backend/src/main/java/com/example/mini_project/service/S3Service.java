@@ -8,12 +8,38 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -22,6 +48,9 @@ public class S3Service {
     @Autowired
     private S3Client s3Client;
 
+    @Autowired
+    private S3Presigner s3Presigner;
+
     @Value("${aws.bucket.name}")
     private String bucketName;
 
@@ -31,10 +60,20 @@ public class S3Service {
                            InputStream inputStream,
                            Long contentLength,
                            String contentType) throws IOException {
+        uploadFile(key, inputStream, contentLength, contentType, null);
+    }
+
+    // checksumSha256 (base64, có thể null): S3 tính lại SHA-256 của body và từ chối nếu không khớp
+    public void uploadFile(String key,
+                           InputStream inputStream,
+                           Long contentLength,
+                           String contentType,
+                           String checksumSha256) throws IOException {
         PutObjectRequest request = PutObjectRequest.builder()
                 .bucket(bucketName)
                 .key(key)
                 .contentType(contentType)
+                .checksumSHA256(checksumSha256)
                 .build();
 
         s3Client.putObject(
@@ -43,6 +82,50 @@ public class S3Service {
         );
     }
 
+    // Multipart upload: mở upload, gửi từng part (>= 5MB trừ part cuối), rồi complete hoặc abort.
+    // Upload dùng checksum SHA-256: mỗi part phải kèm SHA-256 của nó, S3 từ chối part không khớp
+    public String createMultipartUpload(String key, String contentType) {
+        return s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .checksumAlgorithm(ChecksumAlgorithm.SHA256)
+                .build()).uploadId();
+    }
+
+    // checksumSha256: SHA-256 (base64) của data[0, length), được gửi lại trong CompletedPart khi complete
+    public CompletedPart uploadPart(String key, String uploadId, int partNumber, byte[] data, int length,
+                                    String checksumSha256) {
+        String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) length)
+                        .checksumSHA256(checksumSha256)
+                        .build(),
+                // provider tạo stream mới trên cùng buffer (không copy), SDK retry được
+                RequestBody.fromContentProvider(() -> new ByteArrayInputStream(data, 0, length),
+                        length, "application/octet-stream")).eTag();
+        return CompletedPart.builder().partNumber(partNumber).eTag(eTag).checksumSHA256(checksumSha256).build();
+    }
+
+    public void completeMultipartUpload(String key, String uploadId, List<CompletedPart> parts) {
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+    }
+
+    public void abortMultipartUpload(String key, String uploadId) {
+        s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .build());
+    }
 
     public InputStream downloadFile(String key) {
         return s3Client.getObject(GetObjectRequest.builder()
@@ -51,6 +134,55 @@ public class S3Service {
                 .build());
     }
 
+    // Lấy một đoạn byte [start, end] (inclusive) của object, dùng cho HTTP Range
+    public InputStream downloadRange(String key, long start, long end) {
+        return s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range("bytes=" + start + "-" + end)
+                .build());
+    }
+
+
+    // Tạo URL GET có thời hạn để client tải thẳng từ S3, không đi qua backend
+    public PresignedGetObjectRequest presignDownload(String key, String filename, Duration ttl) {
+        GetObjectRequest getRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .responseContentType("application/pdf")
+                .responseContentDisposition("inline; filename=\"" + filename + "\"")
+                .build();
+        return s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(ttl)
+                .getObjectRequest(getRequest)
+                .build());
+    }
+
+    // URL PUT có thời hạn, ký kèm Content-Type và Content-Length nên client không upload khác được
+    public PresignedPutObjectRequest presignUpload(String key, String contentType, Long contentLength, Duration ttl) {
+        PutObjectRequest putRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .build();
+        return s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(ttl)
+                .putObjectRequest(putRequest)
+                .build());
+    }
+
+    // HEAD object, trả về empty nếu object chưa tồn tại
+    public Optional<HeadObjectResponse> headObject(String key) {
+        try {
+            return Optional.of(s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        }
+    }
 
     public void deleteObject(String key) {
         DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
@@ -60,6 +192,26 @@ public class S3Service {
         s3Client.deleteObject(deleteRequest);
     }
 
+    /**
+     * Xóa tối đa 1000 key trong một request DeleteObjects (quiet mode).
+     * Trả về key -> lỗi cho các object không xóa được; map rỗng nghĩa là tất cả đã xóa.
+     */
+    public Map<String, String> deleteObjects(List<String> keys) {
+        if (keys.isEmpty()) return Map.of();
+        List<ObjectIdentifier> objects = keys.stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+        DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder().objects(objects).quiet(true).build())
+                .build());
+        Map<String, String> errors = new HashMap<>();
+        for (S3Error error : response.errors()) {
+            errors.put(error.key(), error.code() + ": " + error.message());
+        }
+        return errors;
+    }
+
     private String generateSubmissionFileKey(Submission submission, MultipartFile file) {
         String s3Key = String.format("submissions/assignment-%d/user-%d/submission-%d/%s",
                 submission.getAssignment().getId(),
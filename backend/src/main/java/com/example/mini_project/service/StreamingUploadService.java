@@ -0,0 +1,212 @@
+package com.example.mini_project.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Upload một stream lên S3 theo từng part cố định (S3 multipart upload) ngay khi đọc được,
+ * không spool cả file ra disk hay heap. Mỗi upload chỉ giữ tối đa maxPartsInFlight buffer,
+ * nên bộ nhớ không tăng theo kích thước file. SHA-256 của từng part được tính ngay trước khi gửi và đi kèm request
+ * (x-amz-checksum-sha256), nên S3 từ chối part bị hỏng trên đường truyền thay vì lưu file sai.
+ * Lỗi ở bất kỳ part nào sẽ abort multipart upload để S3 không giữ lại các part dở dang.
+ */
+@Slf4j
+@Service
+public class StreamingUploadService {
+    private final S3Service s3Service;
+    private final ExecutorService executor;
+    private final int partSize;
+    private final int maxPartsInFlight;
+    private final long maxFileBytes;
+
+    public record StreamedUpload(String s3Key, long size) {
+    }
+
+    public StreamingUploadService(S3Service s3Service,
+                                  @Value("${app.upload.stream.part-size-bytes:5242880}") int partSize,
+                                  @Value("${app.upload.stream.max-parts-in-flight:2}") int maxPartsInFlight,
+                                  @Value("${app.upload.stream.max-file-bytes:104857600}") long maxFileBytes,
+                                  @Value("${app.upload.stream.parallelism:8}") int parallelism) {
+        this.s3Service = s3Service;
+        this.partSize = partSize;
+        this.maxPartsInFlight = maxPartsInFlight;
+        this.maxFileBytes = maxFileBytes;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Số part đồng thời của mỗi upload đã bị giới hạn bởi buffer pool, queue ở đây không cần bound
+        this.executor = new ThreadPoolExecutor(
+                parallelism, parallelism,
+                30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "s3-part-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    /**
+     * Đọc hết input và ghi lên key. File nhỏ hơn một part được PUT một lần, lớn hơn thì dùng multipart.
+     * Ném IllegalArgumentException khi file rỗng hoặc vượt quá max-file-bytes, IOException khi đọc/upload lỗi.
+     */
+    public StreamedUpload upload(String key, InputStream input, String contentType) throws IOException {
+        BufferPool buffers = new BufferPool(Math.max(1, maxPartsInFlight), partSize);
+
+        byte[] first = buffers.take();
+        int firstLength = input.readNBytes(first, 0, partSize);
+        if (firstLength == 0) {
+            throw new IllegalArgumentException("File rỗng");
+        }
+        checkSize(firstLength);
+        if (firstLength < partSize) {
+            s3Service.uploadFile(key, new ByteArrayInputStream(first, 0, firstLength), (long) firstLength, contentType,
+                    sha256Base64(first, firstLength));
+            return new StreamedUpload(key, firstLength);
+        }
+
+        String uploadId = s3Service.createMultipartUpload(key, contentType);
+        List<Future<CompletedPart>> parts = new ArrayList<>();
+        try {
+            long total = firstLength;
+            parts.add(submitPart(key, uploadId, 1, first, firstLength, buffers));
+            while (true) {
+                byte[] buffer = buffers.take();
+                int length = input.readNBytes(buffer, 0, partSize);
+                if (length == 0) {
+                    buffers.release(buffer);
+                    break;
+                }
+                total += length;
+                checkSize(total);
+                parts.add(submitPart(key, uploadId, parts.size() + 1, buffer, length, buffers));
+                failFast(parts);
+                if (length < partSize) break;
+            }
+
+            List<CompletedPart> completed = new ArrayList<>(parts.size());
+            for (Future<CompletedPart> part : parts) {
+                completed.add(part.get());
+            }
+            s3Service.completeMultipartUpload(key, uploadId, completed);
+            log.debug("Multipart upload xong {}: {} bytes, {} parts", key, total, completed.size());
+            return new StreamedUpload(key, total);
+        } catch (ExecutionException e) {
+            abort(key, uploadId, parts);
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            throw new IOException("Upload part lên S3 thất bại", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(key, uploadId, parts);
+            throw new IOException("Upload bị gián đoạn", e);
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId, parts);
+            throw e;
+        }
+    }
+
+    private Future<CompletedPart> submitPart(String key, String uploadId, int partNumber,
+                                             byte[] buffer, int length, BufferPool buffers) {
+        return executor.submit(() -> {
+            try {
+                // Tính trên thread upload để thread đọc request không phải chờ hash
+                return s3Service.uploadPart(key, uploadId, partNumber, buffer, length, sha256Base64(buffer, length));
+            } finally {
+                buffers.release(buffer);
+            }
+        });
+    }
+
+    // Dừng đọc tiếp ngay khi đã có part lỗi, không chờ đến cuối stream
+    private void failFast(List<Future<CompletedPart>> parts) throws ExecutionException, InterruptedException {
+        for (Future<CompletedPart> part : parts) {
+            if (part.isDone()) part.get();
+        }
+    }
+
+    private void abort(String key, String uploadId, List<Future<CompletedPart>> parts) {
+        parts.forEach(part -> part.cancel(true));
+        try {
+            s3Service.abortMultipartUpload(key, uploadId);
+        } catch (RuntimeException e) {
+            log.warn("Không abort được multipart upload {} ({})", key, uploadId, e);
+        }
+    }
+
+    private void checkSize(long total) {
+        if (total > maxFileBytes) {
+            throw new IllegalArgumentException("File vượt quá kích thước cho phép (" + maxFileBytes + " bytes)");
+        }
+    }
+
+    static String sha256Base64(byte[] data, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, 0, length);
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Pool buffer của một upload: take() block khi đã có đủ part đang upload (back-pressure lên stream đọc)
+    private static class BufferPool {
+        private final BlockingQueue<byte[]> free;
+        private final int capacity;
+        private final int partSize;
+        private int allocated;
+
+        BufferPool(int capacity, int partSize) {
+            this.free = new ArrayBlockingQueue<>(capacity);
+            this.capacity = capacity;
+            this.partSize = partSize;
+        }
+
+        byte[] take() throws IOException {
+            byte[] buffer = free.poll();
+            if (buffer != null) return buffer;
+            if (allocated < capacity) {
+                allocated++;
+                return new byte[partSize];
+            }
+            try {
+                return free.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Upload bị gián đoạn", e);
+            }
+        }
+
+        void release(byte[] buffer) {
+            free.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.file.SubmissionFile;
+import com.example.mini_project.entities.file.UploadedObject;
+import com.example.mini_project.entities.submission.Submission;
+import com.example.mini_project.entities.submission.SubmissionStatus;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.repositories.SubmissionRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lưu metadata của file đã lên S3 vào submission. Upload S3 chạy trước và ngoài transaction;
+ * ở đây chỉ có phần ghi DB ngắn, tạo submission (nếu chưa có) và thêm file cùng một transaction.
+ */
+@Service
+public class SubmissionUploadService {
+    private final SubmissionRepository submissionRepository;
+
+    public SubmissionUploadService(SubmissionRepository submissionRepository) {
+        this.submissionRepository = submissionRepository;
+    }
+
+    /**
+     * Gắn các object đã lên S3 vào submission của học sinh, tạo submission mới nếu chưa nộp.
+     * Object đã được gắn (cùng s3Key) thì bỏ qua. Lỗi thì rollback cả submission mới lẫn các file.
+     */
+    @Transactional
+    public Submission attachUploads(User user, Assignment assignment, String description,
+                                    List<UploadedObject> uploaded) {
+        Submission submission = submissionRepository.findByUser_IdAndAssignment_Id(user.getId(), assignment.getId())
+                .orElseGet(() -> newSubmission(user, assignment, description));
+        if (submission.getId() != null && description != null && !description.isEmpty()) {
+            submission.setDescription(description);
+        }
+        for (UploadedObject object : uploaded) {
+            boolean attached = submission.getFiles().stream()
+                    .anyMatch(file -> file.getS3Key().equals(object.s3Key()));
+            if (!attached) {
+                submission.addFile(SubmissionFile.fromUpload(submission, object));
+            }
+        }
+        return submissionRepository.save(submission);
+    }
+
+    // Submission mới (chưa lưu) với thời điểm nộp là bây giờ, LATE nếu đã quá hạn
+    public Submission newSubmission(User user, Assignment assignment, String description) {
+        Submission submission = new Submission();
+        submission.setUser(user);
+        submission.setAssignment(assignment);
+        submission.setDescription(description);
+        LocalDateTime now = LocalDateTime.now();
+        submission.setSubmissionTime(now);
+        if (now.isAfter(assignment.getAssignmentDue())) {
+            submission.setStatus(SubmissionStatus.LATE);
+        } else {
+            submission.setStatus(SubmissionStatus.SUBMITTED);
+        }
+        return submission;
+    }
+}
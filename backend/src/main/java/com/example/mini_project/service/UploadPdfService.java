@@ -1,25 +1,219 @@
 package com.example.mini_project.service;
 
+import com.example.mini_project.config.BufferCache;
+import com.example.mini_project.entities.file.PresignedUrlDTO;
+import com.example.mini_project.entities.file.StoredFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
 public class UploadPdfService {
+    public static final String PDF_CACHE = "file_pdf";
+
+    // Buffer cố định cho mỗi thread, tái sử dụng giữa các request thay vì cấp phát cả file trên heap
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<byte[]> STREAM_BUFFER =
+            ThreadLocal.withInitial(() -> new byte[STREAM_BUFFER_SIZE]);
+
+    // Giới hạn số presigned URL giữ trong bộ nhớ trước khi dọn các URL đã hết hạn
+    private static final int PRESIGNED_URL_CACHE_LIMIT = 10_000;
+    private static final char PRESIGNED_KEY_SEPARATOR = '\n';
 
     private final S3Service s3Service;
+    private final CacheManager cacheManager;
+    private final PdfFetchCoalescer pdfFetchCoalescer;
+    private final LocalBlobCache localBlobCache;
+    private final long cacheMaxBytes;
+    private final Map<String, PresignedUrlDTO> presignedUrls = new ConcurrentHashMap<>();
+
+    @Value("${app.pdf.download-mode:STREAM}")
+    private PdfDownloadMode downloadMode = PdfDownloadMode.STREAM;
+
+    @Value("${app.pdf.presign-ttl-seconds:300}")
+    private long presignTtlSeconds = 300;
 
-    public UploadPdfService(S3Service s3Service) {
+    // URL sắp hết hạn trong khoảng này sẽ được ký lại, để client luôn còn đủ thời gian tải
+    @Value("${app.pdf.presign-refresh-margin-seconds:60}")
+    private long presignRefreshMarginSeconds = 60;
+
+    public UploadPdfService(S3Service s3Service,
+                            CacheManager cacheManager,
+                            PdfFetchCoalescer pdfFetchCoalescer,
+                            LocalBlobCache localBlobCache,
+                            @Value("${app.pdf.cache-max-bytes:2097152}") long cacheMaxBytes) {
         this.s3Service = s3Service;
+        this.cacheManager = cacheManager;
+        this.pdfFetchCoalescer = pdfFetchCoalescer;
+        this.localBlobCache = localBlobCache;
+        this.cacheMaxBytes = cacheMaxBytes;
     }
 
-    @Cacheable(value = "file_pdf", key = "#s3Key")
+    /**
+     * Trả về toàn bộ file dưới dạng byte[], đi qua cache file_pdf.
+     * Các request miss cùng lúc một key chỉ tạo một lần tải từ S3 (xem {@link PdfFetchCoalescer}).
+     * Chỉ nên dùng cho file nhỏ, file lớn dùng {@link #writePdf}.
+     */
     public byte[] loadPdfBytes(String s3Key) {
+        return pdfFetchCoalescer.load(pdfCache(), s3Key, () -> fetchPdfBytes(s3Key));
+    }
+
+    /**
+     * Ghi file PDF thẳng vào response. File nhỏ hơn app.pdf.cache-max-bytes được phục vụ từ cache disk của node
+     * ({@link LocalBlobCache}), nếu chưa có thì từ L1 off-heap (không copy ra heap), rồi tới Redis và ghi xuống disk. File lớn hơn được stream từ S3 qua một buffer cố định và không bao giờ nằm nguyên vẹn trên heap.
+     * Hỗ trợ header Range / If-Range (một đoạn duy nhất) và trả về 206 Partial Content.
+     */
+    public void writePdf(StoredFile file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // s3Key chứa UUID và object không bao giờ bị ghi đè, nên có thể dùng làm strong ETag
+        String eTag = "\"" + DigestUtils.md5DigestAsHex(file.getS3Key().getBytes(StandardCharsets.UTF_8)) + "\"";
+        long lastModified = file.getUploadedAt() != null
+                ? file.getUploadedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "inline; filename=\"" + file.getOriginalFilename() + "\"");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        if (lastModified >= 0) response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+
+        Long fileSize = file.getFileSize();
+        HttpRange range = requestedRange(request, eTag, lastModified);
+        if (range == null || fileSize == null) {
+            writePdf(file.getS3Key(), fileSize, response, response.getOutputStream());
+            return;
+        }
+
+        long start;
+        long end;
+        try {
+            start = range.getRangeStart(fileSize);
+            end = range.getRangeEnd(fileSize);
+            // HttpRange không báo lỗi khi đoạn bắt đầu sau cuối file (bytes=200- với file 100 byte)
+            if (start >= fileSize || start > end) throw new IllegalArgumentException("Range ngoài file");
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+        long length = end - start + 1;
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+        response.setContentLengthLong(length);
+
+        OutputStream out = response.getOutputStream();
+        if (fileSize <= cacheMaxBytes) {
+            if (localBlobCache.size(file.getS3Key()) >= 0
+                    && localBlobCache.transferTo(file.getS3Key(), start, length, out)) {
+                return;
+            }
+            ByteBuffer cached = cachedBuffer(file.getS3Key());
+            if (cached != null) {
+                write(cached.position((int) start).limit((int) (start + length)), out);
+                return;
+            }
+            byte[] pdfBytes = loadPdfBytes(file.getS3Key());
+            localBlobCache.put(file.getS3Key(), pdfBytes);
+            out.write(pdfBytes, (int) start, (int) length);
+            return;
+        }
+        log.info("RANGE - Fetching bytes {}-{} of PDF from S3: {}", start, end, file.getS3Key());
+        try (InputStream is = s3Service.downloadRange(file.getS3Key(), start, end)) {
+            copy(is, out);
+        }
+    }
+
+    void writePdf(String s3Key, Long fileSize, HttpServletResponse response, OutputStream out) throws IOException {
+        if (fileSize != null && fileSize <= cacheMaxBytes) {
+            long localSize = localBlobCache.size(s3Key);
+            if (localSize >= 0) {
+                if (response != null) response.setContentLengthLong(localSize);
+                if (localBlobCache.transferTo(s3Key, 0, localSize, out)) return;
+            }
+            ByteBuffer cached = cachedBuffer(s3Key);
+            if (cached != null) {
+                if (response != null) response.setContentLengthLong(cached.remaining());
+                write(cached, out);
+                return;
+            }
+            byte[] pdfBytes = loadPdfBytes(s3Key);
+            localBlobCache.put(s3Key, pdfBytes);
+            if (response != null) response.setContentLengthLong(pdfBytes.length);
+            out.write(pdfBytes);
+            return;
+        }
+        log.info("STREAM - Streaming PDF from S3 without caching: {}", s3Key);
+        if (response != null && fileSize != null) response.setContentLengthLong(fileSize);
+        try (InputStream is = s3Service.downloadFile(s3Key)) {
+            copy(is, out);
+        }
+    }
+
+    public PdfDownloadMode getDownloadMode() {
+        return downloadMode;
+    }
+
+    /**
+     * Presigned GET URL cho file, dùng lại URL đã ký cho cùng s3Key + tên file cho tới khi nó gần hết hạn.
+     * (Blob content-addressed được nhiều file dùng chung, tên file trong Content-Disposition có thể khác nhau.)
+     * Quyền truy cập phải được kiểm tra ở controller trước khi gọi hàm này.
+     */
+    public PresignedUrlDTO presignedUrl(StoredFile file) {
+        String cacheKey = file.getS3Key() + PRESIGNED_KEY_SEPARATOR + file.getOriginalFilename();
+        Instant refreshBefore = Instant.now().plusSeconds(presignRefreshMarginSeconds);
+        PresignedUrlDTO cached = presignedUrls.get(cacheKey);
+        if (cached != null && cached.expiresAt().isAfter(refreshBefore)) {
+            return cached;
+        }
+
+        PresignedGetObjectRequest presigned = s3Service.presignDownload(
+                file.getS3Key(), file.getOriginalFilename(), Duration.ofSeconds(presignTtlSeconds));
+        PresignedUrlDTO fresh = new PresignedUrlDTO(presigned.url().toString(), presigned.expiration());
+        if (presignedUrls.size() >= PRESIGNED_URL_CACHE_LIMIT) {
+            Instant now = Instant.now();
+            presignedUrls.values().removeIf(url -> url.expiresAt().isBefore(now));
+        }
+        presignedUrls.put(cacheKey, fresh);
+        return fresh;
+    }
+
+    @CacheEvict(
+            value = PDF_CACHE,
+            key = "#s3Key"
+    )
+    public void evictFile(String s3Key) {
+        log.info("CACHE EVICT - Removing cached PDF: {}", s3Key);
+        localBlobCache.evict(s3Key);
+        String prefix = s3Key + PRESIGNED_KEY_SEPARATOR;
+        presignedUrls.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    // helper
+    private byte[] fetchPdfBytes(String s3Key) {
         // This log only appears on CACHE MISS (actual S3 fetch)
         log.info("CACHE MISS - Fetching PDF from S3: {}", s3Key);
         try (InputStream is = s3Service.downloadFile(s3Key)) {
@@ -29,12 +223,72 @@ public class UploadPdfService {
         }
     }
 
-    @CacheEvict(
-            value = "file_pdf",
-            key = "#s3Key"
-    )
-    public void deleteFile(String s3Key) {
-        log.info("CACHE EVICT - Removing cached PDF: {}", s3Key);
-        s3Service.deleteObject(s3Key);
+    /**
+     * Trả về đoạn được yêu cầu, hoặc null nếu phải trả cả file: không có Range, Range sai cú pháp,
+     * nhiều đoạn (không hỗ trợ multipart/byteranges) hoặc If-Range không khớp với file hiện tại.
+     */
+    private HttpRange requestedRange(HttpServletRequest request, String eTag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || rangeHeader.isBlank()) return null;
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.isBlank()) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                if (!ifRange.equals(eTag)) return null;
+            } else {
+                long ifRangeDate;
+                try {
+                    ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+                // So sánh theo giây vì HTTP date không có mili giây
+                if (lastModified < 0 || lastModified / 1000 != ifRangeDate / 1000) return null;
+            }
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+
+    // View chỉ đọc từ L1 off-heap nếu cache file_pdf có tầng đó, null nếu không có
+    private ByteBuffer cachedBuffer(String s3Key) {
+        return pdfCache() instanceof BufferCache bufferCache ? bufferCache.getBuffer(s3Key) : null;
+    }
+
+    private Cache pdfCache() {
+        Cache cache = cacheManager.getCache(PDF_CACHE);
+        if (cache == null) {
+            throw new IllegalStateException("Không tìm thấy cache " + PDF_CACHE);
+        }
+        return cache;
+    }
+
+    // Ghi phần còn lại của buffer qua buffer cố định của thread, không tạo byte[] bằng cỡ file
+    static void write(ByteBuffer buffer, OutputStream out) throws IOException {
+        byte[] chunk = STREAM_BUFFER.get();
+        while (buffer.hasRemaining()) {
+            int n = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+        out.flush();
+    }
+
+    static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = STREAM_BUFFER.get();
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        out.flush();
+        return total;
     }
 }
@@ -0,0 +1,57 @@
+package com.example.mini_project.config;
+
+import com.example.mini_project.entities.assignment.AssignmentResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressingByteArrayRedisSerializerTest {
+
+    @Test
+    void blobSerializersRoundTrip() {
+        byte[] pdf = RedisSerializerBenchmarkTest.fakePdf(256 * 1024);
+        RedisSerializer<Object> jdk = new JdkSerializationRedisSerializer();
+        CompressingByteArrayRedisSerializer raw = CompressingByteArrayRedisSerializer.raw();
+        CompressingByteArrayRedisSerializer deflate = new CompressingByteArrayRedisSerializer(true, 64 * 1024, 1);
+
+        assertArrayEquals(pdf, raw.deserialize(raw.serialize(pdf)));
+        assertArrayEquals(pdf, deflate.deserialize(deflate.serialize(pdf)));
+        assertEquals(pdf.length + 1, raw.serialize(pdf).length);
+        assertTrue(deflate.serialize(pdf).length < pdf.length);
+        assertTrue(jdk.serialize(pdf).length > raw.serialize(pdf).length);
+    }
+
+    @Test
+    void incompressibleBlobIsStoredRaw() {
+        byte[] random = new byte[128 * 1024];
+        new Random(42).nextBytes(random);
+        CompressingByteArrayRedisSerializer deflate = new CompressingByteArrayRedisSerializer(true, 1024, 1);
+
+        byte[] stored = deflate.serialize(random);
+        assertEquals(CompressingByteArrayRedisSerializer.RAW, stored[0]);
+        assertArrayEquals(random, deflate.deserialize(stored));
+    }
+
+    @Test
+    void legacyJdkEntryIsTreatedAsMiss() {
+        byte[] legacy = new JdkSerializationRedisSerializer().serialize(new byte[]{1, 2, 3});
+        assertNull(CompressingByteArrayRedisSerializer.raw().deserialize(legacy));
+    }
+
+    @Test
+    void dtoSerializerRoundTripsWithoutJavaSerialization() {
+        RedisSerializer<Object> json = RedisCacheConfig.dtoSerializer();
+        AssignmentResponseDTO dto = new AssignmentResponseDTO(1L, "Lab 1", "2026-01-01T00:00", 20.0, "COMP1", "tutor");
+
+        Object restored = json.deserialize(json.serialize(new ArrayList<>(List.of(dto))));
+        assertInstanceOf(List.class, restored);
+        AssignmentResponseDTO first = (AssignmentResponseDTO) ((List<?>) restored).get(0);
+        assertEquals("Lab 1", first.getAssignmentName());
+    }
+}
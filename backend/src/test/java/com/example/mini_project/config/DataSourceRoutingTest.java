@@ -0,0 +1,164 @@
+package com.example.mini_project.config;
+
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseRole;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.entities.usercourse.CourseMembership;
+import com.example.mini_project.service.CourseMembershipService;
+import com.example.mini_project.service.CustomUserDetailService;
+import com.example.mini_project.support.JpaSliceTestConfig;
+import com.example.mini_project.support.TestFixtures;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hai database H2 trong bộ nhớ đóng vai primary và replica; DATABASE() cho biết câu SQL chạy ở pool nào.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "app.datasource.replica.url=jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.max-lag-ms=1000",
+        // Lần kiểm tra định kỳ chạy một lần lúc khởi động, các test tự đặt trạng thái replica
+        "app.datasource.replica.lag-check-ms=3600000",
+        "spring.app.jwtExpirationMs=3600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DataSourceRoutingConfig.class, CourseMembershipService.class, CustomUserDetailService.class,
+        JpaSliceTestConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DataSourceRoutingTest {
+    private static final String PRIMARY = "ROUTING_PRIMARY";
+    private static final String REPLICA = "ROUTING_REPLICA";
+    private static final String WHICH_DATABASE = "SELECT DATABASE()";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private CourseMembershipService courseMembershipService;
+    @Autowired
+    private CustomUserDetailService customUserDetailService;
+
+    @BeforeEach
+    void setUp() {
+        routingDataSource.updateReplicaStatus(true, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadWriteRoutingDataSource.clearReadOnlyRequest();
+    }
+
+    @Test
+    void readOnlyTransactionsAndGetRequestsUseReplica() {
+        assertEquals(PRIMARY, inTransaction(false));
+        assertEquals(REPLICA, inTransaction(true));
+        assertEquals(PRIMARY, jdbcTemplate.queryForObject(WHICH_DATABASE, String.class));
+
+        ReadWriteRoutingDataSource.markReadOnlyRequest();
+        assertEquals(REPLICA, jdbcTemplate.queryForObject(WHICH_DATABASE, String.class));
+        // Transaction ghi trong request GET vẫn sang primary
+        assertEquals(PRIMARY, inTransaction(false));
+    }
+
+    // Giống open-in-view: một EntityManager cho cả request, đọc ngoài transaction rồi mới mở transaction ghi
+    @Test
+    void writeTransactionAfterReadInSameEntityManagerUsesPrimary() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            ReadWriteRoutingDataSource.markReadOnlyRequest();
+            assertEquals(REPLICA, entityManager.createNativeQuery(WHICH_DATABASE).getSingleResult());
+            String inWrite = new TransactionTemplate(transactionManager).execute(status ->
+                    (String) entityManager.createNativeQuery(WHICH_DATABASE).getSingleResult());
+            assertEquals(PRIMARY, inWrite);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+
+    @Test
+    void onPrimaryOverridesReadOnlyTransactionsAndGetRequests() {
+        ReadWriteRoutingDataSource.markReadOnlyRequest();
+        assertEquals(PRIMARY, ReadWriteRoutingDataSource.onPrimary(() -> inTransaction(true)));
+        assertEquals(PRIMARY, ReadWriteRoutingDataSource.onPrimary(() ->
+                jdbcTemplate.queryForObject(WHICH_DATABASE, String.class)));
+        assertEquals(REPLICA, jdbcTemplate.queryForObject(WHICH_DATABASE, String.class));
+    }
+
+    // Replica trong test không có schema: nếu role/principal được đọc từ replica thì sẽ lỗi
+    @Test
+    void cachedAuthorizationLookupsReadPrimary() {
+        Long courseId = new TransactionTemplate(transactionManager).execute(status -> {
+            User tutor = fixtures.user("routing-tutor");
+            Course course = fixtures.course("RT1", tutor);
+            fixtures.enroll(tutor, course, CourseRole.TUTOR);
+            return course.getId();
+        });
+        try {
+            ReadWriteRoutingDataSource.markReadOnlyRequest();
+            CourseMembership membership = courseMembershipService.find("routing-tutor", courseId);
+            assertNotNull(membership);
+            assertTrue(membership.isTutor());
+            assertEquals("routing-tutor", customUserDetailService.loadPrincipal("routing-tutor").getUsername());
+        } finally {
+            ReadWriteRoutingDataSource.clearReadOnlyRequest();
+            JdbcTestUtils.deleteFromTables(jdbcTemplate, "user_course", "courses", "user_roles", "users");
+        }
+    }
+
+    @Test
+    void fallsBackToPrimaryWhenReplicaCannotBeChecked() {
+        double fallbacks = meterRegistry.get("datasource.replica.fallback").counter().count();
+        // H2 không có pg_is_in_recovery(): coi như không kiểm tra được replica
+        replicaLagMonitor.check();
+
+        assertFalse(routingDataSource.isReplicaAvailable());
+        assertEquals(PRIMARY, inTransaction(true));
+        assertEquals(fallbacks + 1, meterRegistry.get("datasource.replica.fallback").counter().count());
+
+        routingDataSource.updateReplicaStatus(true, 10);
+        assertEquals(REPLICA, inTransaction(true));
+        assertTrue(meterRegistry.get("datasource.routing.connections").tag("target", "replica").counter().count() > 0);
+    }
+
+    private String inTransaction(boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> jdbcTemplate.queryForObject(WHICH_DATABASE, String.class));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.mini_project.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapBlobCacheTest {
+    private static final int KB = 1024;
+
+    @Test
+    void residentBytesStayWithinBudget() {
+        OffHeapBlobCache cache = new OffHeapBlobCache("file_pdf", 100 * KB, 50 * KB, Runnable::run);
+        for (int i = 0; i < 50; i++) {
+            cache.put("pdf-" + i, new byte[10 * KB]);
+            cache.cleanUp();
+        }
+
+        assertTrue(cache.residentBytes() <= 100 * KB, "resident: " + cache.residentBytes());
+        assertTrue(cache.evictionCount() > 0);
+    }
+
+    @Test
+    void oversizedEntriesAreNotAdmitted() {
+        OffHeapBlobCache cache = new OffHeapBlobCache("file_pdf", 100 * KB, 50 * KB, Runnable::run);
+        cache.put("big", new byte[60 * KB]);
+
+        assertNull(cache.get("big"));
+        assertEquals(0, cache.residentBytes());
+    }
+
+    @Test
+    void getReturnsIndependentHeapCopy() {
+        OffHeapBlobCache cache = new OffHeapBlobCache("file_pdf", 100 * KB, 50 * KB, Runnable::run);
+        cache.put("a", new byte[]{1, 2, 3});
+
+        byte[] first = cache.get("a", byte[].class);
+        first[0] = 42;
+
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get("a", byte[].class));
+    }
+
+    @Test
+    void getBufferReturnsReadOnlyOffHeapView() {
+        OffHeapBlobCache cache = new OffHeapBlobCache("file_pdf", 100 * KB, 50 * KB, Runnable::run);
+        cache.put("a", new byte[]{1, 2, 3});
+
+        ByteBuffer first = cache.getBuffer("a");
+        assertTrue(first.isReadOnly());
+        assertTrue(first.isDirect());
+        first.get();
+        // Mỗi lần gọi có position riêng
+        assertEquals(3, cache.getBuffer("a").remaining());
+
+        cache.evict("a");
+        assertNull(cache.getBuffer("a"));
+        assertEquals(2, first.remaining());
+    }
+
+    @Test
+    void tieredCachePromotesFromSharedTierAndReportsMetrics() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OffHeapBlobCache l1 = new OffHeapBlobCache("file_pdf", 100 * KB, 50 * KB, Runnable::run).bindTo(meterRegistry);
+        Cache l2 = new ConcurrentMapCache("file_pdf");
+        TieredCacheManager manager = new TieredCacheManager(
+                new ConcurrentMapCacheManager("file_pdf", "courses") {
+                    @Override
+                    protected Cache createConcurrentMapCache(String name) {
+                        return name.equals("file_pdf") ? l2 : super.createConcurrentMapCache(name);
+                    }
+                },
+                Map.of("file_pdf", l1));
+        l2.put("a", new byte[]{7});
+
+        Cache pdfCache = manager.getCache("file_pdf");
+        assertArrayEquals(new byte[]{7}, pdfCache.get("a", byte[].class)); // miss L1, hit L2
+        l2.evict("a");
+        assertArrayEquals(new byte[]{7}, pdfCache.get("a", byte[].class)); // đã được đưa lên L1
+        assertEquals(1, ((BufferCache) pdfCache).getBuffer("a").remaining());
+
+        pdfCache.evict("a");
+        assertNull(pdfCache.get("a"));
+        assertInstanceOf(ConcurrentMapCache.class, manager.getCache("courses"));
+
+        l1.cleanUp();
+        assertEquals(0.0, meterRegistry.get("pdf.cache.l1.bytes").gauge().value());
+        assertTrue(meterRegistry.get("pdf.cache.l1.hit.ratio").gauge().value() > 0);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.mini_project.config;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Micro benchmark: thời gian serialize/deserialize mỗi lần cache hit của PDF 2MB với serializer mới
+ * so với JdkSerializationRedisSerializer. Không chạy trong bộ test mặc định: mvn -Pbenchmark test
+ */
+@Tag("benchmark")
+class RedisSerializerBenchmarkTest {
+    private static final int ITERATIONS = 200;
+
+    @Test
+    void rawBlobHitIsCheaperThanJdkSerialization() {
+        byte[] pdf = fakePdf(2 * 1024 * 1024);
+        RedisSerializer<Object> jdk = new JdkSerializationRedisSerializer();
+        CompressingByteArrayRedisSerializer raw = CompressingByteArrayRedisSerializer.raw();
+        CompressingByteArrayRedisSerializer deflate = new CompressingByteArrayRedisSerializer(true, 64 * 1024, 1);
+
+        long jdkMicros = measure(() -> jdk.deserialize(jdk.serialize(pdf)));
+        long rawMicros = measure(() -> raw.deserialize(raw.serialize(pdf)));
+        long deflateMicros = measure(() -> deflate.deserialize(deflate.serialize(pdf)));
+
+        assertTrue(rawMicros <= jdkMicros, "raw " + rawMicros + " us, jdk " + jdkMicros + " us");
+        assertTrue(rawMicros <= deflateMicros, "raw " + rawMicros + " us, deflate " + deflateMicros + " us");
+    }
+
+    // Thời gian trung bình (us) một lần serialize + deserialize sau khi warm up
+    private static long measure(Runnable hit) {
+        for (int i = 0; i < 20; i++) hit.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) hit.run();
+        return (System.nanoTime() - start) / ITERATIONS / 1000;
+    }
+
+    // PDF giả: phần text lặp lại xen với phần nhị phân đã nén
+    static byte[] fakePdf(int size) {
+        byte[] result = new byte[size];
+        byte[] text = "BT /F1 12 Tf 72 712 Td (Assignment page content) Tj ET\n".getBytes(StandardCharsets.US_ASCII);
+        Random random = new Random(7);
+        for (int i = 0; i < size; i++) {
+            result[i] = (i / 4096) % 2 == 0 ? text[i % text.length] : (byte) random.nextInt();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.mini_project.entities;
+
+import com.example.mini_project.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageResponseDTOTest {
+
+    @Test
+    void extraRowProducesCursorForLastReturnedId() {
+        PageResponseDTO<String> page = PageResponseDTO.of("ok", List.of(3L, 5L, 8L), 2,
+                Function.identity(), id -> "row-" + id);
+
+        assertEquals(List.of("row-3", "row-5"), page.getData());
+        assertEquals(5L, PageResponseDTO.decodeCursor(page.getNext()));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        PageResponseDTO<Long> page = PageResponseDTO.of("ok", List.of(3L, 5L), 2,
+                Function.identity(), Function.identity());
+
+        assertEquals(List.of(3L, 5L), page.getData());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void cursorAndLimitAreValidated() {
+        assertEquals(0, PageResponseDTO.decodeCursor(null));
+        assertThrows(InvalidCursorException.class, () -> PageResponseDTO.decodeCursor("%%%"));
+        assertThrows(InvalidCursorException.class, () -> PageResponseDTO.decodeCursor("YWJj"));
+        assertThrows(InvalidCursorException.class, () -> PageResponseDTO.decodeCursor(
+                Base64.getUrlEncoder().encodeToString("-5".getBytes(StandardCharsets.US_ASCII))));
+        assertEquals(PageResponseDTO.MAX_LIMIT, PageResponseDTO.clampLimit(100_000));
+        assertEquals(1, PageResponseDTO.clampLimit(0));
+    }
+}
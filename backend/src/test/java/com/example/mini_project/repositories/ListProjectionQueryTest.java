@@ -0,0 +1,145 @@
+package com.example.mini_project.repositories;
+
+import com.example.mini_project.entities.assignment.AssignmentResponseDTO;
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseResponseDTO;
+import com.example.mini_project.entities.course.CourseRole;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.entities.user.UserDTO;
+import com.example.mini_project.entities.usercourse.UserCourseDTO;
+import com.example.mini_project.support.JpaSliceTestConfig;
+import com.example.mini_project.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mỗi endpoint danh sách phải chạy một số câu SQL cố định, không tăng theo số dòng (không N+1).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(JpaSliceTestConfig.class)
+class ListProjectionQueryTest {
+    private static final int ROWS = 30;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CourseRepository courseRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+    @Autowired
+    private UserCourseRepository userCourseRepository;
+
+    private User owner;
+    private Course firstCourse;
+
+    @BeforeEach
+    void setUp() {
+        owner = persistUser("owner");
+        List<User> students = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) students.add(persistUser("student" + i));
+
+        for (int i = 0; i < ROWS; i++) {
+            Course course = fixtures.course("C" + i, owner);
+            course.setEndDate(LocalDate.now().plusMonths(3));
+            if (firstCourse == null) firstCourse = course;
+
+            fixtures.assignment(firstCourse, "A" + i, 1.0, owner);
+
+            // Mỗi student học firstCourse và course thứ i
+            fixtures.enroll(students.get(i), firstCourse, CourseRole.STUDENT);
+            if (course != firstCourse) {
+                fixtures.enroll(students.get(i), course, CourseRole.STUDENT);
+            }
+        }
+        fixtures.enroll(owner, firstCourse, CourseRole.TUTOR);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void coursePageIsOneStatement() {
+        List<CourseResponseDTO> courses = countStatements(1,
+                () -> courseRepository.findDTOPage(0L, Limit.of(ROWS + 1)));
+        assertEquals(ROWS, courses.size());
+        assertTrue(courses.stream().allMatch(course -> "owner".equals(course.getCreatedBy())));
+    }
+
+    @Test
+    void courseSearchIsOneStatement() {
+        List<CourseResponseDTO> courses = countStatements(1,
+                () -> courseRepository.search("course", null, 0L, Limit.of(ROWS + 1)));
+        assertEquals(ROWS, courses.size());
+    }
+
+    @Test
+    void userPageIsThreeStatementsRegardlessOfSize() {
+        List<UserDTO> users = countStatements(3,
+                () -> userRepository.withRolesAndCourses(userRepository.findDTOPage(0L, Limit.of(ROWS + 2))));
+        assertEquals(ROWS + 1, users.size());
+        UserDTO student = users.stream().filter(user -> "student5".equals(user.getUsername())).findFirst().orElseThrow();
+        assertEquals(2, student.getCourses().size());
+        assertTrue(student.getRole().contains("ROLE_USER"));
+    }
+
+    @Test
+    void courseAssignmentsAreOneStatement() {
+        List<AssignmentResponseDTO> assignments = countStatements(1,
+                () -> assignmentRepository.findDTOsByCourseId(firstCourse.getId()));
+        assertEquals(ROWS, assignments.size());
+        assertEquals("C0", assignments.get(0).getCourseCode());
+    }
+
+    @Test
+    void courseMembersAreOneStatement() {
+        List<UserCourseDTO> members = countStatements(1,
+                () -> userCourseRepository.findDTOPageByCourse(firstCourse.getId(), 0L, Limit.of(ROWS + 2)));
+        assertEquals(ROWS + 1, members.size());
+    }
+
+    @Test
+    void enrolledCoursesAreOneStatement() {
+        Long studentId = userRepository.findByUsername("student5").orElseThrow().getId();
+        List<CourseResponseDTO> courses = countStatements(1,
+                () -> userCourseRepository.findEnrolledCourseDTOs(studentId));
+        assertEquals(2, courses.size());
+    }
+
+    private <T> T countStatements(long expected, Supplier<T> query) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        T result = query.get();
+        assertEquals(expected, statistics.getPrepareStatementCount(), "số câu SQL");
+        return result;
+    }
+
+    private User persistUser(String username) {
+        User user = fixtures.user(username);
+        user.setFirstname(username);
+        user.addRole("USER");
+        return user;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mini_project.security;
+
+import com.example.mini_project.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void hashesOnPoolAndRecordsLatency() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 4, meterRegistry);
+        try {
+            String hash = encoder.encode("secret");
+
+            assertTrue(encoder.matches("secret", hash));
+            assertFalse(encoder.matches("wrong", hash));
+            assertEquals(1, meterRegistry.get("auth.password.hash").tag("op", "encode").timer().count());
+            assertEquals(2, meterRegistry.get("auth.password.hash").tag("op", "matches").timer().count());
+            assertEquals(3, meterRegistry.get("auth.password.queue.wait").timer().count());
+        } finally {
+            encoder.shutdown();
+        }
+    }
+
+    @Test
+    void saturatedPoolRejectsImmediately() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return true;
+            }
+        };
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(blocking, 1, 1, meterRegistry);
+        try {
+            // một phép đang chạy, một phép nằm trong hàng đợi
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+            while (meterRegistry.get("auth.password.queue.size").gauge().value() < 1) {
+                Thread.sleep(5);
+            }
+
+            assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("c"));
+            assertEquals(1, meterRegistry.get("auth.password.rejected").counter().count());
+
+            release.countDown();
+            assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+            assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            encoder.shutdown();
+        }
+    }
+
+    @Test
+    void hashWithOldCostNeedsUpgrade() {
+        String oldHash = new BCryptPasswordEncoder(4).encode("secret");
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 1, 4, meterRegistry);
+        try {
+            assertTrue(encoder.upgradeEncoding(oldHash));
+            assertFalse(encoder.upgradeEncoding(encoder.encode("secret")));
+        } finally {
+            encoder.shutdown();
+        }
+    }
+}
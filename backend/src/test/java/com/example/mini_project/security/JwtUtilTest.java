@@ -0,0 +1,99 @@
+package com.example.mini_project.security;
+
+import io.jsonwebtoken.JwtParser;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Kiểm tra verify(): kết quả, token sai/hết hạn, và số lần parse chữ ký (có cache và không cache).
+ * Đo thời gian nằm ở {@link JwtVerificationBenchmarkTest}.
+ */
+class JwtUtilTest {
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret";
+
+    private static JwtUtil newJwtUtil(int expirationMs, long cacheMaxSize) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationMs", expirationMs);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", cacheMaxSize);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    @Test
+    void verifyReturnsSubjectAndRoles() {
+        JwtUtil jwtUtil = newJwtUtil(60_000, 100);
+        String token = jwtUtil.generateToken("alice", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        JwtUtil.VerifiedToken verified = jwtUtil.verify(token);
+
+        assertNotNull(verified);
+        assertEquals("alice", verified.username());
+        assertEquals(List.of("ROLE_USER"), verified.roles());
+        assertSame(verified, jwtUtil.verify(token));
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        JwtUtil jwtUtil = newJwtUtil(60_000, 100);
+        String token = jwtUtil.generateToken("alice");
+        jwtUtil.verify(token);
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertNull(jwtUtil.verify(tampered));
+        assertNull(jwtUtil.verify("not-a-jwt"));
+    }
+
+    @Test
+    void cachedTokenIsRejectedAfterExpiry() throws InterruptedException {
+        JwtUtil jwtUtil = newJwtUtil(1_000, 100);
+        String token = jwtUtil.generateToken("alice");
+        assertNotNull(jwtUtil.verify(token));
+
+        Thread.sleep(1_100);
+
+        assertNull(jwtUtil.verify(token));
+    }
+
+    @Test
+    void cachedTokenIsParsedOnce() {
+        JwtUtil jwtUtil = newJwtUtil(60_000, 100);
+        JwtParser parser = spyParser(jwtUtil);
+        String token = jwtUtil.generateToken("alice");
+
+        for (int i = 0; i < 3; i++) assertEquals("alice", jwtUtil.verify(token).username());
+
+        verify(parser, times(1)).parseSignedClaims(token);
+    }
+
+    @Test
+    void eachDistinctTokenIsParsedOnce() {
+        JwtUtil jwtUtil = newJwtUtil(60_000, 100);
+        JwtParser parser = spyParser(jwtUtil);
+        String alice = jwtUtil.generateToken("alice");
+        String bob = jwtUtil.generateToken("bob");
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("alice", jwtUtil.verify(alice).username());
+            assertEquals("bob", jwtUtil.verify(bob).username());
+        }
+
+        verify(parser, times(1)).parseSignedClaims(alice);
+        verify(parser, times(1)).parseSignedClaims(bob);
+    }
+
+    // Thay parser đã build trong init() bằng spy để đếm số lần verify chữ ký
+    private static JwtParser spyParser(JwtUtil jwtUtil) {
+        JwtParser parser = spy((JwtParser) ReflectionTestUtils.getField(jwtUtil, "parser"));
+        ReflectionTestUtils.setField(jwtUtil, "parser", parser);
+        return parser;
+    }
+}
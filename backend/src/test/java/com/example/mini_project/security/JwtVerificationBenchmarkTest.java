@@ -0,0 +1,63 @@
+package com.example.mini_project.security;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * So sánh chi phí xác thực JWT mỗi request: cách cũ (validateJwtToken + getUserFromToken, mỗi lần build parser
+ * và verify riêng), verify một lần với parser dùng lại, và cache hit.
+ * Không chạy trong bộ test mặc định: mvn -Pbenchmark test
+ */
+@Tag("benchmark")
+class JwtVerificationBenchmarkTest {
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret";
+    private static final int ITERATIONS = 20_000;
+
+    @Test
+    void perRequestVerificationCost() {
+        JwtUtil cached = newJwtUtil(100);
+        String token = cached.generateToken("alice", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        // Parser dùng lại, không qua cache (như verify() khi cache miss)
+        JwtParser parser = (JwtParser) ReflectionTestUtils.getField(cached, "parser");
+
+        long legacy = measure(() -> {
+            Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
+            return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload().getSubject();
+        });
+        long single = measure(() -> parser.parseSignedClaims(token).getPayload().getSubject());
+        long hit = measure(() -> cached.verify(token).username());
+
+        assertTrue(single < legacy, "legacy " + legacy + " ns, single " + single + " ns");
+        assertTrue(hit < single, "single " + single + " ns, cached " + hit + " ns");
+    }
+
+    private static JwtUtil newJwtUtil(long cacheMaxSize) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", cacheMaxSize);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    // Thời gian trung bình (ns) mỗi request sau khi warm up
+    private static long measure(Supplier<String> perRequest) {
+        for (int i = 0; i < ITERATIONS; i++) assertEquals("alice", perRequest.get());
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) perRequest.get();
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.mini_project.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.apache.catalina.filters.RemoteIpFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RemoteIpFilter dùng cùng logic và cùng cấu hình mặc định (internal-proxies) với RemoteIpValve mà
+ * server.forward-headers-strategy=native bật trong Tomcat, nên đóng vai Tomcat đứng sau nginx.
+ */
+class RateLimitFilterTest {
+    private static final String NGINX = "172.18.0.3";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final RateLimitFilter rateLimitFilter = new RateLimitFilter(
+            new RateLimiter(null, "local", 1000, clock::get), new SimpleMeterRegistry(), true,
+            List.of("/auth/signin"), 1, 0.001, List.of(), 0, 0, List.of(), 0, 0, 0, 50);
+    private final RemoteIpFilter remoteIpFilter = new RemoteIpFilter();
+
+    @Test
+    void forwardedClientsBehindProxyHaveSeparateBuckets() throws Exception {
+        assertEquals(200, signin(NGINX, "203.0.113.7"));
+        assertEquals(429, signin(NGINX, "203.0.113.7"));
+        assertEquals(200, signin(NGINX, "203.0.113.8"));
+        // Header client tự gửi đứng trước IP mà nginx nối thêm: chỉ IP cuối (không phải proxy) được dùng
+        assertEquals(200, signin(NGINX, "203.0.113.7, 203.0.113.9"));
+    }
+
+    @Test
+    void forwardedHeaderFromUntrustedClientIsIgnored() throws Exception {
+        assertEquals(200, signin("198.51.100.1", "203.0.113.7"));
+        assertEquals(429, signin("198.51.100.1", "203.0.113.8"));
+    }
+
+    private int signin(String remoteAddr, String forwardedFor) throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/signin");
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        remoteIpFilter.doFilter(request, response,
+                (req, res) -> rateLimitFilter.doFilter(req, res, new MockFilterChain()));
+        return response.getStatus();
+    }
+}
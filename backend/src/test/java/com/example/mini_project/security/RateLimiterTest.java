@@ -0,0 +1,72 @@
+package com.example.mini_project.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final RateLimiter rateLimiter = new RateLimiter(null, "local", 1000, clock::get);
+
+    @Test
+    void burstUpToCapacityThenWaitForRefill() {
+        RateLimiter.Limit signin = new RateLimiter.Limit("auth", 3, 0.5);
+
+        for (int i = 0; i < 3; i++) assertEquals(0, rateLimiter.tryAcquire(signin, "ip:10.0.0.1"));
+        long waitMs = rateLimiter.tryAcquire(signin, "ip:10.0.0.1");
+        assertEquals(2000, waitMs);
+
+        clock.addAndGet(2_000_000_000L);
+        assertEquals(0, rateLimiter.tryAcquire(signin, "ip:10.0.0.1"));
+        assertTrue(rateLimiter.tryAcquire(signin, "ip:10.0.0.1") > 0);
+    }
+
+    @Test
+    void clientsAndGroupsHaveSeparateBuckets() {
+        RateLimiter.Limit search = new RateLimiter.Limit("search", 1, 1);
+        RateLimiter.Limit pdf = new RateLimiter.Limit("pdf", 1, 1);
+
+        assertEquals(0, rateLimiter.tryAcquire(search, "user:alice"));
+        assertTrue(rateLimiter.tryAcquire(search, "user:alice") > 0);
+        assertEquals(0, rateLimiter.tryAcquire(search, "user:bob"));
+        assertEquals(0, rateLimiter.tryAcquire(pdf, "user:alice"));
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedCapacity() throws InterruptedException {
+        RateLimiter.Limit limit = new RateLimiter.Limit("search", 50, 0.001);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    if (rateLimiter.tryAcquire(limit, "user:alice") == 0) allowed.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(50, allowed.get());
+    }
+
+    @Test
+    void enabledGroupRequiresRefillRate() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Limit("auth", 5, 0));
+        assertFalse(new RateLimiter.Limit("default", 0, 0).enabled());
+    }
+}
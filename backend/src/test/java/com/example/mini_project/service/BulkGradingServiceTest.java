@@ -0,0 +1,149 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseRole;
+import com.example.mini_project.entities.submission.BulkGradeItemDTO;
+import com.example.mini_project.entities.submission.BulkGradeResultDTO;
+import com.example.mini_project.entities.submission.BulkGradeStatus;
+import com.example.mini_project.entities.submission.Submission;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.repositories.CourseRepository;
+import com.example.mini_project.support.JpaSliceTestConfig;
+import com.example.mini_project.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_updates=true"
+})
+@Import({BulkGradingService.class, GradebookService.class, JpaSliceTestConfig.class})
+class BulkGradingServiceTest {
+    private static final int STUDENTS = 40;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private BulkGradingService bulkGradingService;
+    @Autowired
+    private GradebookService gradebookService;
+    @Autowired
+    private CourseRepository courseRepository;
+
+    private Course course;
+    private Assignment essay;
+    private final List<User> students = new ArrayList<>();
+    private final List<Submission> submissions = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User tutor = fixtures.user("tutor");
+        course = fixtures.course("BG1", tutor);
+        essay = fixtures.assignment(course, "essay", 40.0, tutor);
+        for (int i = 0; i < STUDENTS; i++) {
+            User student = fixtures.user("student" + i);
+            fixtures.enroll(student, course, CourseRole.STUDENT);
+            students.add(student);
+            submissions.add(fixtures.submission(student, essay, null));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void gradesAllSubmissionsWithConstantStatementCount() {
+        List<BulkGradeItemDTO> items = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) items.add(item(submissions.get(i).getId(), 50.0 + i));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BulkGradeResultDTO> results = bulkGradingService.grade(reloadAssignment(), items);
+        entityManager.flush();
+
+        assertTrue(results.stream().allMatch(result -> result.status() == BulkGradeStatus.GRADED));
+        // 1 SELECT submission + 1 batch UPDATE submissions (40 dòng, batch_size 50); không tăng theo số submission
+        assertTrue(statistics.getPrepareStatementCount() <= 4,
+                "Số câu SQL: " + statistics.getPrepareStatementCount());
+        entityManager.clear();
+        for (int i = 0; i < STUDENTS; i++) {
+            assertEquals(50.0 + i, entityManager.find(Submission.class, submissions.get(i).getId()).getGrade());
+            assertTotal(students.get(i), (50.0 + i) * 40 / 100);
+        }
+    }
+
+    @Test
+    void reportsPerItemFailuresAndGradesTheRest() {
+        Long first = submissions.get(0).getId();
+        Long second = submissions.get(1).getId();
+        Long third = submissions.get(2).getId();
+
+        List<BulkGradeResultDTO> results = bulkGradingService.grade(reloadAssignment(), List.of(
+                item(first, 80.0), item(999_999L, 70.0), item(second, -1.0), item(first, 10.0), item(third, null)));
+        entityManager.flush();
+
+        assertEquals(List.of(BulkGradeStatus.GRADED, BulkGradeStatus.NOT_FOUND, BulkGradeStatus.INVALID_GRADE,
+                        BulkGradeStatus.DUPLICATE, BulkGradeStatus.INVALID_GRADE),
+                results.stream().map(BulkGradeResultDTO::status).toList());
+        entityManager.clear();
+        assertEquals(80.0, entityManager.find(Submission.class, first).getGrade());
+        assertNull(entityManager.find(Submission.class, second).getGrade());
+        assertTotal(students.get(0), 32.0);
+        assertTotal(students.get(1), 0.0);
+    }
+
+    @Test
+    void regradingAppliesOnlyTheDifference() {
+        Long first = submissions.get(0).getId();
+        bulkGradingService.grade(reloadAssignment(), List.of(item(first, 100.0)));
+        bulkGradingService.grade(reloadAssignment(), List.of(item(first, 50.0)));
+        entityManager.flush();
+
+        assertTotal(students.get(0), 20.0);
+    }
+
+    // Submission của assignment khác không được chấm qua assignment này
+    @Test
+    void ignoresSubmissionsOfOtherAssignments() {
+        Assignment other = fixtures.assignment(course, "other", 60.0, course.getCreatedBy());
+        entityManager.flush();
+
+        List<BulkGradeResultDTO> results = bulkGradingService.grade(other, List.of(item(submissions.get(0).getId(), 90.0)));
+
+        assertEquals(BulkGradeStatus.NOT_FOUND, results.get(0).status());
+    }
+
+    private Assignment reloadAssignment() {
+        return entityManager.find(Assignment.class, essay.getId());
+    }
+
+    private void assertTotal(User user, double expected) {
+        assertEquals(expected, gradebookService.getTotal(user.getId(), course.getId()), 1e-9);
+        assertEquals(expected, courseRepository.getTotalWeightedScore(user.getId(), course.getId()), 1e-9);
+    }
+
+    private static BulkGradeItemDTO item(Long submissionId, Double grade) {
+        BulkGradeItemDTO item = new BulkGradeItemDTO();
+        item.setSubmissionId(submissionId);
+        item.setGrade(grade);
+        return item;
+    }
+}
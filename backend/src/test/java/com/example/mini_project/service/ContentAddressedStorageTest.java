@@ -0,0 +1,66 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.support.JpaSliceTestConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({ContentAddressedStorage.class, JpaSliceTestConfig.class})
+class ContentAddressedStorageTest {
+    private static final String A = ContentAddressedStorage.keyFor("aa11");
+    private static final String B = ContentAddressedStorage.keyFor("bb22");
+
+    @Autowired
+    private ContentAddressedStorage storage;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void acquireReportsBlobsThatMustBeUploaded() {
+        assertEquals(Set.of(A, B), storage.acquire(List.of(A, B, A)));
+        assertEquals(2, refcount(A));
+        assertEquals(1, refcount(B));
+
+        // blob đã có tham chiếu thì không PUT lại
+        assertEquals(Set.of(), storage.acquire(List.of(A)));
+        assertEquals(3, refcount(A));
+    }
+
+    @Test
+    void releaseReturnsBlobsWithoutReferences() {
+        storage.acquire(List.of(A, A, B));
+
+        assertEquals(Set.of(B), storage.release(List.of(A, B)));
+        assertEquals(1, refcount(A));
+        assertEquals(0, refcount(B));
+
+        // blob đang chờ xóa mà có upload mới thì phải PUT lại
+        assertEquals(Set.of(B), storage.acquire(List.of(B)));
+        assertEquals(Set.of(), storage.lockUnreferenced(Set.of(A, B)));
+    }
+
+    @Test
+    void workerOnlyDeletesUnreferencedBlobs() {
+        storage.acquire(List.of(A, B));
+        storage.release(List.of(B));
+        String neverSeen = ContentAddressedStorage.keyFor("cc33");
+
+        assertEquals(Set.of(B, neverSeen), storage.lockUnreferenced(Set.of(A, B, neverSeen)));
+
+        storage.forget(List.of(A, B, neverSeen));
+        assertEquals(1, refcount(A));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM blobs WHERE s3_key <> ?", Integer.class, A));
+    }
+
+    private int refcount(String s3Key) {
+        return jdbcTemplate.queryForObject("SELECT refcount FROM blobs WHERE s3_key = ?", Integer.class, s3Key);
+    }
+}
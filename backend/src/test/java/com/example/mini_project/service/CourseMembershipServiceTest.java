@@ -0,0 +1,80 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseRole;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.entities.usercourse.UserCourse;
+import com.example.mini_project.repositories.UserCourseRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CourseMembershipServiceTest {
+    private final UserCourseRepository userCourseRepository = mock(UserCourseRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final CourseMembershipService service = new CourseMembershipService(userCourseRepository,
+            new ConcurrentMapCacheManager(CourseMembershipService.MEMBERSHIP_CACHE), entityManager);
+
+    private static Optional<UserCourse> membership(CourseRole role) {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("tutor");
+        Course course = new Course();
+        course.setId(1L);
+        return Optional.of(new UserCourse(1L, user, course, LocalDate.now(), role));
+    }
+
+    @Test
+    void gradingSessionLooksUpMembershipOnce() {
+        when(userCourseRepository.findByUser_UsernameAndCourse_Id("tutor", 1L)).thenReturn(membership(CourseRole.TUTOR));
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(service.isTutor("tutor", 1L));
+        }
+
+        verify(userCourseRepository, times(1)).findByUser_UsernameAndCourse_Id("tutor", 1L);
+    }
+
+    @Test
+    void nonMemberIsCachedUntilEnrollEvicts() {
+        when(userCourseRepository.findByUser_UsernameAndCourse_Id("tutor", 1L))
+                .thenReturn(Optional.empty())
+                .thenReturn(membership(CourseRole.STUDENT));
+
+        assertNull(service.findMemberUser("tutor", 1L));
+        assertNull(service.findMemberUser("tutor", 1L));
+        service.evict("tutor", 1L);
+        service.findMemberUser("tutor", 1L);
+
+        verify(userCourseRepository, times(2)).findByUser_UsernameAndCourse_Id("tutor", 1L);
+        verify(entityManager).getReference(User.class, 7L);
+    }
+
+    @Test
+    void evictInsideTransactionWaitsForCommit() {
+        when(userCourseRepository.findByUser_UsernameAndCourse_Id("tutor", 1L))
+                .thenReturn(membership(CourseRole.TUTOR))
+                .thenReturn(membership(CourseRole.STUDENT));
+        assertTrue(service.isTutor("tutor", 1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.evict("tutor", 1L);
+            // chưa commit: vẫn đọc giá trị trong cache
+            assertTrue(service.isTutor("tutor", 1L));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(service.isTutor("tutor", 1L));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseResponseDTO;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.support.JpaSliceTestConfig;
+import com.example.mini_project.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chạy RANKED_QUERY / PREFIX_QUERY trên PostgreSQL thật (cần quyền tạo extension pg_trgm).
+ * Bỏ qua khi không có TEST_POSTGRES_URL, cùng dạng host:port/db với POSTGRES_URL, ví dụ:
+ * TEST_POSTGRES_URL=localhost:5432/mini_project_test mvn test -Dtest=CourseSearchPostgresTest
+ */
+@Tag("postgres")
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = ".+")
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:postgresql://${TEST_POSTGRES_URL}",
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.datasource.username=${TEST_POSTGRES_USERNAME:postgres}",
+        "spring.datasource.password=${TEST_POSTGRES_PASSWORD:postgres}"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CourseSearchService.class, JpaSliceTestConfig.class})
+class CourseSearchPostgresTest {
+    @Autowired
+    private CourseSearchService courseSearchService;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        User nguyen = fixtures.user("nguyenvana");
+        User tran = fixtures.user("tranthib");
+        fixtures.course("JAVA101", nguyen);
+        Course python = fixtures.course("PYTHON2", tran);
+        python.setIsPrivate(true);
+        // search chạy bằng JdbcTemplate, Hibernate không tự flush trước câu SQL đó
+        entityManager.flush();
+    }
+
+    @Test
+    void rankedQueryMatchesPrefixSubstringAndCreator() {
+        assertTrue(courseSearchService.isFullText());
+        assertEquals(List.of("JAVA101"), codes("jav", null));
+        // "ava" không phải prefix của từ nào, chỉ khớp qua trigram
+        assertEquals(List.of("JAVA101"), codes("ava", null));
+        assertEquals(List.of("PYTHON2"), codes("tranthi", null));
+        assertEquals(List.of("JAVA101", "PYTHON2"), codes("course", null));
+        assertEquals(List.of("PYTHON2"), codes("course", true));
+    }
+
+    @Test
+    void shortTermOnlyMatchesWordPrefix() {
+        assertEquals(List.of("JAVA101"), codes("ja", null));
+        assertEquals(List.of(), codes("va", null));
+    }
+
+    private List<String> codes(String q, Boolean isPrivate) {
+        return courseSearchService.search(q, isPrivate, null, 50).getData().stream()
+                .map(CourseResponseDTO::getCourseCode)
+                .sorted()
+                .toList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.PageResponseDTO;
+import com.example.mini_project.entities.course.CourseResponseDTO;
+import com.example.mini_project.repositories.CourseRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CourseSearchServiceTest {
+    private final CourseRepository courseRepository = mock(CourseRepository.class);
+    private final NamedParameterJdbcTemplate namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private CourseSearchService newService(String databaseProduct) {
+        when(namedJdbcTemplate.getJdbcTemplate()).thenReturn(jdbcTemplate);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(databaseProduct);
+        CourseSearchService service = new CourseSearchService(courseRepository, namedJdbcTemplate, true);
+        service.init();
+        return service;
+    }
+
+    @Test
+    void prefixQueryKeepsOnlyWordsAndNumbers() {
+        assertEquals("java:* & cơ:* & 101:*", CourseSearchService.toPrefixQuery("java, cơ 101!"));
+        assertEquals("a:* & b:*", CourseSearchService.toPrefixQuery("a') | !(b"));
+        assertEquals("", CourseSearchService.toPrefixQuery("&|!"));
+        assertEquals("%50\\%\\_off%", CourseSearchService.likePattern("50%_off"));
+    }
+
+    @Test
+    void nonPostgresFallsBackToKeysetLikeSearch() {
+        CourseSearchService service = newService("H2");
+        when(courseRepository.search(eq("java"), isNull(), eq(0L), any(Limit.class))).thenReturn(courses(1, 3));
+
+        PageResponseDTO<CourseResponseDTO> page = service.search("  Java ", null, null, 2);
+
+        assertFalse(service.isFullText());
+        assertEquals(2, page.getData().size());
+        assertEquals(PageResponseDTO.encodeCursor(2), page.getNext());
+        verify(jdbcTemplate, never()).execute(anyString());
+        verifyNoMoreInteractions(ignoreStubs(namedJdbcTemplate));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void postgresUsesRankedQueryWithOffsetCursor() {
+        CourseSearchService service = newService("PostgreSQL");
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        when(namedJdbcTemplate.query(eq(CourseSearchService.RANKED_QUERY), params.capture(), any(RowMapper.class)))
+                .thenReturn(courses(40, 3));
+
+        PageResponseDTO<CourseResponseDTO> page = service.search("Java Co", true,
+                PageResponseDTO.encodeCursor(10), 2);
+
+        assertTrue(service.isFullText());
+        verify(jdbcTemplate).execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        assertEquals("java:* & co:*", params.getValue().getValue("tsquery"));
+        assertEquals("%java co%", params.getValue().getValue("pattern"));
+        assertEquals(true, params.getValue().getValue("isPrivate"));
+        assertEquals(3, params.getValue().getValue("limit"));
+        assertEquals(10L, params.getValue().getValue("offset"));
+        // cursor của search có xếp hạng là offset, không phải id
+        assertEquals(PageResponseDTO.encodeCursor(12), page.getNext());
+        verify(courseRepository, never()).search(any(), any(), anyLong(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shortTermSkipsTrigramBranches() {
+        CourseSearchService service = newService("PostgreSQL");
+        when(namedJdbcTemplate.query(eq(CourseSearchService.PREFIX_QUERY), any(MapSqlParameterSource.class),
+                any(RowMapper.class))).thenReturn(courses(1, 1));
+
+        assertEquals(1, service.search("Ja", null, null, 50).getData().size());
+        verify(namedJdbcTemplate, never()).query(eq(CourseSearchService.RANKED_QUERY),
+                any(MapSqlParameterSource.class), any(RowMapper.class));
+
+        // Không còn từ nào cho tsvector: dùng LIKE
+        when(courseRepository.search(eq("%"), isNull(), eq(0L), any(Limit.class))).thenReturn(courses(1, 1));
+        assertEquals(1, service.search("%", null, null, 50).getData().size());
+    }
+
+    @Test
+    void blankQueryListsByIdEvenOnPostgres() {
+        CourseSearchService service = newService("PostgreSQL");
+        when(courseRepository.search(isNull(), eq(false), eq(0L), any(Limit.class))).thenReturn(courses(1, 1));
+
+        PageResponseDTO<CourseResponseDTO> page = service.search(" ", false, null, 50);
+
+        assertEquals(1, page.getData().size());
+        assertNull(page.getNext());
+    }
+
+    private static List<CourseResponseDTO> courses(long firstId, int count) {
+        List<CourseResponseDTO> result = new ArrayList<>();
+        for (long id = firstId; id < firstId + count; id++) {
+            result.add(new CourseResponseDTO(id, "C" + id, "Course " + id, LocalDate.now(), false, "owner", null));
+        }
+        return result;
+    }
+}
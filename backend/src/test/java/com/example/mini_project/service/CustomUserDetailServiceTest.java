@@ -0,0 +1,62 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomUserDetailServiceTest {
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CustomUserDetailService service =
+            new CustomUserDetailService(userRepository, 60_000, 100, 3_600_000);
+
+    private static User user(String username, String role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("$2a$10$hash");
+        user.addRole(role);
+        return user;
+    }
+
+    @Test
+    void principalIsLoadedOnceAndCachedWithoutPassword() {
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user("alice", "STUDENT")));
+
+        UserDetails first = service.loadPrincipal("alice");
+        UserDetails second = service.loadPrincipal("alice");
+
+        assertSame(first, second);
+        assertEquals("", first.getPassword());
+        assertFalse(first.getAuthorities().isEmpty());
+        verify(userRepository, times(1)).findByUsername("alice");
+    }
+
+    @Test
+    void evictReloadsUpdatedRoles() {
+        when(userRepository.findByUsername("bob"))
+                .thenReturn(Optional.of(user("bob", "STUDENT")))
+                .thenReturn(Optional.of(user("bob", "ADMIN")));
+
+        UserDetails before = service.loadPrincipal("bob");
+        service.evictPrincipal("bob");
+        UserDetails after = service.loadPrincipal("bob");
+
+        assertNotEquals(before.getAuthorities(), after.getAuthorities());
+        verify(userRepository, times(2)).findByUsername("bob");
+    }
+
+    @Test
+    void missingUserIsNotCached() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> service.loadPrincipal("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> service.loadPrincipal("ghost"));
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+}
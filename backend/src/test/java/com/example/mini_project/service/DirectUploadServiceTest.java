@@ -0,0 +1,103 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.file.PresignedUploadDTO;
+import com.example.mini_project.entities.file.UploadRequestDTO;
+import com.example.mini_project.entities.file.UploadedFileDTO;
+import com.example.mini_project.repositories.S3DeletionTaskRepository;
+import com.example.mini_project.support.JpaSliceTestConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+
+import java.net.URI;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Outbox là bảng s3_deletion_outbox thật trên H2, S3 là mock.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({ContentAddressedStorage.class, JpaSliceTestConfig.class})
+class DirectUploadServiceTest {
+    private static final String PREFIX = "submissions/assignment-1/user-2/";
+
+    @Autowired
+    private S3DeletionTaskRepository taskRepository;
+    @Autowired
+    private ContentAddressedStorage contentAddressedStorage;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final S3Service s3Service = mock(S3Service.class);
+    private DirectUploadService directUploadService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        S3DeletionService s3DeletionService = new S3DeletionService(taskRepository, s3Service,
+                mock(UploadPdfService.class), contentAddressedStorage, 1000);
+        directUploadService = new DirectUploadService(s3Service, s3DeletionService);
+        ReflectionTestUtils.setField(directUploadService, "maxFileBytes", 1024L);
+        ReflectionTestUtils.setField(directUploadService, "maxFilesPerRequest", 10);
+        ReflectionTestUtils.setField(directUploadService, "presignTtlSeconds", 900L);
+        ReflectionTestUtils.setField(directUploadService, "pendingCleanupDelaySeconds", 3600L);
+
+        PresignedPutObjectRequest presigned = mock(PresignedPutObjectRequest.class);
+        when(presigned.url()).thenReturn(URI.create("https://s3.example/upload").toURL());
+        when(presigned.expiration()).thenReturn(Instant.now().plusSeconds(900));
+        when(s3Service.presignUpload(anyString(), anyString(), anyLong(), any(Duration.class))).thenReturn(presigned);
+        when(s3Service.headObject(anyString())).thenReturn(Optional.of(
+                HeadObjectResponse.builder().contentLength(10L).contentType("application/pdf").build()));
+    }
+
+    @Test
+    void presignedKeysAreScheduledForDeletionAfterUrlExpires() {
+        LocalDateTime before = LocalDateTime.now();
+        List<PresignedUploadDTO> uploads = presign("a.pdf", "b.pdf");
+
+        List<Map<String, Object>> tasks = jdbcTemplate.queryForList(
+                "SELECT s3_key, next_attempt_at FROM s3_deletion_outbox ORDER BY s3_key");
+        assertEquals(uploads.stream().map(PresignedUploadDTO::s3Key).sorted().toList(),
+                tasks.stream().map(task -> task.get("s3_key")).toList());
+        for (Map<String, Object> task : tasks) {
+            LocalDateTime at = ((Timestamp) task.get("next_attempt_at")).toLocalDateTime();
+            // presign-ttl 900s + pending-cleanup-delay 3600s: worker không đụng tới trước thời điểm đó
+            assertFalse(at.isBefore(before.plusSeconds(4500)), at.toString());
+        }
+    }
+
+    @Test
+    void completedUploadIsNoLongerScheduledForDeletion() {
+        List<PresignedUploadDTO> uploads = presign("a.pdf", "b.pdf");
+
+        directUploadService.verifyUploads(PREFIX, List.of(new UploadedFileDTO(uploads.get(0).s3Key(), "a.pdf")));
+
+        // b.pdf chưa complete nên vẫn chờ worker dọn
+        assertEquals(List.of(uploads.get(1).s3Key()),
+                jdbcTemplate.queryForList("SELECT s3_key FROM s3_deletion_outbox", String.class));
+    }
+
+    private List<PresignedUploadDTO> presign(String... filenames) {
+        return directUploadService.presignUploads(PREFIX, Arrays.stream(filenames)
+                .map(name -> new UploadRequestDTO(name, "application/pdf", 10L))
+                .toList());
+    }
+}
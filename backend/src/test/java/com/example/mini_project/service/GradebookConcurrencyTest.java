@@ -0,0 +1,130 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseRole;
+import com.example.mini_project.entities.submission.BulkGradeItemDTO;
+import com.example.mini_project.entities.submission.Submission;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.repositories.UserCourseRepository;
+import com.example.mini_project.support.JpaSliceTestConfig;
+import com.example.mini_project.support.TestFixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Các transaction chạy song song trên H2 thật (không bọc trong transaction của test), dữ liệu được commit
+ * và dọn sau mỗi test. INFORMATION_SCHEMA.SESSIONS.BLOCKER_ID cho biết một session đang chờ khóa dòng.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({GradebookService.class, BulkGradingService.class, JpaSliceTestConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GradebookConcurrencyTest {
+    private static final String BLOCKED_SESSIONS =
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS WHERE BLOCKER_ID IS NOT NULL";
+
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private GradebookService gradebookService;
+    @Autowired
+    private BulkGradingService bulkGradingService;
+    @Autowired
+    private UserCourseRepository userCourseRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long courseId;
+    private Long aliceId;
+    private Assignment essay;
+    private Long submissionId;
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User tutor = fixtures.user("gc-tutor");
+            User alice = fixtures.user("gc-alice");
+            Course course = fixtures.course("GC1", tutor);
+            fixtures.enroll(alice, course, CourseRole.STUDENT);
+            essay = fixtures.assignment(course, "essay", 40.0, tutor);
+            Submission submission = fixtures.submission(alice, essay, 80.0);
+            courseId = course.getId();
+            submissionId = submission.getId();
+            aliceId = alice.getId();
+        });
+        // Tổng lưu sẵn khớp với submission: 80 * 40%
+        jdbcTemplate.update("UPDATE user_course SET weighted_score = 32 WHERE course_id = ?", courseId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "submissions", "assignments", "user_course", "courses", "users");
+    }
+
+    @Test
+    void rebuildWaitsForInFlightGradeChange() throws Exception {
+        // Một lần chấm đang chạy đã cập nhật user_course nhưng chưa commit
+        TransactionStatus grading = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        jdbcTemplate.update("UPDATE user_course SET weighted_score = weighted_score + 5 WHERE course_id = ?", courseId);
+
+        CompletableFuture<Integer> rebuild = CompletableFuture.supplyAsync(() -> gradebookService.rebuildCourse(courseId));
+        awaitBlockedSession();
+        transactionManager.commit(grading);
+
+        // Rebuild chỉ đọc tổng sau khi lần chấm commit, nên thấy được độ lệch và sửa lại
+        assertEquals(1, rebuild.get(5, TimeUnit.SECONDS));
+        assertEquals(32.0, userCourseRepository.findWeightedScore(aliceId, courseId).orElseThrow(), 1e-9);
+    }
+
+    @Test
+    void concurrentGradersApplyDeltasOneAfterAnother() throws Exception {
+        TransactionStatus first = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        bulkGradingService.grade(essay, List.of(item(90.0)));
+
+        // Người chấm thứ hai phải đọc điểm cũ sau khi người thứ nhất commit, không phải 80 của trước đó
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                        bulkGradingService.grade(essay, List.of(item(50.0)))));
+        awaitBlockedSession();
+        transactionManager.commit(first);
+        second.get(5, TimeUnit.SECONDS);
+
+        assertEquals(20.0, userCourseRepository.findWeightedScore(aliceId, courseId).orElseThrow(), 1e-9);
+        assertEquals(0, gradebookService.rebuildCourse(courseId));
+    }
+
+    private BulkGradeItemDTO item(double grade) {
+        BulkGradeItemDTO item = new BulkGradeItemDTO();
+        item.setSubmissionId(submissionId);
+        item.setGrade(grade);
+        return item;
+    }
+
+    private void awaitBlockedSession() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (jdbcTemplate.queryForObject(BLOCKED_SESSIONS, Integer.class) == 0) {
+            assertTrue(System.nanoTime() < deadline, "Không có transaction nào chờ khóa dòng");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseRole;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.support.JpaSliceTestConfig;
+import com.example.mini_project.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({GradebookReportService.class, JpaSliceTestConfig.class})
+class GradebookReportServiceTest {
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private GradebookReportService gradebookReportService;
+
+    private Course course;
+    private User tutor;
+    private User alice;
+    private User bob;
+    private Assignment essay;
+    private Assignment exam;
+
+    @BeforeEach
+    void setUp() {
+        tutor = fixtures.user("tutor", "Thầy", "Ba");
+        alice = fixtures.user("alice", "=cmd", "Nguyễn, Thị");
+        bob = fixtures.user("bob", "Bob", "Trần");
+        course = fixtures.course("GB1", tutor);
+        fixtures.enroll(tutor, course, CourseRole.TUTOR);
+        fixtures.enroll(alice, course, CourseRole.STUDENT);
+        fixtures.enroll(bob, course, CourseRole.STUDENT);
+        essay = fixtures.assignment(course, "essay", 40.0, tutor);
+        exam = fixtures.assignment(course, "exam", 60.0, tutor);
+
+        fixtures.submission(alice, essay, 80.0);
+        fixtures.submission(alice, exam, 50.0);
+        // Tutor không phải học sinh nên không có dòng trong bảng điểm
+        fixtures.submission(tutor, essay, 100.0);
+
+        // Bài của alice ở course khác không được lẫn vào bảng điểm
+        Course other = fixtures.course("GB2", tutor);
+        fixtures.enroll(alice, other, CourseRole.STUDENT);
+        fixtures.submission(alice, fixtures.assignment(other, "other", 100.0, tutor), 100.0);
+        entityManager.flush();
+    }
+
+    @Test
+    void csvHasOneRowPerStudentWithEscapedCells() throws IOException {
+        String[] lines = write(GradebookFormat.CSV).split("\n");
+
+        assertEquals(3, lines.length);
+        assertEquals("\uFEFFuser_id,username,firstname,lastname,essay (40.0%),exam (60.0%),total", lines[0]);
+        assertEquals(alice.getId() + ",alice,'=cmd,\"Nguyễn, Thị\",80.0,50.0,62.0", lines[1]);
+        // bob chưa nộp bài nào vẫn có dòng, tutor thì không
+        assertTrue(lines[2].endsWith(",bob,Bob,Trần,,,0.0"));
+    }
+
+    @Test
+    void csvBlocksFormulasBehindTabOrCarriageReturn() throws IOException {
+        bob.setFirstname("\t=cmd");
+        bob.setLastname("\r@SUM(A1)");
+        entityManager.flush();
+
+        String csv = write(GradebookFormat.CSV);
+
+        assertTrue(csv.contains(",bob,'\t=cmd,\"'\r@SUM(A1)\",,,0.0\n"), csv);
+    }
+
+    @Test
+    void ndjsonHasOneObjectPerStudent() throws IOException {
+        String[] lines = write(GradebookFormat.NDJSON).split("\n");
+        JsonMapper jsonMapper = JsonMapper.builder().build();
+
+        assertEquals(2, lines.length);
+        JsonNode first = jsonMapper.readTree(lines[0]);
+        assertEquals(alice.getId(), first.get("userId").asLong());
+        assertEquals(80.0, first.get("grades").get(essay.getId().toString()).asDouble());
+        assertEquals(50.0, first.get("grades").get(exam.getId().toString()).asDouble());
+        assertEquals(62.0, first.get("total").asDouble(), 1e-9);
+        JsonNode second = jsonMapper.readTree(lines[1]);
+        assertEquals("bob", second.get("username").asString());
+        assertTrue(second.get("grades").get(essay.getId().toString()).isNull());
+        assertEquals(0.0, second.get("total").asDouble());
+    }
+
+    @Test
+    void formatParsing() {
+        assertEquals(GradebookFormat.CSV, GradebookFormat.from(null));
+        assertEquals(GradebookFormat.NDJSON, GradebookFormat.from("NDJSON"));
+        assertNull(GradebookFormat.from("xlsx"));
+    }
+
+    private String write(GradebookFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        gradebookReportService.write(course.getId(), format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseRole;
+import com.example.mini_project.entities.submission.Submission;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.entities.usercourse.UserCourse;
+import com.example.mini_project.repositories.CourseRepository;
+import com.example.mini_project.repositories.UserCourseRepository;
+import com.example.mini_project.support.JpaSliceTestConfig;
+import com.example.mini_project.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({GradebookService.class, JpaSliceTestConfig.class})
+class GradebookServiceTest {
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private GradebookService gradebookService;
+    @Autowired
+    private UserCourseRepository userCourseRepository;
+    @Autowired
+    private CourseRepository courseRepository;
+
+    private Course course;
+    private User alice;
+    private User bob;
+    private Assignment essay;
+    private Assignment exam;
+
+    @BeforeEach
+    void setUp() {
+        User tutor = fixtures.user("tutor");
+        alice = fixtures.user("alice");
+        bob = fixtures.user("bob");
+        course = fixtures.course("GB1", tutor);
+        fixtures.enroll(alice, course, CourseRole.STUDENT);
+        fixtures.enroll(bob, course, CourseRole.STUDENT);
+        essay = fixtures.assignment(course, "essay", 40.0, tutor);
+        exam = fixtures.assignment(course, "exam", 60.0, tutor);
+        entityManager.flush();
+    }
+
+    @Test
+    void totalsFollowGradesWeightsAndDeletes() {
+        Submission aliceEssay = fixtures.submission(alice, essay, null);
+        Submission aliceExam = fixtures.submission(alice, exam, null);
+        Submission bobEssay = fixtures.submission(bob, essay, null);
+
+        grade(aliceEssay, 80.0);
+        grade(aliceExam, 50.0);
+        grade(bobEssay, 100.0);
+        assertTotal(alice, 62.0);
+        assertTotal(bob, 40.0);
+
+        grade(aliceEssay, 90.0);
+        assertTotal(alice, 66.0);
+
+        Double previousWeight = essay.getAssignmentWeight();
+        essay.setAssignmentWeight(20.0);
+        gradebookService.onWeightChanged(essay, previousWeight);
+        assertTotal(alice, 48.0);
+        assertTotal(bob, 20.0);
+
+        gradebookService.onSubmissionDeleted(aliceExam);
+        entityManager.remove(aliceExam);
+        assertTotal(alice, 18.0);
+
+        gradebookService.onAssignmentDeleted(essay);
+        entityManager.remove(aliceEssay);
+        entityManager.remove(bobEssay);
+        assertTotal(alice, 0.0);
+        assertTotal(bob, 0.0);
+    }
+
+    @Test
+    void entityFlushDoesNotOverwriteMaintainedTotal() {
+        // Entity đã nằm trong persistence context với weightedScore = 0 trước khi UPDATE cộng điểm
+        UserCourse enrollment = userCourseRepository.findByUser_IdAndCourse_Id(alice.getId(), course.getId()).orElseThrow();
+        grade(fixtures.submission(alice, exam, null), 100.0);
+        enrollment.setRole(CourseRole.TUTOR);
+        assertTotal(alice, 60.0);
+    }
+
+    @Test
+    void rebuildCorrectsDriftedTotals() {
+        grade(fixtures.submission(alice, essay, null), 50.0);
+        grade(fixtures.submission(bob, exam, null), 50.0);
+        userCourseRepository.setWeightedScore(bob.getId(), course.getId(), 999);
+
+        assertEquals(1, gradebookService.rebuildCourse(course.getId()));
+        assertTotal(alice, 20.0);
+        assertTotal(bob, 30.0);
+        assertEquals(0, gradebookService.rebuildCourse(course.getId()));
+    }
+
+    private void grade(Submission submission, Double grade) {
+        Double previous = submission.getGrade();
+        submission.setGrade(grade);
+        gradebookService.onGradeChanged(submission, previous);
+    }
+
+    // Tổng điểm lưu sẵn phải bằng kết quả query SUM cũ
+    private void assertTotal(User user, double expected) {
+        entityManager.flush();
+        assertEquals(expected, gradebookService.getTotal(user.getId(), course.getId()), 1e-9);
+        assertEquals(expected, courseRepository.getTotalWeightedScore(user.getId(), course.getId()), 1e-9);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.mini_project.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalBlobCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void cachedFileIsServedWholeOrAsRange() throws IOException {
+        LocalBlobCache cache = new LocalBlobCache(directory, 1024, true);
+        byte[] pdf = "%PDF-1.7 hello".getBytes();
+        cache.put("assignments/assignment-1/a.pdf", pdf);
+
+        assertEquals(pdf.length, cache.size("assignments/assignment-1/a.pdf"));
+        ByteArrayOutputStream whole = new ByteArrayOutputStream();
+        assertTrue(cache.transferTo("assignments/assignment-1/a.pdf", 0, pdf.length, whole));
+        assertArrayEquals(pdf, whole.toByteArray());
+
+        ByteArrayOutputStream range = new ByteArrayOutputStream();
+        assertTrue(cache.transferTo("assignments/assignment-1/a.pdf", 9, 5, range));
+        assertEquals("hello", range.toString());
+    }
+
+    @Test
+    void leastRecentlyUsedFilesAreEvictedOverSizeLimit() throws IOException {
+        LocalBlobCache cache = new LocalBlobCache(directory, 300, true);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        cache.put("c", new byte[100]);
+        cache.size("a"); // a vừa được đọc, b là file cũ nhất
+
+        cache.put("d", new byte[100]);
+
+        assertEquals(-1, cache.size("b"));
+        assertEquals(100, cache.size("a"));
+        assertEquals(300, cache.totalBytes());
+        try (var files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+    }
+
+    @Test
+    void evictRemovesFile() throws IOException {
+        LocalBlobCache cache = new LocalBlobCache(directory, 1024, true);
+        cache.put("a", new byte[10]);
+
+        cache.evict("a");
+
+        assertEquals(-1, cache.size("a"));
+        assertFalse(cache.transferTo("a", 0, 10, new ByteArrayOutputStream()));
+        assertEquals(0, cache.totalBytes());
+    }
+
+    @Test
+    void truncatedFileIsReportedAsMissAndEvicted() throws IOException {
+        LocalBlobCache cache = new LocalBlobCache(directory, 1024, true);
+        cache.put("a", new byte[100]);
+        try (var files = Files.list(directory)) {
+            Path file = files.findFirst().orElseThrow();
+            Files.write(file, new byte[40]);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertFalse(cache.transferTo("a", 0, 100, out));
+        assertEquals(0, out.size());
+        assertEquals(-1, cache.size("a"));
+        assertEquals(0, cache.totalBytes());
+    }
+
+    @Test
+    void missingFileIsDroppedFromIndexAndCanBeCachedAgain() throws IOException {
+        LocalBlobCache cache = new LocalBlobCache(directory, 1024, true);
+        cache.put("a", new byte[10]);
+        try (var files = Files.list(directory)) {
+            Files.delete(files.findFirst().orElseThrow());
+        }
+
+        assertFalse(cache.transferTo("a", 0, 10, new ByteArrayOutputStream()));
+        assertEquals(-1, cache.size("a"));
+        assertEquals(0, cache.totalBytes());
+
+        cache.put("a", new byte[10]);
+        assertTrue(cache.transferTo("a", 0, 10, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void leftoverCacheFilesAreClearedOnStartup() throws IOException {
+        new LocalBlobCache(directory, 1024, true).put("a", new byte[10]);
+        Files.writeString(directory.resolve("notes.txt"), "không phải file cache");
+
+        new LocalBlobCache(directory, 1024, true);
+
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.mini_project.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ParallelUploadServiceTest {
+    private static final int FILE_COUNT = 6;
+
+    private final FakeS3Service fakeS3 = new FakeS3Service();
+    private final ContentAddressedStorage contentAddressedStorage = mock(ContentAddressedStorage.class);
+    private final S3DeletionService s3DeletionService = mock(S3DeletionService.class);
+    private final ParallelUploadService parallelUploadService =
+            new ParallelUploadService(fakeS3, contentAddressedStorage, s3DeletionService, 8, 64);
+
+    @AfterEach
+    void tearDown() {
+        parallelUploadService.shutdown();
+    }
+
+    @Test
+    void allFilesAreUploadedConcurrently() throws IOException {
+        // Mỗi PUT chỉ xong khi cả FILE_COUNT PUT cùng đang chạy, upload tuần tự sẽ lỗi
+        fakeS3.inFlight = new CountDownLatch(FILE_COUNT);
+        List<String> keys = keys();
+
+        parallelUploadService.uploadAll(keys, files());
+
+        assertEquals(Set.copyOf(keys), fakeS3.stored);
+    }
+
+    @Test
+    void failedUploadDeletesAlreadyUploadedObjects() {
+        List<String> keys = keys();
+        fakeS3.failingKey = keys.get(2);
+
+        assertThrows(IOException.class, () -> parallelUploadService.uploadAll(keys, files()));
+        assertTrue(fakeS3.stored.isEmpty(), "uploaded objects should be removed: " + fakeS3.stored);
+    }
+
+    @Test
+    void contentAddressedModeStoresIdenticalFilesOnce() throws IOException {
+        when(contentAddressedStorage.isEnabled()).thenReturn(true);
+        Set<String> referenced = ConcurrentHashMap.newKeySet();
+        when(contentAddressedStorage.acquire(anyList())).thenAnswer(invocation -> {
+            List<String> blobKeys = invocation.getArgument(0);
+            Set<String> missing = new HashSet<>(blobKeys);
+            missing.removeAll(referenced);
+            return missing;
+        });
+
+        List<String> first = parallelUploadService.uploadAll(keys(), files());
+        // tất cả file giống nhau nên chỉ có một blob và một PUT
+        assertEquals(1, Set.copyOf(first).size());
+        assertTrue(first.get(0).startsWith("blobs/sha256/"));
+        assertEquals(Set.of(first.get(0)), fakeS3.stored);
+        assertEquals(1, fakeS3.puts.get());
+        verify(contentAddressedStorage).acquire(first);
+
+        // blob đã có tham chiếu thì không PUT lại
+        referenced.add(first.get(0));
+        List<String> second = parallelUploadService.uploadAll(keys(), files());
+        assertEquals(first, second);
+        assertEquals(1, fakeS3.puts.get());
+    }
+
+    @Test
+    void contentAddressedFailureReleasesAcquiredReferences() {
+        when(contentAddressedStorage.isEnabled()).thenReturn(true);
+        when(contentAddressedStorage.acquire(anyList())).thenAnswer(invocation -> Set.copyOf(invocation.<List<String>>getArgument(0)));
+        fakeS3.failAll = true;
+
+        assertThrows(IOException.class, () -> parallelUploadService.uploadAll(keys(), files()));
+        verify(s3DeletionService).enqueue(argThat(blobKeys -> blobKeys.size() == FILE_COUNT));
+    }
+
+    private List<String> keys() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < FILE_COUNT; i++) keys.add("submissions/test/file-" + i + ".pdf");
+        return keys;
+    }
+
+    private List<MultipartFile> files() {
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < FILE_COUNT; i++) {
+            files.add(new MockMultipartFile("file", "file-" + i + ".pdf", "application/pdf", new byte[1024]));
+        }
+        return files;
+    }
+
+    // S3 giả; inFlight (nếu có) bắt mỗi PUT chờ tới khi đủ số PUT cùng chạy
+    private static class FakeS3Service extends S3Service {
+        final Set<String> stored = ConcurrentHashMap.newKeySet();
+        final AtomicInteger puts = new AtomicInteger();
+        volatile String failingKey;
+        volatile boolean failAll;
+        volatile CountDownLatch inFlight;
+
+        @Override
+        public void uploadFile(String key, InputStream inputStream, Long contentLength, String contentType)
+                throws IOException {
+            puts.incrementAndGet();
+            CountDownLatch latch = inFlight;
+            if (latch != null) {
+                latch.countDown();
+                try {
+                    if (!latch.await(5, TimeUnit.SECONDS)) throw new IOException("PUT không chạy song song: " + key);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            if (failAll || key.equals(failingKey)) throw new IOException("S3 PUT failed: " + key);
+            stored.add(key);
+        }
+
+        @Override
+        public void deleteObject(String key) {
+            stored.remove(key);
+        }
+    }
+}
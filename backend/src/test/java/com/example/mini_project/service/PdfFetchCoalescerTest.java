@@ -0,0 +1,114 @@
+package com.example.mini_project.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PdfFetchCoalescerTest {
+    private static final String KEY = "assignments/assignment-1/template.pdf";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Cache cache = new ConcurrentMapCache(UploadPdfService.PDF_CACHE);
+
+    @Test
+    void concurrentMissesShareOneFetch() throws Exception {
+        PdfFetchCoalescer coalescer = new PdfFetchCoalescer(null, meterRegistry);
+        AtomicInteger s3Fetches = new AtomicInteger();
+        int requests = 50;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return coalescer.load(cache, KEY, () -> {
+                        s3Fetches.incrementAndGet();
+                        sleep(200);
+                        return new byte[]{1, 2, 3};
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(new byte[]{1, 2, 3}, result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, s3Fetches.get());
+        assertEquals(1.0, count("leader"));
+        // những request đến sau khi cache đã có dữ liệu là hit, không tính là coalesced
+        assertTrue(count("coalesced") > 0);
+    }
+
+    @Test
+    void nodeWithoutLeaseWaitsForCacheFill() {
+        StringRedisTemplate redisTemplate = leaseHeldByAnotherNode();
+        PdfFetchCoalescer coalescer = new PdfFetchCoalescer(redisTemplate, meterRegistry);
+
+        // node giữ lease ghi cache sau 100ms
+        new Thread(() -> {
+            sleep(100);
+            cache.put(KEY, new byte[]{9});
+        }).start();
+
+        byte[] bytes = coalescer.load(cache, KEY, () -> fail("không được fetch từ S3"));
+        assertArrayEquals(new byte[]{9}, bytes);
+        assertEquals(1.0, count("lease_wait"));
+    }
+
+    @Test
+    void nodeWithoutLeaseStreamsThroughAfterTimeout() {
+        StringRedisTemplate redisTemplate = leaseHeldByAnotherNode();
+        PdfFetchCoalescer coalescer = new PdfFetchCoalescer(redisTemplate, meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "leaseWaitMs", 100L);
+
+        byte[] bytes = coalescer.load(cache, KEY, () -> new byte[]{7});
+
+        assertArrayEquals(new byte[]{7}, bytes);
+        assertNull(cache.get(KEY), "stream through không ghi cache");
+        assertEquals(1.0, count("stream_through"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static StringRedisTemplate leaseHeldByAnotherNode() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(ops);
+        when(ops.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        return redisTemplate;
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("pdf.cache.fetch").tag("outcome", outcome).counter().count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
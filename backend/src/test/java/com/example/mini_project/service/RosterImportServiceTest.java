@@ -0,0 +1,122 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseRole;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.entities.usercourse.RosterImportProgressDTO;
+import com.example.mini_project.entities.usercourse.RosterRowErrorDTO;
+import com.example.mini_project.entities.usercourse.UserCourse;
+import com.example.mini_project.repositories.UserCourseRepository;
+import com.example.mini_project.support.JpaSliceTestConfig;
+import com.example.mini_project.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "app.roster.import.chunk-size=2"
+})
+@Import({RosterImportService.class, CourseMembershipService.class, JpaSliceTestConfig.class})
+class RosterImportServiceTest {
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private RosterImportService rosterImportService;
+    @Autowired
+    private UserCourseRepository userCourseRepository;
+
+    private Course course;
+    private User alice;
+    private User bob;
+    private User carol;
+
+    @BeforeEach
+    void setUp() {
+        User owner = fixtures.user("owner");
+        alice = fixtures.user("alice");
+        bob = fixtures.user("bob");
+        carol = fixtures.user("carol");
+        course = fixtures.course("RI1", owner);
+        fixtures.enroll(bob, course, CourseRole.STUDENT);
+
+        // carol từng học course này và có bài đã chấm
+        Assignment essay = fixtures.assignment(course, "essay", 40.0, owner);
+        fixtures.submission(carol, essay, 50.0);
+        entityManager.flush();
+    }
+
+    @Test
+    void importsKnownUsersAndReportsEachProblemRow() throws IOException {
+        String csv = """
+                \uFEFFusername,note
+                alice,first
+                ghost
+                bob
+
+                "carol",again
+                alice
+                """;
+        List<RosterRowErrorDTO> errors = new ArrayList<>();
+        List<RosterImportProgressDTO> progress = new ArrayList<>();
+
+        RosterImportProgressDTO done = rosterImportService.importRoster(course.getId(), new StringReader(csv),
+                new RosterImportService.Listener() {
+                    @Override
+                    public void onRowError(RosterRowErrorDTO error) {
+                        errors.add(error);
+                    }
+
+                    @Override
+                    public void onProgress(RosterImportProgressDTO value) {
+                        progress.add(value);
+                    }
+                });
+
+        assertEquals(new RosterImportProgressDTO("done", 5, 2, 2, 1), done);
+        assertEquals(List.of(new RosterRowErrorDTO(3, "ghost", "Không tìm thấy user")), errors);
+        // chunk-size = 2: báo tiến độ sau mỗi chunk
+        assertEquals(List.of(2L, 4L, 5L), progress.stream().map(RosterImportProgressDTO::processed).toList());
+
+        entityManager.clear();
+        UserCourse aliceEnrollment = userCourseRepository.findByUser_IdAndCourse_Id(alice.getId(), course.getId()).orElseThrow();
+        assertEquals(CourseRole.STUDENT, aliceEnrollment.getRole());
+        assertEquals(0.0, aliceEnrollment.getWeightedScore());
+        assertEquals(20.0, userCourseRepository.findWeightedScore(carol.getId(), course.getId()).orElseThrow(), 1e-9);
+    }
+
+    @Test
+    void writesNdjsonProgress() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        rosterImportService.importRoster(course.getId(), new StringReader("alice\nnobody\n"), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"type\":\"error\"") && lines[0].contains("\"line\":2"));
+        assertTrue(lines[1].contains("\"type\":\"progress\""));
+        assertTrue(lines[2].contains("\"type\":\"done\"") && lines[2].contains("\"enrolled\":1"));
+    }
+
+    @Test
+    void firstFieldHandlesQuotes() {
+        assertEquals("alice", RosterImportService.firstField("alice,Alice Nguyen"));
+        assertEquals("a,b \"c\"", RosterImportService.firstField("\"a,b \"\"c\"\"\",x"));
+        assertEquals("", RosterImportService.firstField(""));
+    }
+}
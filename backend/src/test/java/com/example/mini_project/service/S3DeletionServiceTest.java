@@ -0,0 +1,142 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.file.S3DeletionTask;
+import com.example.mini_project.repositories.S3DeletionTaskRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class S3DeletionServiceTest {
+    private final S3DeletionTaskRepository taskRepository = mock(S3DeletionTaskRepository.class);
+    private final UploadPdfService uploadPdfService = mock(UploadPdfService.class);
+    private final ContentAddressedStorage contentAddressedStorage = mock(ContentAddressedStorage.class);
+    private final FakeS3Service fakeS3 = new FakeS3Service();
+    private final List<S3DeletionTask> outbox = new ArrayList<>();
+
+    private S3DeletionService newService(int batchSize) {
+        // Outbox trong bộ nhớ thay cho bảng s3_deletion_outbox
+        when(taskRepository.lockDueTasks(any(), anyInt())).thenAnswer(invocation -> {
+            LocalDateTime now = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return outbox.stream()
+                    .filter(task -> !task.getNextAttemptAt().isAfter(now))
+                    .sorted(Comparator.comparing(S3DeletionTask::getS3Key))
+                    .limit(limit)
+                    .toList();
+        });
+        doAnswer(invocation -> {
+            Iterable<S3DeletionTask> tasks = invocation.getArgument(0);
+            tasks.forEach(task -> {
+                if (!outbox.contains(task)) outbox.add(task);
+            });
+            return tasks;
+        }).when(taskRepository).saveAll(any());
+        doAnswer(invocation -> {
+            Iterable<S3DeletionTask> tasks = invocation.getArgument(0);
+            tasks.forEach(outbox::remove);
+            return null;
+        }).when(taskRepository).deleteAll(any());
+
+        S3DeletionService service = new S3DeletionService(taskRepository, fakeS3, uploadPdfService, contentAddressedStorage, batchSize);
+        ReflectionTestUtils.setField(service, "retryBaseSeconds", 30L);
+        ReflectionTestUtils.setField(service, "retryMaxSeconds", 3600L);
+        return service;
+    }
+
+    @Test
+    void keysAreDeletedInBatchesOfAtMostOneThousand() {
+        S3DeletionService service = newService(5000);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) keys.add(String.format("submissions/key-%05d", i));
+        service.enqueue(keys);
+
+        new S3DeletionWorker(service).drain();
+
+        assertEquals(List.of(1000, 1000, 500), fakeS3.batchSizes);
+        assertTrue(outbox.isEmpty());
+        verify(uploadPdfService, times(2500)).evictFile(any());
+    }
+
+    @Test
+    void failedKeysAreRescheduledWithBackoff() {
+        S3DeletionService service = newService(1000);
+        fakeS3.failing.put("assignments/b", "AccessDenied: denied");
+        service.enqueue(List.of("assignments/a", "assignments/b", "assignments/c"));
+
+        service.processBatch();
+
+        assertEquals(1, outbox.size());
+        S3DeletionTask task = outbox.get(0);
+        assertEquals("assignments/b", task.getS3Key());
+        assertEquals(1, task.getAttempts());
+        assertEquals("AccessDenied: denied", task.getLastError());
+        assertTrue(task.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(20)));
+        // chưa đến hạn nên batch tiếp theo không lấy lại
+        assertEquals(0, service.processBatch());
+    }
+
+    @Test
+    void sharedBlobIsQueuedOnlyWhenLastReferenceIsReleased() {
+        S3DeletionService service = newService(1000);
+        String shared = ContentAddressedStorage.keyFor("aa11");
+        String orphan = ContentAddressedStorage.keyFor("bb22");
+        when(contentAddressedStorage.release(List.of(shared, orphan, orphan))).thenReturn(Set.of(orphan));
+
+        service.enqueue(List.of(shared, orphan, orphan));
+
+        assertEquals(List.of(orphan), outbox.stream().map(S3DeletionTask::getS3Key).toList());
+        verify(uploadPdfService, never()).evictFile(any());
+    }
+
+    @Test
+    void sharedBlobReferencedAgainBeforeWorkerRunsIsNotDeleted() {
+        S3DeletionService service = newService(1000);
+        String shared = ContentAddressedStorage.keyFor("aa11");
+        String orphan = ContentAddressedStorage.keyFor("bb22");
+        when(contentAddressedStorage.release(any())).thenReturn(Set.of(shared, orphan));
+        service.enqueue(List.of(shared, orphan));
+        // Một upload cùng nội dung với shared đã tăng lại refcount trước khi worker khóa được dòng blob
+        when(contentAddressedStorage.lockUnreferenced(Set.of(shared, orphan))).thenReturn(Set.of(orphan));
+
+        service.processBatch();
+
+        assertEquals(List.of(1), fakeS3.batchSizes);
+        assertTrue(outbox.isEmpty());
+        verify(uploadPdfService, never()).evictFile(shared);
+        verify(uploadPdfService).evictFile(orphan);
+        verify(contentAddressedStorage).forget(List.of(orphan));
+    }
+
+    @Test
+    void backoffDoublesUpToMaximum() {
+        S3DeletionService service = newService(1000);
+        assertEquals(30, service.backoffSeconds(1));
+        assertEquals(60, service.backoffSeconds(2));
+        assertEquals(3600, service.backoffSeconds(30));
+    }
+
+    private static class FakeS3Service extends S3Service {
+        final List<Integer> batchSizes = new ArrayList<>();
+        final Map<String, String> failing = new HashMap<>();
+
+        @Override
+        public Map<String, String> deleteObjects(List<String> keys) {
+            batchSizes.add(keys.size());
+            Map<String, String> errors = new HashMap<>();
+            keys.stream().filter(failing::containsKey).forEach(key -> errors.put(key, failing.get(key)));
+            return errors;
+        }
+    }
+}
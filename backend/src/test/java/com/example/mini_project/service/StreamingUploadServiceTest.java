@@ -0,0 +1,185 @@
+package com.example.mini_project.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingUploadServiceTest {
+    private static final int PART_SIZE = 64 * 1024;
+    private static final int MAX_IN_FLIGHT = 2;
+
+    private final FakeS3Service fakeS3 = new FakeS3Service();
+    private final StreamingUploadService streamingUploadService =
+            new StreamingUploadService(fakeS3, PART_SIZE, MAX_IN_FLIGHT, 10L * 1024 * 1024, 8);
+
+    @AfterEach
+    void tearDown() {
+        streamingUploadService.shutdown();
+    }
+
+    @Test
+    void largeStreamIsUploadedAsOrderedPartsWithBoundedInFlight() throws Exception {
+        byte[] data = randomBytes(PART_SIZE * 7 + 123);
+
+        StreamingUploadService.StreamedUpload result = streamingUploadService.upload(
+                "submissions/test/big.pdf", new ByteArrayInputStream(data), "application/pdf");
+
+        assertEquals(data.length, result.size());
+        assertArrayEquals(data, fakeS3.completedObject());
+        assertEquals(8, fakeS3.completedParts.size());
+        // complete phải gửi lại checksum của từng part
+        for (CompletedPart part : fakeS3.completedParts) {
+            assertEquals(sha256(fakeS3.parts.get(part.partNumber())), part.checksumSHA256());
+        }
+        assertTrue(fakeS3.maxConcurrentParts.get() <= MAX_IN_FLIGHT,
+                "parts in flight: " + fakeS3.maxConcurrentParts.get());
+        assertFalse(fakeS3.aborted);
+    }
+
+    @Test
+    void smallStreamUsesSinglePut() throws Exception {
+        byte[] data = randomBytes(PART_SIZE / 2);
+
+        StreamingUploadService.StreamedUpload result = streamingUploadService.upload(
+                "submissions/test/small.pdf", new ByteArrayInputStream(data), "application/pdf");
+
+        assertEquals(data.length, result.size());
+        assertArrayEquals(data, fakeS3.singlePut);
+        assertEquals(sha256(data), fakeS3.singlePutChecksum);
+        assertNull(fakeS3.uploadId);
+    }
+
+    @Test
+    void partCorruptedInTransitIsRejectedAndAborted() {
+        fakeS3.corruptedPart = 2;
+        byte[] data = randomBytes(PART_SIZE * 4);
+
+        assertThrows(IOException.class, () -> streamingUploadService.upload(
+                "submissions/test/corrupt.pdf", new ByteArrayInputStream(data), "application/pdf"));
+        assertTrue(fakeS3.aborted);
+        assertNull(fakeS3.completedParts);
+    }
+
+    @Test
+    void failedPartAbortsMultipartUpload() {
+        fakeS3.failingPart = 3;
+        byte[] data = randomBytes(PART_SIZE * 6);
+
+        assertThrows(IOException.class, () -> streamingUploadService.upload(
+                "submissions/test/fail.pdf", new ByteArrayInputStream(data), "application/pdf"));
+        assertTrue(fakeS3.aborted);
+        assertNull(fakeS3.completedParts);
+    }
+
+    @Test
+    void oversizedStreamIsRejectedAndAborted() {
+        StreamingUploadService limited = new StreamingUploadService(fakeS3, PART_SIZE, MAX_IN_FLIGHT, PART_SIZE * 3L, 2);
+        try {
+            byte[] data = randomBytes(PART_SIZE * 5);
+            assertThrows(IllegalArgumentException.class, () -> limited.upload(
+                    "submissions/test/huge.pdf", new ByteArrayInputStream(data), "application/pdf"));
+            assertTrue(fakeS3.aborted);
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // S3 giả: giữ lại nội dung từng part, đếm số part upload đồng thời và kiểm tra checksum như S3
+    private static class FakeS3Service extends S3Service {
+        final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxConcurrentParts = new AtomicInteger();
+        volatile String uploadId;
+        volatile List<CompletedPart> completedParts;
+        volatile boolean aborted;
+        volatile int failingPart = -1;
+        volatile int corruptedPart = -1;
+        volatile byte[] singlePut;
+        volatile String singlePutChecksum;
+
+        @Override
+        public void uploadFile(String key, InputStream inputStream, Long contentLength, String contentType,
+                               String checksumSha256) throws IOException {
+            singlePut = inputStream.readAllBytes();
+            singlePutChecksum = checksumSha256;
+        }
+
+        @Override
+        public String createMultipartUpload(String key, String contentType) {
+            uploadId = "upload-1";
+            return uploadId;
+        }
+
+        @Override
+        public CompletedPart uploadPart(String key, String uploadId, int partNumber, byte[] data, int length,
+                                        String checksumSha256) {
+            int current = inFlight.incrementAndGet();
+            maxConcurrentParts.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(20);
+                if (partNumber == failingPart) throw new IllegalStateException("part " + partNumber + " failed");
+                byte[] copy = new byte[length];
+                System.arraycopy(data, 0, copy, 0, length);
+                if (partNumber == corruptedPart) copy[0] ^= 1;
+                if (!sha256(copy).equals(checksumSha256)) {
+                    throw new IllegalStateException("BadDigest: part " + partNumber);
+                }
+                parts.put(partNumber, copy);
+                return CompletedPart.builder().partNumber(partNumber).eTag("etag-" + partNumber)
+                        .checksumSHA256(checksumSha256).build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void completeMultipartUpload(String key, String uploadId, List<CompletedPart> parts) {
+            completedParts = parts;
+        }
+
+        @Override
+        public void abortMultipartUpload(String key, String uploadId) {
+            aborted = true;
+        }
+
+        byte[] completedObject() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (CompletedPart part : completedParts) {
+                out.writeBytes(parts.get(part.partNumber()));
+            }
+            return out.toByteArray();
+        }
+    }
+}
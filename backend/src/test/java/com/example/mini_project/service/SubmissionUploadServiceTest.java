@@ -0,0 +1,80 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.file.SubmissionFile;
+import com.example.mini_project.entities.file.UploadedObject;
+import com.example.mini_project.entities.submission.Submission;
+import com.example.mini_project.entities.submission.SubmissionStatus;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.support.JpaSliceTestConfig;
+import com.example.mini_project.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({SubmissionUploadService.class, JpaSliceTestConfig.class})
+class SubmissionUploadServiceTest {
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private SubmissionUploadService submissionUploadService;
+
+    private User alice;
+    private Assignment essay;
+
+    @BeforeEach
+    void setUp() {
+        User tutor = fixtures.user("tutor");
+        alice = fixtures.user("alice");
+        Course course = fixtures.course("UP1", tutor);
+        essay = fixtures.assignment(course, "essay", 40.0, tutor);
+        entityManager.flush();
+    }
+
+    @Test
+    void firstUploadCreatesSubmissionWithItsFile() {
+        Submission submission = submissionUploadService.attachUploads(alice, essay, "bản nháp", List.of(object("a.pdf")));
+        entityManager.flush();
+        entityManager.clear();
+
+        Submission stored = entityManager.find(Submission.class, submission.getId());
+        assertEquals("bản nháp", stored.getDescription());
+        assertEquals(SubmissionStatus.SUBMITTED, stored.getStatus());
+        assertEquals(List.of(key("a.pdf")), stored.getFiles().stream().map(SubmissionFile::getS3Key).toList());
+    }
+
+    @Test
+    void laterUploadsAppendToExistingSubmissionOnce() {
+        Submission first = submissionUploadService.attachUploads(alice, essay, "bản nháp", List.of(object("a.pdf")));
+        entityManager.flush();
+
+        Submission second = submissionUploadService.attachUploads(alice, essay, "bản cuối",
+                List.of(object("a.pdf"), object("b.pdf")));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(first.getId(), second.getId());
+        Submission stored = entityManager.find(Submission.class, first.getId());
+        assertEquals("bản cuối", stored.getDescription());
+        assertEquals(2, stored.getFiles().size());
+    }
+
+    private UploadedObject object(String filename) {
+        return new UploadedObject(key(filename), filename, "application/pdf", 10L);
+    }
+
+    private String key(String filename) {
+        return SubmissionFile.uploadKeyPrefix(essay.getId(), alice.getId()) + filename;
+    }
+}
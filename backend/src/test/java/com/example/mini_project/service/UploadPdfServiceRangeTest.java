@@ -0,0 +1,129 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.entities.file.StoredFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Header Range / If-Range của writePdf, cho file nhỏ (qua cache) và file lớn (range request thẳng tới S3).
+ */
+class UploadPdfServiceRangeTest {
+    private static final String KEY = "assignments/assignment-1/a.pdf";
+    private static final int SIZE = 100;
+    private static final byte[] PDF = new byte[SIZE];
+
+    static {
+        for (int i = 0; i < SIZE; i++) PDF[i] = (byte) i;
+    }
+
+    private S3Service s3Service;
+    private StoredFile file;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        s3Service = mock(S3Service.class);
+        when(s3Service.downloadFile(KEY)).thenAnswer(inv -> new ByteArrayInputStream(PDF));
+        file = mock(StoredFile.class);
+        when(file.getS3Key()).thenReturn(KEY);
+        when(file.getOriginalFilename()).thenReturn("a.pdf");
+        when(file.getFileSize()).thenReturn((long) SIZE);
+        request = new MockHttpServletRequest();
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void singleRangeIsServedAsPartialContent() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+
+        service(1024).writePdf(file, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(10, response.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOfRange(PDF, 10, 20), response.getContentAsByteArray());
+    }
+
+    @Test
+    void suffixRangeReturnsLastBytes() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=-5");
+
+        service(1024).writePdf(file, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 95-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(PDF, 95, 100), response.getContentAsByteArray());
+    }
+
+    @Test
+    void rangeOfLargeFileIsRequestedFromS3() throws IOException {
+        when(s3Service.downloadRange(KEY, 10, 19))
+                .thenAnswer(inv -> new ByteArrayInputStream(Arrays.copyOfRange(PDF, 10, 20)));
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+
+        service(SIZE - 1).writePdf(file, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(PDF, 10, 20), response.getContentAsByteArray());
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416WithFileLength() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=200-300");
+
+        service(1024).writePdf(file, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void ifRangeWithOtherETagReturnsWholeFile() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"khong-khop\"");
+
+        service(1024).writePdf(file, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(PDF, response.getContentAsByteArray());
+    }
+
+    @Test
+    void ifRangeWithCurrentETagReturnsRange() throws IOException {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        service(1024).writePdf(file, new MockHttpServletRequest(), first);
+        String eTag = first.getHeader(HttpHeaders.ETAG);
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+        request.addHeader(HttpHeaders.IF_RANGE, eTag);
+
+        service(1024).writePdf(file, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(eTag, response.getHeader(HttpHeaders.ETAG));
+    }
+
+    private UploadPdfService service(long cacheMaxBytes) throws IOException {
+        return new UploadPdfService(s3Service,
+                new ConcurrentMapCacheManager(UploadPdfService.PDF_CACHE),
+                new PdfFetchCoalescer(null, new SimpleMeterRegistry()),
+                new LocalBlobCache(Path.of("unused"), 0, false), cacheMaxBytes);
+    }
+}
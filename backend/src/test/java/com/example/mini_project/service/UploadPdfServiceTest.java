@@ -0,0 +1,133 @@
+package com.example.mini_project.service;
+
+import com.example.mini_project.config.OffHeapBlobCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * So sánh lượng heap cấp phát cho mỗi request tải PDF 10MB:
+ * readAllBytes (cách cũ) với stream qua buffer cố định (cách mới).
+ */
+class UploadPdfServiceTest {
+    private static final int PDF_SIZE = 10 * 1024 * 1024;
+    private static final String KEY = "assignments/assignment-1/big.pdf";
+
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private S3Service s3Service;
+    private UploadPdfService uploadPdfService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        s3Service = mock(S3Service.class);
+        when(s3Service.downloadFile(KEY)).thenAnswer(inv -> new ZeroInputStream(PDF_SIZE));
+        uploadPdfService = new UploadPdfService(s3Service,
+                new ConcurrentMapCacheManager(UploadPdfService.PDF_CACHE),
+                new PdfFetchCoalescer(null, new SimpleMeterRegistry()),
+                new LocalBlobCache(Path.of("unused"), 0, false), 2 * 1024 * 1024);
+    }
+
+    @Test
+    void streamingAllocatesFarLessThanReadAllBytes() throws IOException {
+        // warm up thread-local buffer và các class liên quan
+        uploadPdfService.writePdf(KEY, (long) PDF_SIZE, null, OutputStream.nullOutputStream());
+
+        long before = allocatedBytes();
+        byte[] bytes = uploadPdfService.loadPdfBytes(KEY);
+        long readAllBytesAllocation = allocatedBytes() - before;
+        assertEquals(PDF_SIZE, bytes.length);
+
+        CountingOutputStream out = new CountingOutputStream();
+        before = allocatedBytes();
+        uploadPdfService.writePdf(KEY, (long) PDF_SIZE, null, out);
+        long streamingAllocation = allocatedBytes() - before;
+        assertEquals(PDF_SIZE, out.count);
+
+        assertTrue(readAllBytesAllocation >= PDF_SIZE, "readAllBytes: " + readAllBytesAllocation + " bytes");
+        assertTrue(streamingAllocation < 256 * 1024, "streaming: " + streamingAllocation + " bytes");
+    }
+
+    @Test
+    void offHeapHitIsWrittenWithoutHeapCopy() throws IOException {
+        int size = 4 * 1024 * 1024;
+        OffHeapBlobCache l1 = new OffHeapBlobCache(UploadPdfService.PDF_CACHE, 4L * size, size);
+        l1.put(KEY, new byte[size]);
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(l1));
+        cacheManager.afterPropertiesSet();
+        UploadPdfService service = new UploadPdfService(s3Service, cacheManager,
+                new PdfFetchCoalescer(null, new SimpleMeterRegistry()),
+                new LocalBlobCache(Path.of("unused"), 0, false), size);
+        service.writePdf(KEY, (long) size, null, OutputStream.nullOutputStream());
+
+        CountingOutputStream out = new CountingOutputStream();
+        long before = allocatedBytes();
+        service.writePdf(KEY, (long) size, null, out);
+
+        assertEquals(size, out.count);
+        long allocated = allocatedBytes() - before;
+        assertTrue(allocated < size / 4, "allocated: " + allocated + " bytes");
+        verify(s3Service, never()).downloadFile(anyString());
+    }
+
+    private long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // Giả lập S3 stream mà không giữ dữ liệu trên heap
+    private static class ZeroInputStream extends InputStream {
+        private long remaining;
+
+        ZeroInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) return -1;
+            remaining--;
+            return 0;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) return -1;
+            int n = (int) Math.min(len, remaining);
+            remaining -= n;
+            return n;
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
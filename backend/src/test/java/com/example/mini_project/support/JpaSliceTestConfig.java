@@ -0,0 +1,37 @@
+package com.example.mini_project.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Bean dùng chung cho các test @DataJpaTest: slice JPA không có Redis, actuator hay Jackson auto-config.
+ * @EnableCaching trên MiniProjectApplication cần một CacheManager; service đếm metric cần MeterRegistry.
+ */
+@TestConfiguration
+public class JpaSliceTestConfig {
+    @Bean
+    CacheManager cacheManager() {
+        return new NoOpCacheManager();
+    }
+
+    @Bean
+    MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    JsonMapper jsonMapper() {
+        return JsonMapper.builder().build();
+    }
+
+    @Bean
+    TestFixtures testFixtures(TestEntityManager entityManager) {
+        return new TestFixtures(entityManager);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.mini_project.support;
+
+import com.example.mini_project.entities.assignment.Assignment;
+import com.example.mini_project.entities.course.Course;
+import com.example.mini_project.entities.course.CourseRole;
+import com.example.mini_project.entities.submission.Submission;
+import com.example.mini_project.entities.submission.SubmissionStatus;
+import com.example.mini_project.entities.user.User;
+import com.example.mini_project.entities.usercourse.UserCourse;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Tạo dữ liệu mẫu cho test @DataJpaTest. Entity trả về đang được quản lý, test có thể sửa thêm trước khi flush.
+ */
+public class TestFixtures {
+    private final TestEntityManager entityManager;
+
+    public TestFixtures(TestEntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("x");
+        return entityManager.persist(user);
+    }
+
+    public User user(String username, String firstname, String lastname) {
+        User user = user(username);
+        user.setFirstname(firstname);
+        user.setLastname(lastname);
+        return user;
+    }
+
+    public Course course(String code, User createdBy) {
+        Course course = new Course();
+        course.setCourseCode(code);
+        course.setCourseName("Course " + code);
+        course.setIsPrivate(false);
+        course.setCreatedBy(createdBy);
+        return entityManager.persist(course);
+    }
+
+    public UserCourse enroll(User user, Course course, CourseRole role) {
+        return entityManager.persist(new UserCourse(null, user, course, LocalDate.now(), role));
+    }
+
+    public Assignment assignment(Course course, String name, Double weight, User createdBy) {
+        Assignment assignment = new Assignment();
+        assignment.setCourse(course);
+        assignment.setAssignmentName(name);
+        assignment.setAssignmentDue(LocalDateTime.now().plusDays(7));
+        assignment.setAssignmentWeight(weight);
+        assignment.setCreatedBy(createdBy);
+        return entityManager.persist(assignment);
+    }
+
+    public Submission submission(User user, Assignment assignment, Double grade) {
+        Submission submission = new Submission();
+        submission.setUser(user);
+        submission.setAssignment(assignment);
+        submission.setSubmissionTime(LocalDateTime.now());
+        submission.setStatus(SubmissionStatus.SUBMITTED);
+        submission.setGrade(grade);
+        return entityManager.persist(submission);
+    }
+}
@@ -26,6 +26,8 @@ export const ViewSubmissionsDialog: React.FC<ViewSubmissionsDialogProps> = ({ op
   const { toast } = useToast();
   const [isLoading, setIsLoading] = useState(false);
   const [rows, setRows] = useState<Submission[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [isLoadingMore, setIsLoadingMore] = useState(false);
 
   // Detail modal state
   const [detailOpen, setDetailOpen] = useState(false);
@@ -42,12 +44,13 @@ export const ViewSubmissionsDialog: React.FC<ViewSubmissionsDialogProps> = ({ op
   useEffect(() => {
     let mounted = true;
     const load = async () => {
-      if (!open || !assignment || !assignment.id || !courseId) { setRows([]); return; }
+      if (!open || !assignment || !assignment.id || !courseId) { setRows([]); setNextCursor(null); return; }
       setIsLoading(true);
       try {
-        const list = await submissionsApi.getByAssignment(courseId, assignment.id);
+        const page = await submissionsApi.listByAssignment(courseId, assignment.id);
         if (!mounted) return;
-        setRows(list || []);
+        setRows(page.data);
+        setNextCursor(page.next);
       } catch (error: any) {
         if (!mounted) return;
         toast({ title: 'Không thể tải bài nộp', description: error.response?.data?.message || 'Vui lòng thử lại sau', variant: 'destructive' });
@@ -59,6 +62,20 @@ export const ViewSubmissionsDialog: React.FC<ViewSubmissionsDialogProps> = ({ op
     return () => { mounted = false; };
   }, [open, assignment?.id, courseId, toast]);
 
+  const loadMore = async () => {
+    if (!assignment || !nextCursor) return;
+    setIsLoadingMore(true);
+    try {
+      const page = await submissionsApi.listByAssignment(courseId, assignment.id, nextCursor);
+      setRows(prev => [...prev, ...page.data]);
+      setNextCursor(page.next);
+    } catch (error: any) {
+      toast({ title: 'Không thể tải thêm bài nộp', description: error.response?.data?.message || 'Vui lòng thử lại sau', variant: 'destructive' });
+    } finally {
+      setIsLoadingMore(false);
+    }
+  };
+
   const openDetail = (s: Submission) => {
     setSelected(s);
     setGradeStr(s.grade != null ? String(s.grade) : '');
@@ -153,6 +170,13 @@ export const ViewSubmissionsDialog: React.FC<ViewSubmissionsDialogProps> = ({ op
               </TableBody>
             </Table>
           )}
+          {!isLoading && nextCursor && (
+            <div className="flex justify-center pt-3">
+              <Button size="sm" variant="outline" onClick={loadMore} disabled={isLoadingMore}>
+                {isLoadingMore ? <Loader2 className="h-4 w-4 animate-spin" /> : 'Tải thêm'}
+              </Button>
+            </div>
+          )}
         </div>
         <DialogFooter>
           <Button variant="outline" onClick={() => onOpenChange(false)}>Đóng</Button>
@@ -1,5 +1,5 @@
-import { useState, useEffect, useCallback } from 'react';
-import { coursesApi, enrollmentApi, CourseDTO } from '@/lib/api';
+import { useState, useEffect, useCallback, useRef } from 'react';
+import { coursesApi, enrollmentApi, CourseDTO, Page } from '@/lib/api';
 import { useToast } from '@/hooks/use-toast';
 import { PrivacyFilter } from '@/components/dashboard/CourseSearchBar';
 
@@ -7,9 +7,14 @@ export const useCourses = (username?: string) => {
   const { toast } = useToast();
   const [courses, setCourses] = useState<CourseDTO[]>([]);
   const [isLoading, setIsLoading] = useState(true);
+  const [isLoadingMore, setIsLoadingMore] = useState(false);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [enrolledCourseCodes, setEnrolledCourseCodes] = useState<Set<string>>(new Set());
+  // Loads the page after `cursor` for the listing currently on screen (all courses or the last search)
+  const loadPage = useRef<(cursor?: string | null) => Promise<Page<CourseDTO>>>((cursor) => coursesApi.list(cursor));
 
-  const refreshEnrollments = useCallback(async (coursesList: CourseDTO[]) => {
+  // `append` keeps the codes already known for earlier pages
+  const refreshEnrollments = useCallback(async (coursesList: CourseDTO[], append = false) => {
     if (!username) return;
     try {
       const results = await Promise.all((coursesList || []).map(async (course) => {
@@ -24,9 +29,8 @@ export const useCourses = (username?: string) => {
           return { code, enrolled: creatorEnrolled };
         }
       }));
-      const next = new Set<string>();
-      results.forEach((r) => { if (r.enrolled && r.code) next.add(r.code); });
-      setEnrolledCourseCodes(next);
+      const enrolled = results.filter((r) => r.enrolled && r.code).map((r) => r.code);
+      setEnrolledCourseCodes((prev) => new Set(append ? [...prev, ...enrolled] : enrolled));
     } catch {
       // ignore refresh errors
     }
@@ -34,10 +38,11 @@ export const useCourses = (username?: string) => {
 
   const fetchCourses = useCallback(async () => {
     try {
-      const data = await coursesApi.getAll();
-      const list = Array.isArray(data) ? data : [];
-      setCourses(list);
-      await refreshEnrollments(list);
+      loadPage.current = (cursor) => coursesApi.list(cursor);
+      const page = await loadPage.current();
+      setCourses(page.data);
+      setNextCursor(page.next);
+      await refreshEnrollments(page.data);
     } catch {
       toast({
         title: 'Lỗi',
@@ -53,10 +58,11 @@ export const useCourses = (username?: string) => {
     setIsLoading(true);
     try {
       const isPrivateParam = privacyFilter === 'all' ? null : privacyFilter === 'private';
-      const data = await coursesApi.search(query || undefined, isPrivateParam);
-      const list = Array.isArray(data) ? data : [];
-      setCourses(list);
-      await refreshEnrollments(list);
+      loadPage.current = (cursor) => coursesApi.search(query || undefined, isPrivateParam, cursor);
+      const page = await loadPage.current();
+      setCourses(page.data);
+      setNextCursor(page.next);
+      await refreshEnrollments(page.data);
     } catch {
       toast({
         title: 'Tìm kiếm thất bại',
@@ -68,6 +74,25 @@ export const useCourses = (username?: string) => {
     }
   }, [toast, refreshEnrollments]);
 
+  const loadMoreCourses = useCallback(async () => {
+    if (!nextCursor || isLoadingMore) return;
+    setIsLoadingMore(true);
+    try {
+      const page = await loadPage.current(nextCursor);
+      setCourses((prev) => [...prev, ...page.data]);
+      setNextCursor(page.next);
+      await refreshEnrollments(page.data, true);
+    } catch {
+      toast({
+        title: 'Lỗi',
+        description: 'Không thể tải thêm khóa học',
+        variant: 'destructive',
+      });
+    } finally {
+      setIsLoadingMore(false);
+    }
+  }, [nextCursor, isLoadingMore, toast, refreshEnrollments]);
+
   const enrollInCourse = useCallback(async (courseId: number, password?: string, courseCode?: string) => {
     try {
       await enrollmentApi.enroll(courseId, password);
@@ -129,9 +154,12 @@ export const useCourses = (username?: string) => {
   return {
     courses,
     isLoading,
+    isLoadingMore,
+    hasMoreCourses: nextCursor !== null,
     enrolledCourseCodes,
     fetchCourses,
     searchCourses,
+    loadMoreCourses,
     enrollInCourse,
     withdrawFromCourse,
     updateCourseInList,
@@ -8,6 +8,17 @@ export interface ApiResponse<T> {
   data: T;
 }
 
+// List endpoints are keyset-paginated: `next` is the cursor for the following page, null on the last page
+export interface PageResponse<T> extends ApiResponse<T[] | null> {
+  next?: string | null;
+}
+
+// One page for screens that load more on demand: pass `next` back as the cursor, null means no more pages
+export interface Page<T> {
+  data: T[];
+  next: string | null;
+}
+
 // Auth types
 export interface SignInRequest {
   username: string;
@@ -115,6 +126,17 @@ export interface Submission {
   fileCount?: number;
 }
 
+export interface BulkGradeItem {
+  submissionId: number;
+  grade: number;
+}
+
+export interface BulkGradeResult {
+  submissionId: number;
+  grade: number | null;
+  status: 'GRADED' | 'NOT_FOUND' | 'INVALID_GRADE' | 'DUPLICATE';
+}
+
 export interface SubmissionCreateRequest {
   description?: string;
   files?: File[];
@@ -143,6 +165,36 @@ const createApiClient = (): AxiosInstance => {
 
 const api = createApiClient();
 
+const PAGE_SIZE = 50;
+
+// Fetches a single page of a paginated list endpoint
+const getPage = async <T>(url: string, params: Record<string, unknown> = {}, cursor?: string | null): Promise<Page<T>> => {
+  const response: AxiosResponse<PageResponse<T>> = await api.get(url, {
+    params: { ...params, limit: PAGE_SIZE, ...(cursor ? { cursor } : {}) },
+  });
+  return { data: response.data.data || [], next: response.data.next ?? null };
+};
+
+const mapPage = <T, R>(page: Page<T>, map: (rows: T[]) => R[]): Page<R> => ({ data: map(page.data), next: page.next });
+
+const normalizeCourses = (rows: any[]): CourseDTO[] =>
+  rows.map((c: any) => normalizeCourse(c)).filter((c: CourseDTO) => !!c.courseCode);
+
+// Follows `next` cursors and concatenates every page; only for callers that need the whole list
+// (e.g. checking membership), screens should use the paged variants and load more on demand
+const getAllPages = async <T>(url: string, params: Record<string, unknown> = {}): Promise<T[]> => {
+  const rows: T[] = [];
+  let cursor: string | null | undefined;
+  do {
+    const response: AxiosResponse<PageResponse<T>> = await api.get(url, {
+      params: { ...params, limit: 500, ...(cursor ? { cursor } : {}) },
+    });
+    rows.push(...(response.data.data || []));
+    cursor = response.data.next;
+  } while (cursor);
+  return rows;
+};
+
 // Normalize backend enrollment payloads to match UserCourse interface
 const normalizeUserCourse = (raw: any, fallbackCourseCode?: string): UserCourse => {
   const userId = Number(raw?.user?.id ?? raw?.userId ?? 0);
@@ -201,8 +253,7 @@ export const authApi = {
 // Users API
 export const usersApi = {
   getAll: async (): Promise<UserDTO[]> => {
-    const response: AxiosResponse<ApiResponse<UserDTO[]>> = await api.get('/users');
-    return response.data.data;
+    return getAllPages<UserDTO>('/users');
   },
 
   getByUsername: async (username: string): Promise<UserDTO> => {
@@ -232,11 +283,8 @@ export const usersApi = {
 
 // Courses API
 export const coursesApi = {
-  getAll: async (): Promise<CourseDTO[]> => {
-    const response: AxiosResponse<ApiResponse<any[]>> = await api.get('/courses');
-    return (response.data.data || [])
-      .map((c: any) => normalizeCourse(c))
-      .filter((c: CourseDTO) => !!c.courseCode);
+  list: async (cursor?: string | null): Promise<Page<CourseDTO>> => {
+    return mapPage(await getPage<any>('/courses', {}, cursor), normalizeCourses);
   },
 
   getById: async (courseId: number): Promise<CourseDTO> => {
@@ -245,19 +293,13 @@ export const coursesApi = {
   },
 
   getEnrollments: async (courseId: number): Promise<UserCourse[]> => {
-    const response: AxiosResponse<ApiResponse<any[]>> = await api.get(`/courses/all-users/${courseId}`);
-    const rows = response.data.data || [];
+    const rows = await getAllPages<any>(`/courses/all-users/${courseId}`);
     return rows.map((r: any) => normalizeUserCourse(r));
   },
 
-  search: async (q?: string, isPrivate?: boolean | null): Promise<CourseDTO[]> => {
-    const response: AxiosResponse<ApiResponse<any[]>> = await api.get('/courses/search', {
-      // Always include is-private param; allow null when no filter is applied
-      params: { q, 'is-private': isPrivate ?? null },
-    });
-    return (response.data.data || [])
-      .map((c: any) => normalizeCourse(c))
-      .filter((c: CourseDTO) => !!c.courseCode);
+  search: async (q?: string, isPrivate?: boolean | null, cursor?: string | null): Promise<Page<CourseDTO>> => {
+    // Always include is-private param; allow null when no filter is applied
+    return mapPage(await getPage<any>('/courses/search', { q, 'is-private': isPrivate ?? null }, cursor), normalizeCourses);
   },
 
   create: async (data: CourseCreateRequest): Promise<CourseDTO> => {
@@ -296,6 +338,10 @@ export const coursesApi = {
   },
 };
 
+export type RosterImportEvent =
+  | { type: 'error'; line: number; username: string; message: string }
+  | { type: 'progress' | 'done'; processed: number; enrolled: number; skipped: number; failed: number };
+
 // Enrollment API
 export const enrollmentApi = {
   enroll: async (courseId: number, password?: string): Promise<UserCourse> => {
@@ -307,6 +353,18 @@ export const enrollmentApi = {
     await api.delete(`/users-courses/withdraw/${courseId}`);
   },
 
+  // CSV một username mỗi dòng; backend trả NDJSON (lỗi từng dòng, tiến độ, tổng kết)
+  importRoster: async (courseId: number, file: File): Promise<RosterImportEvent[]> => {
+    const response = await api.post(`/users-courses/import/${courseId}`, file, {
+      headers: { 'Content-Type': 'text/csv' },
+      responseType: 'text',
+    });
+    return String(response.data)
+      .split('\n')
+      .filter((line) => line.trim() !== '')
+      .map((line) => JSON.parse(line) as RosterImportEvent);
+  },
+
   promoteTutor: async (courseId: number, userId: number): Promise<UserCourse> => {
     // Explicitly include query parameters in URL to ensure backend @RequestParam binding
     const response: AxiosResponse<ApiResponse<any>> = await api.put(
@@ -402,10 +460,11 @@ export const assignmentsApi = {
 // Submissions API
 export const submissionsApi = {
   getByAssignment: async (courseId: number, assignmentId: number): Promise<Submission[]> => {
-    const response: AxiosResponse<ApiResponse<Submission[]>> = await api.get(
-      `/courses/${courseId}/assignments/${assignmentId}/submissions`
-    );
-    return response.data.data;
+    return getAllPages<Submission>(`/courses/${courseId}/assignments/${assignmentId}/submissions`);
+  },
+
+  listByAssignment: async (courseId: number, assignmentId: number, cursor?: string | null): Promise<Page<Submission>> => {
+    return getPage<Submission>(`/courses/${courseId}/assignments/${assignmentId}/submissions`, {}, cursor);
   },
 
   submit: async (courseId: number, assignmentId: number, data: SubmissionCreateRequest): Promise<Submission> => {
@@ -443,6 +502,14 @@ export const submissionsApi = {
     return response.data.data;
   },
 
+  gradeMany: async (courseId: number, assignmentId: number, items: BulkGradeItem[]): Promise<BulkGradeResult[]> => {
+    const response: AxiosResponse<ApiResponse<BulkGradeResult[]>> = await api.put(
+      `/courses/${courseId}/assignments/${assignmentId}/submissions/grades`,
+      items
+    );
+    return response.data.data;
+  },
+
   edit: async (courseId: number, assignmentId: number, submissionId: number, data: SubmissionCreateRequest): Promise<Submission> => {
     const formData = new FormData();
     // Send request DTO as JSON blob with key 'request'
@@ -480,6 +547,14 @@ export const submissionsApi = {
     );
     return response.data.data;
   },
+
+  getGradebook: async (courseId: number, format: 'csv' | 'ndjson' = 'csv'): Promise<Blob> => {
+    const response = await api.get(`/courses/${courseId}/gradebook`, {
+      params: { format },
+      responseType: 'blob',
+    });
+    return response.data;
+  },
 };
 
 export default api;
@@ -2,6 +2,7 @@ import { useState, useEffect } from 'react';
 import { useAuth } from '@/contexts/AuthContext';
 import { MainLayout } from '@/components/layout/MainLayout';
 import { CourseDTO } from '@/lib/api';
+import { Button } from '@/components/ui/button';
 import { useCourses, filterCourses } from '@/hooks/useCourses';
 import {
   DashboardHeader,
@@ -19,9 +20,12 @@ const Dashboard = () => {
   const {
     courses,
     isLoading,
+    isLoadingMore,
+    hasMoreCourses,
     enrolledCourseCodes,
     fetchCourses,
     searchCourses,
+    loadMoreCourses,
     enrollInCourse,
     withdrawFromCourse,
     updateCourseInList,
@@ -131,6 +135,14 @@ const Dashboard = () => {
           onEdit={handleEdit}
         />
 
+        {!isLoading && hasMoreCourses && (
+          <div className="flex justify-center mt-6">
+            <Button variant="outline" onClick={loadMoreCourses} disabled={isLoadingMore}>
+              {isLoadingMore ? 'Đang tải...' : 'Tải thêm khóa học'}
+            </Button>
+          </div>
+        )}
+
         {/* Edit Course Dialog */}
         <EditCourseDialog
           course={editingCourse}